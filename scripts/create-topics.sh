@@ -10,6 +10,14 @@ kafka-topics \
   --partitions 1 \
   --create
 
+# must have as many partitions as voice-commands
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-commands-bulk \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
 kafka-topics \
   --bootstrap-server kafka:9092 \
   --topic unrecognized-commands \
@@ -24,4 +32,89 @@ kafka-topics \
   --partitions 1 \
   --create
 
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-commands-retry-5s \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-commands-retry-1m \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-commands-retry-10m \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-commands-dlq \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic translate-commands-retry-5s \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic translate-commands-retry-1m \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic translate-commands-retry-10m \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic translate-commands-dlq \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic phrase-table \
+  --replication-factor 1 \
+  --partitions 1 \
+  --config cleanup.policy=compact \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-command-chunks \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic partial-commands \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
+kafka-topics \
+  --bootstrap-server kafka:9092 \
+  --topic voice-intents \
+  --replication-factor 1 \
+  --partitions 1 \
+  --create
+
 sleep infinity
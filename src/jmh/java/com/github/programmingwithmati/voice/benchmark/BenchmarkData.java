@@ -0,0 +1,49 @@
+package com.github.programmingwithmati.voice.benchmark;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Test data for the benchmarks, built from the bundled FLAC recordings so payloads compress like real audio.
+ */
+final class BenchmarkData {
+
+    static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+    static final String JUAN_ID = "9821f112-ec35-4679-91e7-c558de479bc5";
+    static final String GIBBERISH_ID = "e0b80c6a-5c59-479c-b8d4-0b3f375e8b19";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * FLAC audio of exactly {@code size} bytes, repeating the "call John" recording as needed.
+     */
+    static byte[] audio(int size) {
+        byte[] recording = resource("audio/callJohn.flac");
+        byte[] audio = new byte[size];
+        for (int offset = 0; offset < size; offset += recording.length) {
+            System.arraycopy(recording, 0, audio, offset, Math.min(recording.length, size - offset));
+        }
+        return audio;
+    }
+
+    static VoiceCommand voiceCommand(String id, String language, int audioSize) {
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(audio(audioSize))
+                .audioCodec("FLAC")
+                .language(language)
+                .build();
+    }
+
+    private static byte[] resource(String name) {
+        try (var stream = Objects.requireNonNull(BenchmarkData.class.getClassLoader().getResourceAsStream(name))) {
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
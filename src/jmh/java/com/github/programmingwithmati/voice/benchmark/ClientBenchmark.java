@@ -0,0 +1,88 @@
+package com.github.programmingwithmati.voice.benchmark;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.service.LatencyInjectingSttClient;
+import com.github.programmingwithmati.voice.service.LatencyInjectingTranslateClient;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import com.github.programmingwithmati.voice.service.TranslateClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the mock clients with an injected latency, single and batched, to size batching and concurrency
+ * settings against a backend latency. Latencies are drawn uniformly between half and one and a half times
+ * {@code latencyMicros}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBenchmark {
+
+    @Param({"100", "1000"})
+    long latencyMicros;
+
+    @Param({"16"})
+    int batchSize;
+
+    private SttClient sttClient;
+    private TranslateClient translateClient;
+    private VoiceCommand voiceCommand;
+    private List<VoiceCommand> voiceCommands;
+    private ParsedVoiceCommand parsedVoiceCommand;
+    private List<ParsedVoiceCommand> parsedVoiceCommands;
+
+    @Setup
+    public void setup() {
+        long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        sttClient = new LatencyInjectingSttClient(new MockSttClient(), () -> jitter(latencyNanos));
+        translateClient = new LatencyInjectingTranslateClient(new MockTranslateClient(), () -> jitter(latencyNanos));
+        voiceCommand = BenchmarkData.voiceCommand(BenchmarkData.JUAN_ID, "es-AR", 16384);
+        voiceCommands = Collections.nCopies(batchSize, voiceCommand);
+        parsedVoiceCommand = new MockSttClient().speechToText(voiceCommand);
+        parsedVoiceCommands = Collections.nCopies(batchSize, parsedVoiceCommand);
+    }
+
+    private static long jitter(long latencyNanos) {
+        return latencyNanos / 2 + ThreadLocalRandom.current().nextLong(latencyNanos + 1);
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand speechToText() {
+        return sttClient.speechToText(voiceCommand);
+    }
+
+    @Benchmark
+    public List<ParsedVoiceCommand> speechToTextBatch() {
+        return sttClient.speechToTextBatch(voiceCommands);
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand translate() {
+        return translateClient.translate(parsedVoiceCommand);
+    }
+
+    @Benchmark
+    public List<ParsedVoiceCommand> translateBatch() {
+        return translateClient.translateBatch(parsedVoiceCommands);
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.programmingwithmati.voice.benchmark;
+
+import com.github.programmingwithmati.voice.intent.IntentGrammar;
+import com.github.programmingwithmati.voice.intent.IntentMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cost per command of matching a grammar of {@code patterns} patterns with the compiled {@link IntentGrammar},
+ * against trying one regular expression per pattern in turn, which is how consumers of the recognized commands
+ * parse them. The matched command is the last pattern of the grammar, the worst case of the regular expressions.
+ * Run with {@code -prof gc} to see that matching allocates nothing and only reading the slots does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IntentGrammarBenchmark {
+
+    private static final String[] VERBS = {"call", "play", "open", "close", "turn on", "turn off", "set", "show", "find", "start"};
+
+    @Param({"10", "100", "1000", "10000"})
+    int patterns;
+
+    private IntentMatcher matcher;
+    private List<Pattern> regularExpressions;
+    private String matchedCommand;
+    private String unmatchedCommand;
+
+    @Setup
+    public void setup() {
+        var rules = new ArrayList<IntentGrammar.Rule>();
+        regularExpressions = new ArrayList<>();
+        for (int i = 0; i < patterns; i++) {
+            String words = VERBS[i % VERBS.length] + " the device" + i;
+            rules.add(IntentGrammar.Rule.of("intent-" + i, words + " in {room}"));
+            regularExpressions.add(Pattern.compile("^" + words + " in (?<room>.+)$", Pattern.CASE_INSENSITIVE));
+        }
+        matcher = IntentGrammar.compile(rules).matcher();
+        int last = patterns - 1;
+        matchedCommand = VERBS[last % VERBS.length] + " the Device" + last + " in the living room";
+        unmatchedCommand = "what is the weather like in the living room";
+    }
+
+    @Benchmark
+    public boolean grammarMatch() {
+        return matcher.match(matchedCommand);
+    }
+
+    @Benchmark
+    public Map<String, String> grammarMatchWithSlots() {
+        matcher.match(matchedCommand);
+        return matcher.slots();
+    }
+
+    @Benchmark
+    public boolean grammarNoMatch() {
+        return matcher.match(unmatchedCommand);
+    }
+
+    @Benchmark
+    public String regularExpressionsMatch() {
+        for (Pattern pattern : regularExpressions) {
+            Matcher regexMatcher = pattern.matcher(matchedCommand);
+            if (regexMatcher.matches()) {
+                return regexMatcher.group("room");
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String regularExpressionsNoMatch() {
+        for (Pattern pattern : regularExpressions) {
+            Matcher regexMatcher = pattern.matcher(unmatchedCommand);
+            if (regexMatcher.matches()) {
+                return regexMatcher.group("room");
+            }
+        }
+        return null;
+    }
+}
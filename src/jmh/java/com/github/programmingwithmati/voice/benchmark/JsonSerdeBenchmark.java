@@ -0,0 +1,110 @@
+package com.github.programmingwithmati.voice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.serdes.ParsedVoiceCommandSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON cost per record of the serdes against plain data binding with a shared {@link ObjectMapper}, which is how
+ * {@link JsonSerde} used to work. Run with {@code -prof gc} to compare the bytes allocated per record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerdeBenchmark {
+
+    private static final String TOPIC = "recognized-commands";
+    private static final ObjectMapper PLAIN_MAPPER = new ObjectMapper();
+
+    private ParsedVoiceCommand parsedVoiceCommand;
+    private VoiceCommand voiceCommand;
+    private Serializer<ParsedVoiceCommand> parsedSerializer;
+    private Deserializer<ParsedVoiceCommand> parsedDeserializer;
+    private Serializer<ParsedVoiceCommand> streamingSerializer;
+    private Deserializer<ParsedVoiceCommand> streamingDeserializer;
+    private Serializer<VoiceCommand> voiceCommandSerializer;
+    private byte[] parsedJson;
+
+    @Setup
+    public void setup() {
+        parsedVoiceCommand = ParsedVoiceCommand.builder()
+                .id(BenchmarkData.JUAN_ID)
+                .textCommand("llamar a juan")
+                .probability(0.93)
+                .language("es-AR")
+                .build();
+        voiceCommand = BenchmarkData.voiceCommand(BenchmarkData.JOHN_ID, "en-US", 16 * 1024);
+        var jsonSerde = new JsonSerde<>(ParsedVoiceCommand.class);
+        parsedSerializer = jsonSerde.serializer();
+        parsedDeserializer = jsonSerde.deserializer();
+        var streamingSerde = new ParsedVoiceCommandSerde(SerdeFormat.JSON);
+        streamingSerializer = streamingSerde.serializer();
+        streamingDeserializer = streamingSerde.deserializer();
+        voiceCommandSerializer = new JsonSerde<>(VoiceCommand.class).serializer();
+        parsedJson = parsedSerializer.serialize(TOPIC, parsedVoiceCommand);
+    }
+
+    @Benchmark
+    public byte[] parsedPlainSerialize() throws IOException {
+        return PLAIN_MAPPER.writeValueAsBytes(parsedVoiceCommand);
+    }
+
+    @Benchmark
+    public byte[] parsedJsonSerdeSerialize() {
+        return parsedSerializer.serialize(TOPIC, parsedVoiceCommand);
+    }
+
+    @Benchmark
+    public byte[] parsedStreamingSerialize() {
+        return streamingSerializer.serialize(TOPIC, parsedVoiceCommand);
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand parsedPlainDeserialize() throws IOException {
+        return PLAIN_MAPPER.readValue(parsedJson, ParsedVoiceCommand.class);
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand parsedJsonSerdeDeserialize() {
+        return parsedDeserializer.deserialize(TOPIC, parsedJson);
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand parsedStreamingDeserialize() {
+        return streamingDeserializer.deserialize(TOPIC, parsedJson);
+    }
+
+    /**
+     * A 16 KB recording, where the growing buffers of {@code writeValueAsBytes} dominate the allocations.
+     */
+    @Benchmark
+    public byte[] voiceCommandPlainSerialize() throws IOException {
+        return PLAIN_MAPPER.writeValueAsBytes(voiceCommand);
+    }
+
+    @Benchmark
+    public byte[] voiceCommandJsonSerdeSerialize() {
+        return voiceCommandSerializer.serialize(TOPIC, voiceCommand);
+    }
+}
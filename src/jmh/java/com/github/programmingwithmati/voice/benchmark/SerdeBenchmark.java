@@ -0,0 +1,99 @@
+package com.github.programmingwithmati.voice.benchmark;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.serdes.VoiceCommandSerde;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of a {@link VoiceCommand} with realistic audio sizes, for the plain {@link JsonSerde} and for
+ * {@link VoiceCommandSerde} in both formats.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerdeBenchmark {
+
+    private static final String TOPIC = "voice-commands";
+
+    @Param({"16384", "131072", "512000"})
+    int audioSize;
+
+    private VoiceCommand voiceCommand;
+    private Serializer<VoiceCommand> jsonSerializer;
+    private Deserializer<VoiceCommand> jsonDeserializer;
+    private Serializer<VoiceCommand> binarySerializer;
+    private Deserializer<VoiceCommand> voiceCommandDeserializer;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() {
+        voiceCommand = BenchmarkData.voiceCommand(BenchmarkData.JOHN_ID, "en-US", audioSize);
+        var jsonSerde = new JsonSerde<>(VoiceCommand.class);
+        jsonSerializer = jsonSerde.serializer();
+        jsonDeserializer = jsonSerde.deserializer();
+        binarySerializer = new VoiceCommandSerde(SerdeFormat.BINARY).serializer();
+        voiceCommandDeserializer = new VoiceCommandSerde(SerdeFormat.BINARY).deserializer();
+        json = jsonSerializer.serialize(TOPIC, voiceCommand);
+        binary = binarySerializer.serialize(TOPIC, voiceCommand);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, voiceCommand);
+    }
+
+    @Benchmark
+    public VoiceCommand jsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(TOPIC, voiceCommand);
+    }
+
+    /**
+     * Deserializing and reading the audio, as the STT stage does.
+     */
+    @Benchmark
+    public void binaryDeserialize(Blackhole blackhole) {
+        blackhole.consume(voiceCommandDeserializer.deserialize(TOPIC, binary).getAudio());
+    }
+
+    /**
+     * Deserializing and reading the audio of a JSON record, as the STT stage does.
+     */
+    @Benchmark
+    public void lazyJsonDeserialize(Blackhole blackhole) {
+        blackhole.consume(voiceCommandDeserializer.deserialize(TOPIC, json).getAudio());
+    }
+
+    /**
+     * Deserializing a JSON record only to check its length, as the filter stage does.
+     */
+    @Benchmark
+    public int lazyJsonAudioLength() {
+        return voiceCommandDeserializer.deserialize(TOPIC, json).getAudioLength();
+    }
+}
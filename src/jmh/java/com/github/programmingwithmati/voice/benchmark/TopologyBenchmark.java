@@ -0,0 +1,101 @@
+package com.github.programmingwithmati.voice.benchmark;
+
+import com.github.programmingwithmati.voice.VoiceParserTopology;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.LatencyInjectingSttClient;
+import com.github.programmingwithmati.voice.service.LatencyInjectingTranslateClient;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One record through each path of {@link VoiceParserTopology#createTopology()}, including serialization, using
+ * the mock clients with an injected backend latency.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TopologyBenchmark {
+
+    @Param({"65536"})
+    int audioSize;
+
+    @Param({"0"})
+    long clientLatencyMicros;
+
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> unrecognizedCommandsTopic;
+    private VoiceCommand english;
+    private VoiceCommand spanish;
+    private VoiceCommand gibberish;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "benchmark");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+        long latencyNanos = TimeUnit.MICROSECONDS.toNanos(clientLatencyMicros);
+        var voiceParserTopology = new VoiceParserTopology(
+                new LatencyInjectingSttClient(new MockSttClient(), () -> latencyNanos),
+                new LatencyInjectingTranslateClient(new MockTranslateClient(), () -> latencyNanos));
+        testDriver = new TopologyTestDriver(voiceParserTopology.createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        unrecognizedCommandsTopic = testDriver.createOutputTopic(VoiceParserTopology.UNRECOGNIZED_COMMAND_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+
+        english = BenchmarkData.voiceCommand(BenchmarkData.JOHN_ID, "en-US", audioSize);
+        spanish = BenchmarkData.voiceCommand(BenchmarkData.JUAN_ID, "es-AR", audioSize);
+        gibberish = BenchmarkData.voiceCommand(BenchmarkData.GIBBERISH_ID, "en-US", audioSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        testDriver.close();
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand recognizedEnglish() {
+        voiceCommandsTopic.pipeInput(english.getId(), english);
+        return recognizedCommandsTopic.readValue();
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand recognizedAndTranslated() {
+        voiceCommandsTopic.pipeInput(spanish.getId(), spanish);
+        return recognizedCommandsTopic.readValue();
+    }
+
+    @Benchmark
+    public ParsedVoiceCommand unrecognized() {
+        voiceCommandsTopic.pipeInput(gibberish.getId(), gibberish);
+        return unrecognizedCommandsTopic.readValue();
+    }
+}
@@ -1,21 +1,81 @@
 package com.github.programmingwithmati.voice;
 
+import com.github.programmingwithmati.voice.blob.FileBlobStore;
+import com.github.programmingwithmati.voice.configuration.LanguageRoute;
+import com.github.programmingwithmati.voice.configuration.PerformanceProfile;
+import com.github.programmingwithmati.voice.configuration.PriorityConfiguration;
+import com.github.programmingwithmati.voice.configuration.ResilienceConfiguration;
 import com.github.programmingwithmati.voice.configuration.StreamsConfiguration;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.errors.DeadLetterDeserializationExceptionHandler;
+import com.github.programmingwithmati.voice.intent.IntentGrammar;
+import com.github.programmingwithmati.voice.phrase.PhraseTable;
+import com.github.programmingwithmati.voice.query.TranscriptionQueryServer;
+import com.github.programmingwithmati.voice.screening.FlacScreener;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
 import com.github.programmingwithmati.voice.service.MockSttClient;
 import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.state.HostInfo;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Slf4j
 public class VoiceCommandParserApp {
 
-    public static void main(String[] args) {
-        var streamsConfiguration = new StreamsConfiguration();
-        var voiceParserTopology = new VoiceParserTopology(new MockSttClient(), new MockTranslateClient());
+    public static void main(String[] args) throws IOException {
+        var performanceProfile = PerformanceProfile.load();
+        log.info("Starting with {}", performanceProfile);
+        Integer queryPort = Integer.getInteger("query.port");
+        var queryHost = queryPort == null ? null : new HostInfo(System.getProperty("query.host", "localhost"), queryPort);
+        var streamsConfiguration = new StreamsConfiguration(Boolean.getBoolean("exactly.once"), performanceProfile,
+                queryHost == null ? null : queryHost.host() + ":" + queryHost.port());
+        var topologyConfiguration = TopologyConfiguration.builder()
+                .serdeFormat(SerdeFormat.valueOf(System.getProperty("serde.format", SerdeFormat.JSON.name())))
+                .deduplicationEnabled(Boolean.getBoolean("deduplication.enabled"))
+                .languageRoutes(System.getProperty("language.routes") == null ? LanguageRoute.defaults() : LanguageRoute.parse(System.getProperty("language.routes")))
+                .streamingSttEnabled(Boolean.getBoolean("streaming.stt.enabled"))
+                .priorityLanes(Boolean.getBoolean("priority.lanes.enabled") ? PriorityConfiguration.defaults() : null)
+                .audioScreener(Boolean.getBoolean("audio.screening.enabled") ? new FlacScreener() : null)
+                .blobStore(System.getProperty("claim.check.dir") == null ? null : new FileBlobStore(Path.of(System.getProperty("claim.check.dir"))))
+                .sttResilience(Boolean.getBoolean("resilience.enabled") ? ResilienceConfiguration.defaults() : null)
+                .translateResilience(Boolean.getBoolean("resilience.enabled") ? ResilienceConfiguration.defaults() : null)
+                .retryOnFailure(Boolean.getBoolean("retry.enabled"))
+                .queryStoresEnabled(queryHost != null)
+                .phraseTable(phraseTable())
+                .intentGrammar(intentGrammar())
+                .build();
+        var voiceParserTopology = new VoiceParserTopology(new MockSttClient(), new MockTranslateClient(), topologyConfiguration);
 
         var kafkaStreams = new KafkaStreams(voiceParserTopology.createTopology(), streamsConfiguration.streamsConfiguration());
 
         kafkaStreams.start();
+        var queryServer = queryHost == null ? null : TranscriptionQueryServer.start(kafkaStreams, queryHost);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (queryServer != null) {
+                queryServer.close();
+            }
+            kafkaStreams.close();
+            DeadLetterDeserializationExceptionHandler.closeProducers();
+            voiceParserTopology.close();
+        }));
+    }
+
+    private static PhraseTable phraseTable() {
+        if (System.getProperty("phrase.table.file") != null) {
+            return PhraseTable.load(Path.of(System.getProperty("phrase.table.file")));
+        }
+        return Boolean.getBoolean("phrase.table.enabled") ? PhraseTable.bundled() : null;
+    }
 
-        Runtime.getRuntime().addShutdownHook(new Thread(kafkaStreams::close));
+    private static IntentGrammar intentGrammar() {
+        if (System.getProperty("intent.grammar.file") != null) {
+            return IntentGrammar.load(Path.of(System.getProperty("intent.grammar.file")));
+        }
+        return Boolean.getBoolean("intent.grammar.enabled") ? IntentGrammar.bundled() : null;
     }
 
 }
@@ -1,59 +1,585 @@
 package com.github.programmingwithmati.voice;
 
+import com.github.programmingwithmati.voice.cache.CacheKeys;
+import com.github.programmingwithmati.voice.cache.CacheStats;
+import com.github.programmingwithmati.voice.cache.CachingTransformer;
+import com.github.programmingwithmati.voice.cascade.CascadeStats;
+import com.github.programmingwithmati.voice.cascade.CascadingSttClient;
+import com.github.programmingwithmati.voice.configuration.LanguageRoute;
+import com.github.programmingwithmati.voice.configuration.ResilienceConfiguration;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.intent.IntentTransformer;
+import com.github.programmingwithmati.voice.metrics.CascadeMetrics;
+import com.github.programmingwithmati.voice.metrics.MeteredValueTransformer;
+import com.github.programmingwithmati.voice.metrics.RecognitionProbe;
+import com.github.programmingwithmati.voice.metrics.SerdeTimeProbe;
+import com.github.programmingwithmati.voice.metrics.SerdeTimer;
 import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.StreamedTranscription;
 import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceIntent;
+import com.github.programmingwithmati.voice.phrase.PhraseTable;
+import com.github.programmingwithmati.voice.phrase.PhraseTableTransformer;
+import com.github.programmingwithmati.voice.phrase.PhraseTableUpdater;
+import com.github.programmingwithmati.voice.phrase.PhraseTranslation;
+import com.github.programmingwithmati.voice.processor.AsyncTransformer;
+import com.github.programmingwithmati.voice.processor.ChunkAssemblyTransformer;
+import com.github.programmingwithmati.voice.processor.DeduplicationMarker;
+import com.github.programmingwithmati.voice.processor.DeduplicationTransformer;
+import com.github.programmingwithmati.voice.processor.MicroBatchTransformer;
+import com.github.programmingwithmati.voice.processor.PriorityLaneTransformer;
+import com.github.programmingwithmati.voice.query.ResultStoreProcessor;
+import com.github.programmingwithmati.voice.resilience.Attempt;
+import com.github.programmingwithmati.voice.resilience.FallbackTransformer;
+import com.github.programmingwithmati.voice.resilience.ResilientBackend;
+import com.github.programmingwithmati.voice.resilience.ResilientSttClient;
+import com.github.programmingwithmati.voice.resilience.ResilientTranslateClient;
+import com.github.programmingwithmati.voice.retry.DelayedRetryTransformer;
+import com.github.programmingwithmati.voice.retry.RetryScheduler;
+import com.github.programmingwithmati.voice.screening.RejectionTransformer;
+import com.github.programmingwithmati.voice.serdes.AudioChunkSerde;
 import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.serdes.ParsedVoiceCommandSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.serdes.VoiceCommandSerde;
+import com.github.programmingwithmati.voice.service.AdaptiveConcurrencyLimit;
+import com.github.programmingwithmati.voice.service.AsyncSttClient;
+import com.github.programmingwithmati.voice.service.AsyncTranslateClient;
+import com.github.programmingwithmati.voice.service.CallExecutor;
+import com.github.programmingwithmati.voice.service.StreamingSttClient;
 import com.github.programmingwithmati.voice.service.SttClient;
 import com.github.programmingwithmati.voice.service.TranslateClient;
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
-public class VoiceParserTopology {
+public class VoiceParserTopology implements AutoCloseable {
 
     public static final double THRESHOLD = 0.85;
+    /**
+     * Commands to transcribe, keyed by the id of the device that recorded them. The key is kept on every result, and
+     * the priority lanes and the results by device rely on it.
+     */
     public static final String VOICE_COMMANDS_TOPIC = "voice-commands";
+    /** Commands of bulk replays, scheduled behind the interactive ones of {@link #VOICE_COMMANDS_TOPIC}. */
+    public static final String VOICE_COMMANDS_BULK_TOPIC = "voice-commands-bulk";
     public static final String UNRECOGNIZED_COMMAND_TOPIC = "unrecognized-commands";
     public static final String RECOGNIZED_COMMANDS_TOPIC = "recognized-commands";
+    public static final String VOICE_INTENTS_TOPIC = "voice-intents";
+    /** Prefix of the retry topics of the STT stage, followed by the delay of the tier, e.g. {@code -5s}. */
+    public static final String VOICE_COMMANDS_RETRY_TOPIC = "voice-commands-retry";
+    public static final String VOICE_COMMANDS_DLQ_TOPIC = "voice-commands-dlq";
+    /** Prefix of the retry topics of the translation stage, followed by the delay of the tier. */
+    public static final String TRANSLATE_RETRY_TOPIC = "translate-commands-retry";
+    public static final String TRANSLATE_DLQ_TOPIC = "translate-commands-dlq";
+    public static final String STT_IN_FLIGHT_STORE = "stt-in-flight-store";
+    public static final String TRANSLATE_IN_FLIGHT_STORE = "translate-in-flight-store";
+    public static final String STT_BATCH_STORE = "stt-batch-store";
+    public static final String TRANSLATE_BATCH_STORE = "translate-batch-store";
+    public static final String STT_CACHE_STORE = "stt-cache-store";
+    public static final String TRANSLATE_CACHE_STORE = "translate-cache-store";
+    public static final String PROCESSED_IDS_STORE = "processed-ids-store";
+    public static final String STT_RETRY_STORE = "stt-retry-store";
+    public static final String TRANSLATE_RETRY_STORE = "translate-retry-store";
+    public static final String RESULTS_BY_ID_STORE = "results-by-id-store";
+    public static final String RESULTS_BY_DEVICE_STORE = "results-by-device-store";
+    /** Compacted topic of the phrases learned from the translation backend, keyed by {@link PhraseTable#key}. */
+    public static final String PHRASE_TABLE_TOPIC = "phrase-table";
+    public static final String PHRASE_TABLE_STORE = "phrase-table-store";
+    public static final String VOICE_COMMAND_CHUNKS_TOPIC = "voice-command-chunks";
+    /** Transcriptions of streamed commands whose audio is still arriving. */
+    public static final String PARTIAL_COMMANDS_TOPIC = "partial-commands";
+    public static final String AUDIO_CHUNK_STORE = "audio-chunk-store";
+    public static final String AUDIO_SESSION_STORE = "audio-session-store";
+    public static final String DEVICE_BUCKETS_STORE = "device-buckets-store";
+    public static final String DEFERRED_COMMANDS_STORE = "deferred-commands-store";
     private final SttClient sttClient;
-    private final TranslateClient translateClient;
+    private final Map<String, TranslateClient> translateClients = new HashMap<>();
+    private final TopologyConfiguration configuration;
+    private final CacheStats sttCacheStats = new CacheStats("stt");
+    private final CacheStats translateCacheStats = new CacheStats("translate");
+    private final CacheStats phraseTableStats = new CacheStats("phrase-table");
+    private final CascadeStats cascadeStats = new CascadeStats();
+    private final AsyncSttClient asyncSttClient;
+    private final StreamingSttClient streamingSttClient;
+    private final Map<String, AsyncTranslateClient> asyncTranslateClients = new HashMap<>();
+    private final List<CallExecutor> callExecutors = new ArrayList<>();
 
     public VoiceParserTopology(SttClient sttClient, TranslateClient translateClient) {
-        this.sttClient = sttClient;
-        this.translateClient = translateClient;
+        this(sttClient, translateClient, TopologyConfiguration.defaults());
+    }
+
+    public VoiceParserTopology(SttClient sttClient, TranslateClient translateClient, TopologyConfiguration configuration) {
+        this(sttClient, null, translateClient, configuration);
+    }
+
+    /**
+     * @param escalationSttClient transcribes again the uncertain results of {@code sttClient} when the configuration
+     *                            has an STT cascade
+     * @param configuration       the defaults when null
+     */
+    public VoiceParserTopology(SttClient sttClient, SttClient escalationSttClient, TranslateClient translateClient, TopologyConfiguration configuration) {
+        configuration = Objects.requireNonNullElseGet(configuration, TopologyConfiguration::defaults);
+        this.configuration = configuration;
+        if (configuration.getSttCascade() != null && escalationSttClient == null) {
+            throw new IllegalArgumentException("The STT cascade requires an escalation STT client");
+        }
+        if (configuration.isSttCacheEnabled() && configuration.getSttMode() != TopologyConfiguration.SttMode.SYNC) {
+            throw new IllegalArgumentException("The STT cache requires the SYNC STT mode");
+        }
+        if (configuration.isTranslateCacheEnabled() && configuration.getTranslateMode() != TopologyConfiguration.TranslateMode.SYNC) {
+            throw new IllegalArgumentException("The translation cache requires the SYNC translate mode");
+        }
+        if (configuration.getPhraseTable() != null && configuration.getTranslateMode() != TopologyConfiguration.TranslateMode.SYNC) {
+            throw new IllegalArgumentException("The phrase table requires the SYNC translate mode");
+        }
+        if (configuration.getPhraseLearningThreshold() < 1 || configuration.getMaxLearnedPhrases() < 0) {
+            throw new IllegalArgumentException("phraseLearningThreshold must be at least 1 and maxLearnedPhrases at least 0");
+        }
+        if (configuration.getSttResilience() != null && configuration.getSttMode() == TopologyConfiguration.SttMode.BATCH) {
+            throw new IllegalArgumentException("STT resilience requires the SYNC or ASYNC STT mode");
+        }
+        if (configuration.getTranslateResilience() != null && configuration.getTranslateMode() == TopologyConfiguration.TranslateMode.BATCH) {
+            throw new IllegalArgumentException("Translate resilience requires the SYNC or ASYNC translate mode");
+        }
+        if (configuration.getPriorityLanes() != null) {
+            configuration.getPriorityLanes().validate();
+        }
+        LanguageRoute.validate(configuration.getLanguageRoutes());
+        configuration.getRetryPolicy().validate();
+        if (configuration.isDeduplicationEnabled() && configuration.getLanguageRoutes().stream().anyMatch(route -> route.getPartitions() > 0)) {
+            // the processed ids store ties the routes to the input topic, so they have to be co-partitioned with it
+            throw new IllegalArgumentException("Language routes can't change the number of partitions when deduplication is enabled");
+        }
+        // blocking calls are guarded per backend, and per route for translations, so one slow route can't trip the others
+        var sttResilience = configuration.getSttResilience();
+        SttClient guardedSttClient = sttResilience == null ? sttClient : new ResilientSttClient(sttClient, resilientBackend("stt", sttResilience.validate()));
+        if (configuration.getSttCascade() != null) {
+            SttClient guardedEscalation = sttResilience == null ? escalationSttClient
+                    : new ResilientSttClient(escalationSttClient, resilientBackend("stt-escalation", sttResilience));
+            this.sttClient = new CascadingSttClient(guardedSttClient, guardedEscalation, configuration.getSttCascade().validate(), cascadeStats);
+        } else {
+            this.sttClient = guardedSttClient;
+        }
+        // clients without an asynchronous API get their blocking calls offloaded, so they don't hold a stream thread;
+        // guarded clients run them in their backend's executor, under its adaptive concurrency limit
+        if (this.sttClient instanceof AsyncSttClient) {
+            this.asyncSttClient = (AsyncSttClient) this.sttClient;
+        } else if (configuration.getSttMode() == TopologyConfiguration.SttMode.ASYNC) {
+            this.asyncSttClient = AsyncSttClient.fromBlocking(this.sttClient, callExecutor("stt", configuration.getSttMaxConcurrency(), configuration.getSttTimeout()));
+        } else {
+            this.asyncSttClient = null;
+        }
+        if (sttClient instanceof StreamingSttClient) {
+            this.streamingSttClient = (StreamingSttClient) sttClient;
+        } else {
+            this.streamingSttClient = configuration.isStreamingSttEnabled() ? StreamingSttClient.fromBlocking(this.sttClient) : null;
+        }
+        for (LanguageRoute route : configuration.getLanguageRoutes()) {
+            var translateResilience = configuration.getTranslateResilience();
+            TranslateClient routeClient = translateResilience == null || !route.isTranslate() ? translateClient
+                    : new ResilientTranslateClient(translateClient, resilientBackend(routeName("translate", route), translateResilience.validate()));
+            translateClients.put(route.getName(), routeClient);
+            if (routeClient instanceof AsyncTranslateClient) {
+                asyncTranslateClients.put(route.getName(), (AsyncTranslateClient) routeClient);
+            } else if (route.isTranslate() && configuration.getTranslateMode() == TopologyConfiguration.TranslateMode.ASYNC) {
+                int maxConcurrency = route.getMaxConcurrency() > 0 ? route.getMaxConcurrency() : configuration.getTranslateMaxConcurrency();
+                var callExecutor = callExecutor(routeName("translate", route), maxConcurrency, configuration.getTranslateTimeout());
+                asyncTranslateClients.put(route.getName(), AsyncTranslateClient.fromBlocking(translateClient, callExecutor));
+            }
+        }
+    }
+
+    private CallExecutor callExecutor(String name, int maxConcurrency, Duration timeout) {
+        return callExecutor(name, AdaptiveConcurrencyLimit.fixed(maxConcurrency), timeout);
+    }
+
+    private CallExecutor callExecutor(String name, AdaptiveConcurrencyLimit concurrencyLimit, Duration timeout) {
+        var callExecutor = CallExecutor.create(name, concurrencyLimit, timeout);
+        callExecutors.add(callExecutor);
+        return callExecutor;
+    }
+
+    private ResilientBackend resilientBackend(String name, ResilienceConfiguration resilience) {
+        return ResilientBackend.create(name, callExecutor(name, ResilientBackend.concurrencyLimit(resilience), resilience.getCallTimeout()), resilience);
+    }
+
+    public CacheStats getSttCacheStats() {
+        return sttCacheStats;
+    }
+
+    public CacheStats getTranslateCacheStats() {
+        return translateCacheStats;
+    }
+
+    public CacheStats getPhraseTableStats() {
+        return phraseTableStats;
+    }
+
+    public CascadeStats getCascadeStats() {
+        return cascadeStats;
+    }
+
+    /**
+     * Commands with 10 bytes of audio or less hardly contain a command and are not transcribed. Checks the length
+     * without decoding the audio.
+     */
+    public static boolean hasEnoughAudio(VoiceCommand voiceCommand) {
+        return voiceCommand.getAudioLength() > 10;
+    }
+
+    public static boolean isRecognized(ParsedVoiceCommand parsedVoiceCommand) {
+        return parsedVoiceCommand.getProbability() > THRESHOLD;
     }
 
     public Topology createTopology() {
 
         StreamsBuilder streamsBuilder = new StreamsBuilder();
-        // Create Serdes
-        JsonSerde<VoiceCommand> voiceCommandJsonSerde = new JsonSerde<>(VoiceCommand.class);
-        JsonSerde<ParsedVoiceCommand> parsedVoiceCommandJsonSerde = new JsonSerde<>(ParsedVoiceCommand.class);
+        // Create Serdes: records are read in any format and written in the configured one, timed for the stage metrics
+        Serde<VoiceCommand> voiceCommandSerde = SerdeTimer.metered(new VoiceCommandSerde(configuration.getSerdeFormat(), configuration.getBlobStore()));
+        Serde<ParsedVoiceCommand> parsedVoiceCommandSerde = SerdeTimer.metered(new ParsedVoiceCommandSerde(configuration.getSerdeFormat()));
+
+        // both lanes are read by the same tasks, so they must have as many partitions
+        List<String> sourceTopics = configuration.getPriorityLanes() == null ? List.of(VOICE_COMMANDS_TOPIC) : List.of(VOICE_COMMANDS_TOPIC, VOICE_COMMANDS_BULK_TOPIC);
+        KStream<String, VoiceCommand> source = streamsBuilder.stream(sourceTopics, Consumed.with(Serdes.String(), voiceCommandSerde));
+        source.process(SerdeTimeProbe.deserialization("deserialize"));
+        KStream<String, VoiceCommand> voiceCommands = deduplicate(streamsBuilder, source) // skip commands replayed after a crash or rebalance
+                .flatTransformValues(MeteredValueTransformer.of("filter", (key, value) -> hasEnoughAudio(value) ? List.of(value) : List.<VoiceCommand>of())); // checks the length without decoding the audio
+
+        voiceCommands = schedule(streamsBuilder, screen(voiceCommands, parsedVoiceCommandSerde));
+        if (isSttRetried()) {
+            voiceCommands = voiceCommands.merge(retried(streamsBuilder, VOICE_COMMANDS_RETRY_TOPIC, STT_RETRY_STORE,
+                    new VoiceCommandSerde(configuration.getSerdeFormat(), configuration.getBlobStore()), new VoiceCommandSerde(SerdeFormat.BINARY, configuration.getBlobStore())));
+        }
 
-        Map<String, KStream<String, ParsedVoiceCommand>> branchesMap = streamsBuilder.stream(VOICE_COMMANDS_TOPIC, Consumed.with(Serdes.String(), voiceCommandJsonSerde))
-                .filter((key, value) -> value.getAudio().length > 10)
-                .mapValues((readOnlyKey, voiceCommand) -> sttClient.speechToText(voiceCommand)) // transform audio to text
+        KStream<String, ParsedVoiceCommand> transcriptions = speechToText(streamsBuilder, voiceCommands); // transform audio to text
+        if (configuration.getSttCascade() != null) {
+            transcriptions.process(CascadeMetrics.probe(cascadeStats));
+        }
+        if (configuration.isStreamingSttEnabled()) {
+            transcriptions = transcriptions.merge(streamedSpeechToText(streamsBuilder, parsedVoiceCommandSerde));
+        }
+        Map<String, KStream<String, ParsedVoiceCommand>> branchesMap = transcriptions
                 .split(Named.as("branches-")) // split the stream
-                .branch((key, voiceCommand) -> voiceCommand.getProbability() > THRESHOLD, Branched.as("recognized")) // If the probability is greater than the threshold, then we have a good sense of security about what the user said
+                .branch((key, voiceCommand) -> isRecognized(voiceCommand), Branched.as("recognized")) // If the probability is greater than the threshold, then we have a good sense of security about what the user said
                 .defaultBranch(Branched.as("not-recognized")); // If the probability is lower than the threshold, then the STT API is not sure about what the user said
 
-        branchesMap.get("branches-not-recognized")
-                .to(UNRECOGNIZED_COMMAND_TOPIC, Produced.with(Serdes.String(), parsedVoiceCommandJsonSerde)); // send unrecognized audio to "unrecognized-command" topic
+        KStream<String, ParsedVoiceCommand> unrecognizedCommands = branchesMap.get("branches-not-recognized");
+        unrecognizedCommands.process(RecognitionProbe.unrecognized());
+        unrecognizedCommands.to(UNRECOGNIZED_COMMAND_TOPIC, Produced.with(Serdes.String(), parsedVoiceCommandSerde)); // send unrecognized audio to "unrecognized-command" topic
+        unrecognizedCommands.process(SerdeTimeProbe.serialization("serialize-unrecognized")); // runs right after the sink serialized the record
+        markProcessed(unrecognizedCommands);
 
-        Map<String, KStream<String, ParsedVoiceCommand>> langStreams = branchesMap.get("branches-recognized")
-                .split(Named.as("lang-"))
-                .branch((key, voiceCommand) -> voiceCommand.getLanguage().startsWith("en"), Branched.as("en"))
-                .defaultBranch(Branched.as("other"));
-
-        langStreams.get("lang-other")
-                .mapValues((readOnlyKey, voiceCommand) -> translateClient.translate(voiceCommand)) // Translate non-english voice commands
-                .merge(langStreams.get("lang-en")) // merge all commands
-                .to(RECOGNIZED_COMMANDS_TOPIC, Produced.with(Serdes.String(), parsedVoiceCommandJsonSerde));
+        KStream<String, ParsedVoiceCommand> candidateCommands = branchesMap.get("branches-recognized");
+        candidateCommands.process(RecognitionProbe.recognized());
+        if (configuration.getPhraseTable() != null && configuration.getLanguageRoutes().stream().anyMatch(LanguageRoute::isTranslate)) {
+            streamsBuilder.addGlobalStore(PhraseTableTransformer.storeBuilder(PHRASE_TABLE_STORE), PHRASE_TABLE_TOPIC,
+                    Consumed.with(Serdes.String(), Serdes.String()), PhraseTableUpdater.supplier(PHRASE_TABLE_STORE, configuration.getMaxLearnedPhrases()));
+        }
+        if (isTranslateRetried()) {
+            // retried translations go through the routing again, which sends them back to their route
+            candidateCommands = candidateCommands.merge(retried(streamsBuilder, TRANSLATE_RETRY_TOPIC, TRANSLATE_RETRY_STORE,
+                    new ParsedVoiceCommandSerde(configuration.getSerdeFormat()), new ParsedVoiceCommandSerde(SerdeFormat.BINARY)));
+        }
+        // every translated route has its own sink, a merge would pull the routes back into a single sub-topology
+        for (KStream<String, ParsedVoiceCommand> recognizedCommands : routeByLanguage(streamsBuilder, candidateCommands)) {
+            recognizedCommands.to(RECOGNIZED_COMMANDS_TOPIC, Produced.with(Serdes.String(), parsedVoiceCommandSerde));
+            recognizedCommands.process(SerdeTimeProbe.serialization("serialize-recognized"));
+            markProcessed(recognizedCommands);
+            if (configuration.getIntentGrammar() != null) {
+                extractIntents(recognizedCommands);
+            }
+        }
+        if (configuration.isQueryStoresEnabled()) {
+            materializeResults(streamsBuilder);
+        }
 
         return streamsBuilder.build();
 
     }
+
+    /**
+     * Matches the recognized commands of a route against the intent grammar next to their sink, instead of reading
+     * them back from the recognized commands topic, so every route extracts its intents in its own sub-topology.
+     */
+    private void extractIntents(KStream<String, ParsedVoiceCommand> recognizedCommands) {
+        recognizedCommands
+                .flatTransformValues(MeteredValueTransformer.wrap("intent", IntentTransformer.supplier(configuration.getIntentGrammar())))
+                .to(VOICE_INTENTS_TOPIC, Produced.with(Serdes.String(), new JsonSerde<>(VoiceIntent.class)));
+    }
+
+    /**
+     * Keeps the recent results queryable by device and by command id. The results are read back from their topics,
+     * which keep the device key of {@link #VOICE_COMMANDS_TOPIC}, so the device view needs no repartitioning and only
+     * what was sent is queryable.
+     */
+    private void materializeResults(StreamsBuilder streamsBuilder) {
+        var storeSerde = new ParsedVoiceCommandSerde(SerdeFormat.BINARY);
+        streamsBuilder.addStateStore(ResultStoreProcessor.storeBuilder(RESULTS_BY_DEVICE_STORE, configuration.getQueryRetention(), true));
+        streamsBuilder.addStateStore(ResultStoreProcessor.storeBuilder(RESULTS_BY_ID_STORE, configuration.getQueryRetention(), false));
+        KStream<String, ParsedVoiceCommand> results = streamsBuilder.stream(List.of(RECOGNIZED_COMMANDS_TOPIC, UNRECOGNIZED_COMMAND_TOPIC),
+                Consumed.<String, ParsedVoiceCommand>with(Serdes.String(), new ParsedVoiceCommandSerde(configuration.getSerdeFormat())).withName("results-source"));
+        results.process(ResultStoreProcessor.supplier(RESULTS_BY_DEVICE_STORE), RESULTS_BY_DEVICE_STORE);
+        results.filter((device, result) -> result.getId() != null)
+                .selectKey((device, result) -> result.getId())
+                .repartition(Repartitioned.<String, ParsedVoiceCommand>as("results-by-id").withKeySerde(Serdes.String()).withValueSerde(storeSerde))
+                .process(ResultStoreProcessor.supplier(RESULTS_BY_ID_STORE), RESULTS_BY_ID_STORE);
+    }
+
+    /**
+     * The {@code ASYNC} stages always retry, since the call of a record has no caller left to throw to once it fails.
+     */
+    private boolean isSttRetried() {
+        return configuration.getSttMode() == TopologyConfiguration.SttMode.ASYNC
+                || configuration.getSttMode() == TopologyConfiguration.SttMode.SYNC && (configuration.isRetryOnFailure() || configuration.getSttResilience() != null);
+    }
+
+    private boolean isTranslateRetried() {
+        return (configuration.getTranslateMode() == TopologyConfiguration.TranslateMode.ASYNC
+                || configuration.getTranslateMode() == TopologyConfiguration.TranslateMode.SYNC && (configuration.isRetryOnFailure() || configuration.getTranslateResilience() != null))
+                && configuration.getLanguageRoutes().stream().anyMatch(LanguageRoute::isTranslate);
+    }
+
+    /**
+     * Reads the retry topics of a stage and returns their commands once they are due. The retry topics are read
+     * without the serde timer, so their deserialization isn't counted in the {@code deserialize} stage.
+     */
+    private <V> KStream<String, V> retried(StreamsBuilder streamsBuilder, String retryTopicPrefix, String storeName, Serde<V> serde, Serde<V> storeSerde) {
+        var retryPolicy = configuration.getRetryPolicy();
+        streamsBuilder.addStateStore(DelayedRetryTransformer.storeBuilder(storeName, storeSerde));
+        return streamsBuilder.stream(retryPolicy.topics(retryTopicPrefix), Consumed.with(Serdes.String(), serde))
+                .transform(DelayedRetryTransformer.supplier(storeName, retryPolicy.getPollInterval()), storeName);
+    }
+
+    /**
+     * Splits the commands by language route and repartitions and translates the translated routes. Routes that are
+     * not translated stay in the current sub-topology and are merged into the first stream.
+     */
+    private List<KStream<String, ParsedVoiceCommand>> routeByLanguage(StreamsBuilder streamsBuilder, KStream<String, ParsedVoiceCommand> parsedVoiceCommands) {
+        List<LanguageRoute> routes = configuration.getLanguageRoutes();
+        BranchedKStream<String, ParsedVoiceCommand> branches = parsedVoiceCommands.split(Named.as("lang-"));
+        for (LanguageRoute route : routes.subList(0, routes.size() - 1)) {
+            branches = branches.branch((key, voiceCommand) -> route.matches(voiceCommand.getLanguage()), Branched.as(route.getName()));
+        }
+        Map<String, KStream<String, ParsedVoiceCommand>> langStreams = branches.defaultBranch(Branched.as(routes.get(routes.size() - 1).getName()));
+
+        KStream<String, ParsedVoiceCommand> untranslated = null;
+        List<KStream<String, ParsedVoiceCommand>> results = new ArrayList<>();
+        for (LanguageRoute route : routes) {
+            KStream<String, ParsedVoiceCommand> routed = langStreams.get("lang-" + route.getName());
+            if (!route.isTranslate()) {
+                untranslated = untranslated == null ? routed : untranslated.merge(routed);
+                continue;
+            }
+            var repartitioned = Repartitioned.<String, ParsedVoiceCommand>as("lang-" + route.getName())
+                    .withKeySerde(Serdes.String())
+                    .withValueSerde(new ParsedVoiceCommandSerde(SerdeFormat.BINARY));
+            results.add(translate(streamsBuilder, routed.repartition(route.getPartitions() > 0 ? repartitioned.withNumberOfPartitions(route.getPartitions()) : repartitioned), route));
+        }
+        if (untranslated != null) {
+            results.add(0, untranslated);
+        }
+        return results;
+    }
+
+    /**
+     * The catch-all route keeps the store and metric names the translation stage had before there were routes.
+     */
+    private static String routeName(String name, LanguageRoute route) {
+        return route.getLanguagePrefixes().isEmpty() ? name : name + "-" + route.getName();
+    }
+
+    /**
+     * Sends commands rejected by the audio screener to the unrecognized commands topic and returns the others.
+     */
+    private KStream<String, VoiceCommand> screen(KStream<String, VoiceCommand> voiceCommands, Serde<ParsedVoiceCommand> parsedVoiceCommandSerde) {
+        var screener = configuration.getAudioScreener();
+        if (screener == null) {
+            return voiceCommands;
+        }
+        Map<String, KStream<String, VoiceCommand>> screened = voiceCommands
+                .split(Named.as("screening-"))
+                .branch((key, voiceCommand) -> screener.screen(voiceCommand) == null, Branched.as("accepted"))
+                .defaultBranch(Branched.as("rejected"));
+        KStream<String, ParsedVoiceCommand> rejectedCommands = screened.get("screening-rejected")
+                .transformValues(RejectionTransformer.supplier(screener));
+        rejectedCommands.to(UNRECOGNIZED_COMMAND_TOPIC, Produced.with(Serdes.String(), parsedVoiceCommandSerde));
+        rejectedCommands.process(SerdeTimeProbe.serialization("serialize-rejected"));
+        markProcessed(rejectedCommands);
+        return screened.get("screening-accepted");
+    }
+
+    /**
+     * Holds back the bulk commands and the commands of devices over their rate, after the cheap checks so the
+     * scheduler only keeps commands that will reach the STT stage.
+     */
+    private KStream<String, VoiceCommand> schedule(StreamsBuilder streamsBuilder, KStream<String, VoiceCommand> voiceCommands) {
+        if (configuration.getPriorityLanes() == null) {
+            return voiceCommands;
+        }
+        streamsBuilder.addStateStore(PriorityLaneTransformer.bucketStoreBuilder(DEVICE_BUCKETS_STORE));
+        streamsBuilder.addStateStore(PriorityLaneTransformer.deferredStoreBuilder(DEFERRED_COMMANDS_STORE,
+                new VoiceCommandSerde(SerdeFormat.BINARY, configuration.getBlobStore())));
+        return voiceCommands.transform(PriorityLaneTransformer.supplier(DEVICE_BUCKETS_STORE, DEFERRED_COMMANDS_STORE, VOICE_COMMANDS_BULK_TOPIC,
+                configuration.getPriorityLanes()), DEVICE_BUCKETS_STORE, DEFERRED_COMMANDS_STORE);
+    }
+
+    private KStream<String, VoiceCommand> deduplicate(StreamsBuilder streamsBuilder, KStream<String, VoiceCommand> voiceCommands) {
+        if (!configuration.isDeduplicationEnabled()) {
+            return voiceCommands;
+        }
+        streamsBuilder.addStateStore(DeduplicationTransformer.storeBuilder(PROCESSED_IDS_STORE, configuration.getDeduplicationRetention()));
+        return voiceCommands.transform(DeduplicationTransformer.supplier(PROCESSED_IDS_STORE, VoiceCommand::getId, configuration.getDeduplicationRetention()), PROCESSED_IDS_STORE);
+    }
+
+    /**
+     * Must be called after the stream was sent to its topic, so ids are only marked once their result is sent.
+     */
+    private void markProcessed(KStream<String, ParsedVoiceCommand> results) {
+        if (configuration.isDeduplicationEnabled()) {
+            results.process(DeduplicationMarker.supplier(PROCESSED_IDS_STORE, ParsedVoiceCommand::getId), PROCESSED_IDS_STORE);
+        }
+    }
+
+    private KStream<String, ParsedVoiceCommand> speechToText(StreamsBuilder streamsBuilder, KStream<String, VoiceCommand> voiceCommands) {
+        // internal stores are never read by other applications, so they always use the compact format
+        Serde<VoiceCommand> voiceCommandSerde = new VoiceCommandSerde(SerdeFormat.BINARY, configuration.getBlobStore());
+        if (configuration.getSttMode() == TopologyConfiguration.SttMode.SYNC && configuration.isSttCacheEnabled()) {
+            streamsBuilder.addStateStore(CachingTransformer.storeBuilder(STT_CACHE_STORE, new ParsedVoiceCommandSerde(SerdeFormat.BINARY)));
+            streamsBuilder.addStateStore(CachingTransformer.expiryIndexBuilder(STT_CACHE_STORE));
+            return withFallback(voiceCommands, "stt", MeteredValueTransformer.wrap("stt", CachingTransformer.supplier(STT_CACHE_STORE, CacheKeys::transcription, sttClient::speechToText,
+                    (voiceCommand, cached) -> cached.toBuilder().id(voiceCommand.getId()).build(),
+                    sttCacheStats, configuration.getCacheTtl(), configuration.getCacheMaxEntries(), configuration.getCacheHeapEntries())),
+                    isSttRetried(), VOICE_COMMANDS_RETRY_TOPIC, VOICE_COMMANDS_DLQ_TOPIC, new VoiceCommandSerde(configuration.getSerdeFormat(), configuration.getBlobStore()), STT_CACHE_STORE, CachingTransformer.expiryIndexName(STT_CACHE_STORE));
+        }
+        if (configuration.getSttMode() == TopologyConfiguration.SttMode.SYNC) {
+            return withFallback(voiceCommands, "stt", MeteredValueTransformer.of("stt", (readOnlyKey, voiceCommand) -> sttClient.speechToText(voiceCommand)),
+                    isSttRetried(), VOICE_COMMANDS_RETRY_TOPIC, VOICE_COMMANDS_DLQ_TOPIC, new VoiceCommandSerde(configuration.getSerdeFormat(), configuration.getBlobStore()));
+        }
+        if (configuration.getSttMode() == TopologyConfiguration.SttMode.BATCH) {
+            streamsBuilder.addStateStore(MicroBatchTransformer.storeBuilder(STT_BATCH_STORE, voiceCommandSerde));
+            return voiceCommands.transform(MicroBatchTransformer.supplier(STT_BATCH_STORE, "stt", sttClient::speechToTextBatch,
+                    configuration.getMaxBatchSize(), configuration.getBatchLinger()), STT_BATCH_STORE);
+        }
+        streamsBuilder.addStateStore(AsyncTransformer.storeBuilder(STT_IN_FLIGHT_STORE, voiceCommandSerde));
+        return retryFailed(voiceCommands.transform(AsyncTransformer.supplier(STT_IN_FLIGHT_STORE, "stt", asyncSttClient::speechToTextAsync,
+                configuration.getMaxInFlight(), configuration.getAsyncDrainInterval()), STT_IN_FLIGHT_STORE),
+                "stt", VOICE_COMMANDS_RETRY_TOPIC, VOICE_COMMANDS_DLQ_TOPIC, new VoiceCommandSerde(configuration.getSerdeFormat(), configuration.getBlobStore()));
+    }
+
+    /**
+     * Transcribes the commands streamed in chunks, sending partial transcriptions to their own topic and returning
+     * the final ones.
+     */
+    private KStream<String, ParsedVoiceCommand> streamedSpeechToText(StreamsBuilder streamsBuilder, Serde<ParsedVoiceCommand> parsedVoiceCommandSerde) {
+        streamsBuilder.addStateStore(ChunkAssemblyTransformer.chunkStoreBuilder(AUDIO_CHUNK_STORE));
+        streamsBuilder.addStateStore(ChunkAssemblyTransformer.sessionStoreBuilder(AUDIO_SESSION_STORE));
+        Map<String, KStream<String, StreamedTranscription>> transcriptions = streamsBuilder
+                .stream(VOICE_COMMAND_CHUNKS_TOPIC, Consumed.with(Serdes.String(), new AudioChunkSerde(configuration.getSerdeFormat())))
+                .transform(ChunkAssemblyTransformer.supplier(AUDIO_CHUNK_STORE, AUDIO_SESSION_STORE, streamingSttClient, configuration.getChunkSessionTimeout()),
+                        AUDIO_CHUNK_STORE, AUDIO_SESSION_STORE)
+                .split(Named.as("transcriptions-"))
+                .branch((key, transcription) -> transcription.isPartial(), Branched.as("partial"))
+                .defaultBranch(Branched.as("final"));
+        KStream<String, ParsedVoiceCommand> partialCommands = transcriptions.get("transcriptions-partial")
+                .mapValues(StreamedTranscription::getResult);
+        partialCommands.to(PARTIAL_COMMANDS_TOPIC, Produced.with(Serdes.String(), parsedVoiceCommandSerde));
+        partialCommands.process(SerdeTimeProbe.serialization("serialize-partial"));
+        return transcriptions.get("transcriptions-final").mapValues(StreamedTranscription::getResult);
+    }
+
+    private KStream<String, ParsedVoiceCommand> translate(StreamsBuilder streamsBuilder, KStream<String, ParsedVoiceCommand> parsedVoiceCommands, LanguageRoute route) {
+        String stage = routeName("translate", route);
+        TranslateClient translateClient = translateClients.get(route.getName());
+        if (configuration.getTranslateMode() == TopologyConfiguration.TranslateMode.SYNC) {
+            ValueTransformerWithKeySupplier<String, ParsedVoiceCommand, ParsedVoiceCommand> call;
+            String[] stateStoreNames;
+            if (configuration.isTranslateCacheEnabled()) {
+                String cacheStore = routeName(TRANSLATE_CACHE_STORE, route);
+                streamsBuilder.addStateStore(CachingTransformer.storeBuilder(cacheStore, new ParsedVoiceCommandSerde(SerdeFormat.BINARY)));
+                streamsBuilder.addStateStore(CachingTransformer.expiryIndexBuilder(cacheStore));
+                call = MeteredValueTransformer.wrap(stage, CachingTransformer.supplier(cacheStore, CacheKeys::translation, translateClient::translate,
+                        (original, cached) -> cached.toBuilder().id(original.getId()).probability(original.getProbability()).build(),
+                        translateCacheStats, configuration.getCacheTtl(), configuration.getCacheMaxEntries(), configuration.getCacheHeapEntries()));
+                stateStoreNames = new String[]{cacheStore, CachingTransformer.expiryIndexName(cacheStore)};
+            } else {
+                call = MeteredValueTransformer.of(stage, (readOnlyKey, voiceCommand) -> translateClient.translate(voiceCommand));
+                stateStoreNames = new String[0];
+            }
+            if (configuration.getPhraseTable() == null) {
+                return withFallback(parsedVoiceCommands, stage, call,
+                        isTranslateRetried(), TRANSLATE_RETRY_TOPIC, TRANSLATE_DLQ_TOPIC, new ParsedVoiceCommandSerde(configuration.getSerdeFormat()), stateStoreNames);
+            }
+            return learnPhrases(withFallback(parsedVoiceCommands, stage, PhraseTableTransformer.wrap(PHRASE_TABLE_STORE, configuration.getPhraseTable(), call, phraseTableStats, configuration.getPhraseLearningThreshold()),
+                    isTranslateRetried(), TRANSLATE_RETRY_TOPIC, TRANSLATE_DLQ_TOPIC, new ParsedVoiceCommandSerde(configuration.getSerdeFormat()), stateStoreNames));
+        }
+        if (configuration.getTranslateMode() == TopologyConfiguration.TranslateMode.BATCH) {
+            String batchStore = routeName(TRANSLATE_BATCH_STORE, route);
+            streamsBuilder.addStateStore(MicroBatchTransformer.storeBuilder(batchStore, new ParsedVoiceCommandSerde(SerdeFormat.BINARY)));
+            return parsedVoiceCommands.transform(MicroBatchTransformer.supplier(batchStore, stage, translateClient::translateBatch,
+                    configuration.getMaxBatchSize(), configuration.getBatchLinger()), batchStore);
+        }
+        String inFlightStore = routeName(TRANSLATE_IN_FLIGHT_STORE, route);
+        int maxInFlight = route.getMaxInFlight() > 0 ? route.getMaxInFlight() : configuration.getMaxInFlight();
+        streamsBuilder.addStateStore(AsyncTransformer.storeBuilder(inFlightStore, new ParsedVoiceCommandSerde(SerdeFormat.BINARY)));
+        return retryFailed(parsedVoiceCommands.transform(AsyncTransformer.supplier(inFlightStore, stage, asyncTranslateClients.get(route.getName())::translateAsync,
+                maxInFlight, configuration.getAsyncDrainInterval()), inFlightStore),
+                stage, TRANSLATE_RETRY_TOPIC, TRANSLATE_DLQ_TOPIC, new ParsedVoiceCommandSerde(configuration.getSerdeFormat()));
+    }
+
+    /**
+     * Sends the phrases the translation stage learned to the phrase table topic and returns the translations.
+     */
+    private KStream<String, ParsedVoiceCommand> learnPhrases(KStream<String, PhraseTranslation> translations) {
+        translations.filter((key, translation) -> translation.isLearned())
+                .map((key, translation) -> KeyValue.pair(translation.getLearnedPhrase(), translation.getResult().getTextCommand()))
+                .to(PHRASE_TABLE_TOPIC, Produced.with(Serdes.String(), Serdes.String()));
+        return translations.mapValues(PhraseTranslation::getResult);
+    }
+
+    /**
+     * Runs a blocking call stage. When the stage is retried, commands whose call failed go to its retry topics.
+     */
+    private <V, R> KStream<String, R> withFallback(KStream<String, V> commands, String stage, ValueTransformerWithKeySupplier<String, V, R> call,
+                                                   boolean retried, String retryTopicPrefix, String deadLetterTopic, Serde<V> retrySerde, String... stateStoreNames) {
+        if (!retried) {
+            return commands.transformValues(call, stateStoreNames);
+        }
+        return retryFailed(commands.transformValues(FallbackTransformer.wrap(stage, call), stateStoreNames), stage, retryTopicPrefix, deadLetterTopic, retrySerde);
+    }
+
+    /**
+     * Sends the commands whose call failed to the retry tier of their attempt, or to the dead letter topic, unmarked
+     * so a replay processes them again, and returns the results of the others.
+     */
+    private <V, R> KStream<String, R> retryFailed(KStream<String, Attempt<V, R>> commands, String stage,
+                                                  String retryTopicPrefix, String deadLetterTopic, Serde<V> retrySerde) {
+        Map<String, KStream<String, Attempt<V, R>>> attempts = commands
+                .split(Named.as(stage + "-attempts-"))
+                .branch((key, attempt) -> attempt.isFailed(), Branched.as("failed"))
+                .defaultBranch(Branched.as("succeeded"));
+        attempts.get(stage + "-attempts-failed")
+                .mapValues(Attempt::getInput)
+                .transformValues(RetryScheduler.supplier(stage, configuration.getRetryPolicy()))
+                .to(RetryScheduler.topicNameExtractor(retryTopicPrefix, deadLetterTopic, configuration.getRetryPolicy()), Produced.with(Serdes.String(), retrySerde));
+        return attempts.get(stage + "-attempts-succeeded").mapValues(Attempt::getResult);
+    }
+
+    /**
+     * Stops the threads running blocking client calls. Call it after the {@code KafkaStreams} instance was closed.
+     */
+    @Override
+    public void close() {
+        callExecutors.forEach(CallExecutor::close);
+    }
 }
@@ -0,0 +1,86 @@
+package com.github.programmingwithmati.voice.batch;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a {@link BulkReprocessor} run. {@link #fromSystemProperties()} reads each setting from a {@code bulk.}
+ * system property, e.g. {@code -Dbulk.input=archive.ndjson -Dbulk.output=results -Dbulk.parallelism=32}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class BulkConfiguration {
+
+    Path input;
+
+    /**
+     * Directory the {@code recognized}, {@code unrecognized} and {@code failed} files are written to.
+     */
+    Path output;
+
+    /**
+     * How the input records are delimited. {@code null} picks it from the file extension.
+     */
+    @Builder.Default
+    DatasetFormat format = null;
+
+    /**
+     * Commands processed at a time. The STT and translate calls are blocking, so this is the number of calls the
+     * backends receive at once rather than a number of CPUs.
+     */
+    @Builder.Default
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Commands read but not processed yet. A full window pauses the reader, so memory doesn't grow with the
+     * dataset.
+     */
+    @Builder.Default
+    int maxPending = 1_000;
+
+    @Builder.Default
+    Duration reportInterval = Duration.ofSeconds(10);
+
+    /**
+     * Bytes of the input mapped at a time.
+     */
+    @Builder.Default
+    int windowSize = DatasetReader.DEFAULT_WINDOW_SIZE;
+
+    public static BulkConfiguration fromSystemProperties() {
+        var defaults = BulkConfiguration.builder().build();
+        return defaults.toBuilder()
+                .input(System.getProperty("bulk.input") == null ? null : Path.of(System.getProperty("bulk.input")))
+                .output(Path.of(System.getProperty("bulk.output", "bulk-results")))
+                .format(System.getProperty("bulk.format") == null ? null : DatasetFormat.valueOf(System.getProperty("bulk.format")))
+                .parallelism(Integer.getInteger("bulk.parallelism", defaults.getParallelism()))
+                .maxPending(Integer.getInteger("bulk.max.pending", defaults.getMaxPending()))
+                .reportInterval(Duration.parse(System.getProperty("bulk.report.interval", defaults.getReportInterval().toString())))
+                .windowSize(Integer.getInteger("bulk.window.size", defaults.getWindowSize()))
+                .build()
+                .validate();
+    }
+
+    public DatasetFormat formatOfInput() {
+        return format != null ? format : DatasetFormat.of(input);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a setting is missing or out of its range
+     */
+    public BulkConfiguration validate() {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("The input dataset and the output directory are required");
+        }
+        if (parallelism < 1 || maxPending < parallelism) {
+            throw new IllegalArgumentException("parallelism must be positive and maxPending at least parallelism (" + parallelism + ") but was " + maxPending);
+        }
+        if (reportInterval.isNegative() || reportInterval.isZero() || windowSize < 1) {
+            throw new IllegalArgumentException("reportInterval and windowSize must be positive");
+        }
+        return this;
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.programmingwithmati.voice.batch;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a {@link BulkReprocessor} run.
+ */
+@Value
+public class BulkReport {
+
+    long read;
+    /** Commands without enough audio to be transcribed, which the topology filters out too. */
+    long skipped;
+    long recognized;
+    long unrecognized;
+    /** Records that couldn't be read or whose STT or translate call threw. */
+    long failed;
+    Duration elapsed;
+
+    /**
+     * Commands read per second.
+     */
+    public double getThroughput() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return read * 1000d / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "read=%d skipped=%d recognized=%d unrecognized=%d failed=%d elapsed=%s throughput=%.1f/s"
+                .formatted(read, skipped, recognized, unrecognized, failed, elapsed, getThroughput());
+    }
+}
@@ -0,0 +1,230 @@
+package com.github.programmingwithmati.voice.batch;
+
+import com.github.programmingwithmati.voice.VoiceParserTopology;
+import com.github.programmingwithmati.voice.configuration.LanguageRoute;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.phrase.PhraseTable;
+import com.github.programmingwithmati.voice.screening.RejectionTransformer;
+import com.github.programmingwithmati.voice.serdes.ParsedVoiceCommandSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.serdes.VoiceCommandSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import com.github.programmingwithmati.voice.service.TranslateClient;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transcribes and translates a dataset of archived commands without going through Kafka, with these steps of
+ * {@link VoiceParserTopology#createTopology()}: the audio length filter, the audio screener, the recognition
+ * threshold, the language routes and the phrase table of the {@link TopologyConfiguration}. The STT cascade, the
+ * resilience settings and the caches are not supported, and a configuration with one of them is rejected.
+ * <p>
+ * The dataset is read through a {@link DatasetReader} and its commands are processed on a fork-join pool of
+ * {@code parallelism} threads, with at most {@code maxPending} commands read ahead. Results are written as NDJSON to
+ * {@code recognized.ndjson} and {@code unrecognized.ndjson} in the output directory, in completion order, and the
+ * commands whose call threw to {@code failed.ndjson}, so they can be processed again. Progress is printed every
+ * report interval. Any other failure of a worker, e.g. writing a result, fails the run once the read commands were
+ * processed.
+ */
+public class BulkReprocessor {
+
+    public static final String RECOGNIZED_FILE = "recognized.ndjson";
+    public static final String UNRECOGNIZED_FILE = "unrecognized.ndjson";
+    public static final String FAILED_FILE = "failed.ndjson";
+
+    private final SttClient sttClient;
+    private final TranslateClient translateClient;
+    private final TopologyConfiguration topologyConfiguration;
+    private final BulkConfiguration configuration;
+    private final PrintStream out;
+    private final Deserializer<VoiceCommand> voiceCommandDeserializer;
+    private final Serializer<VoiceCommand> voiceCommandSerializer;
+    private final Serializer<ParsedVoiceCommand> resultSerializer = new ParsedVoiceCommandSerde(SerdeFormat.JSON).serializer();
+    private final LongAdder read = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder recognized = new LongAdder();
+    private final LongAdder unrecognized = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public BulkReprocessor(SttClient sttClient, TranslateClient translateClient, TopologyConfiguration topologyConfiguration,
+                           BulkConfiguration configuration, PrintStream out) {
+        LanguageRoute.validate(topologyConfiguration.getLanguageRoutes());
+        if (topologyConfiguration.getSttCascade() != null) {
+            throw new IllegalArgumentException("The bulk reprocessor doesn't support the STT cascade");
+        }
+        if (topologyConfiguration.getSttResilience() != null || topologyConfiguration.getTranslateResilience() != null) {
+            throw new IllegalArgumentException("The bulk reprocessor doesn't support resilience, failed calls go to " + FAILED_FILE);
+        }
+        if (topologyConfiguration.isSttCacheEnabled() || topologyConfiguration.isTranslateCacheEnabled()) {
+            throw new IllegalArgumentException("The bulk reprocessor doesn't support the STT and translation caches");
+        }
+        this.sttClient = sttClient;
+        this.translateClient = translateClient;
+        this.topologyConfiguration = topologyConfiguration;
+        this.configuration = configuration.validate();
+        this.out = out;
+        var voiceCommandSerde = new VoiceCommandSerde(SerdeFormat.JSON, topologyConfiguration.getBlobStore());
+        this.voiceCommandDeserializer = voiceCommandSerde.deserializer();
+        this.voiceCommandSerializer = voiceCommandSerde.serializer();
+    }
+
+    public static void main(String[] args) throws IOException {
+        var topologyConfiguration = TopologyConfiguration.builder()
+                .phraseTable(Boolean.getBoolean("phrase.table.enabled") ? PhraseTable.bundled() : null)
+                .build();
+        var report = new BulkReprocessor(new MockSttClient(), new MockTranslateClient(), topologyConfiguration,
+                BulkConfiguration.fromSystemProperties(), System.out).run();
+        System.out.println(report);
+    }
+
+    public BulkReport run() throws IOException {
+        Files.createDirectories(configuration.getOutput());
+        long start = System.nanoTime();
+        var pool = new ForkJoinPool(configuration.getParallelism());
+        var pending = new Semaphore(configuration.getMaxPending());
+        var workerFailure = new AtomicReference<Throwable>();
+        var reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "bulk-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (var recognizedOut = new ResultWriter(configuration.getOutput().resolve(RECOGNIZED_FILE));
+             var unrecognizedOut = new ResultWriter(configuration.getOutput().resolve(UNRECOGNIZED_FILE));
+             var failedOut = new ResultWriter(configuration.getOutput().resolve(FAILED_FILE))) {
+            long reportMillis = configuration.getReportInterval().toMillis();
+            reporter.scheduleAtFixedRate(() -> out.println(report(start)), reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+            new DatasetReader(configuration.formatOfInput(), configuration.getWindowSize()).read(configuration.getInput(), bytes -> {
+                pending.acquireUninterruptibly();
+                read.increment();
+                pool.execute(() -> {
+                    try {
+                        process(bytes, recognizedOut, unrecognizedOut, failedOut);
+                    } catch (RuntimeException | Error e) {
+                        workerFailure.compareAndSet(null, e);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            });
+            pending.acquireUninterruptibly(configuration.getMaxPending()); // every command was processed
+        } finally {
+            reporter.shutdownNow();
+            pool.shutdownNow();
+        }
+        rethrow(workerFailure.get());
+        return report(start);
+    }
+
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    private void process(byte[] bytes, ResultWriter recognizedOut, ResultWriter unrecognizedOut, ResultWriter failedOut) {
+        VoiceCommand voiceCommand;
+        try {
+            voiceCommand = voiceCommandDeserializer.deserialize(null, bytes);
+        } catch (RuntimeException e) {
+            failed.increment();
+            return; // nothing to process again
+        }
+        if (voiceCommand == null || !VoiceParserTopology.hasEnoughAudio(voiceCommand)) {
+            skipped.increment();
+            return;
+        }
+        var screener = topologyConfiguration.getAudioScreener();
+        if (screener != null && screener.screen(voiceCommand) != null) {
+            unrecognized.increment();
+            unrecognizedOut.write(resultSerializer.serialize(null, RejectionTransformer.rejected(voiceCommand)));
+            return;
+        }
+        ParsedVoiceCommand result;
+        try {
+            result = sttClient.speechToText(voiceCommand);
+            if (VoiceParserTopology.isRecognized(result)
+                    && LanguageRoute.select(topologyConfiguration.getLanguageRoutes(), result.getLanguage()).isTranslate()) {
+                result = translate(result);
+            }
+        } catch (RuntimeException e) {
+            failed.increment();
+            failedOut.write(voiceCommandSerializer.serialize(null, voiceCommand));
+            return;
+        }
+        if (!VoiceParserTopology.isRecognized(result)) {
+            unrecognized.increment();
+            unrecognizedOut.write(resultSerializer.serialize(null, result));
+            return;
+        }
+        recognized.increment();
+        recognizedOut.write(resultSerializer.serialize(null, result));
+    }
+
+    private ParsedVoiceCommand translate(ParsedVoiceCommand command) {
+        var phraseTable = topologyConfiguration.getPhraseTable();
+        if (phraseTable != null) {
+            String known = phraseTable.get(PhraseTable.key(command.getLanguage(), command.getTextCommand()));
+            if (known != null) {
+                return command.toBuilder().textCommand(known).build();
+            }
+        }
+        return translateClient.translate(command);
+    }
+
+    private BulkReport report(long start) {
+        return new BulkReport(read.sum(), skipped.sum(), recognized.sum(), unrecognized.sum(), failed.sum(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * An NDJSON file written by all the worker threads.
+     */
+    private static class ResultWriter implements AutoCloseable {
+
+        private final OutputStream stream;
+
+        ResultWriter(Path file) throws IOException {
+            this.stream = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        }
+
+        synchronized void write(byte[] json) {
+            try {
+                stream.write(json);
+                stream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.programmingwithmati.voice.batch;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * How the records of a dataset are delimited. Each record is a {@code VoiceCommand} in any of the formats the
+ * {@link com.github.programmingwithmati.voice.serdes.VoiceCommandSerde} reads.
+ */
+public enum DatasetFormat {
+    /** One JSON command per line. */
+    NDJSON,
+    /** Records preceded by their length as a 4 byte big-endian int, e.g. binary commands as written to Kafka. */
+    LENGTH_PREFIXED;
+
+    /**
+     * {@code .ndjson}, {@code .jsonl} and {@code .json} files are {@link #NDJSON}, anything else is
+     * {@link #LENGTH_PREFIXED}.
+     */
+    public static DatasetFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json") ? NDJSON : LENGTH_PREFIXED;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.programmingwithmati.voice.batch;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads the records of a dataset through a window memory-mapped over the file, so datasets much larger than the
+ * heap are read without copying them through a stream buffer. The window moves to the first record it didn't hold
+ * completely, and grows for a record larger than itself.
+ */
+public class DatasetReader {
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final DatasetFormat format;
+    private final int windowSize;
+
+    public DatasetReader(DatasetFormat format) {
+        this(format, DEFAULT_WINDOW_SIZE);
+    }
+
+    public DatasetReader(DatasetFormat format, int windowSize) {
+        this.format = format;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Passes the bytes of every record to {@code records}, in file order, from the calling thread.
+     *
+     * @throws IOException if the file can't be read or its last record is truncated
+     */
+    public void read(Path file, Consumer<byte[]> records) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            int window = windowSize;
+            while (position < size) {
+                int length = (int) Math.min(window, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = format == DatasetFormat.NDJSON ? readLines(buffer, last, records) : readLengthPrefixed(buffer, position, records);
+                if (consumed > 0) {
+                    position += consumed;
+                    window = windowSize;
+                } else if (last) {
+                    throw new IOException("Truncated record at byte " + position + " of " + file);
+                } else if (window == Integer.MAX_VALUE) {
+                    throw new IOException("Record at byte " + position + " of " + file + " is larger than 2 GiB");
+                } else {
+                    window = (int) Math.min(Integer.MAX_VALUE, 2L * window);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the bytes of the window up to the end of its last complete line
+     */
+    private static int readLines(MappedByteBuffer buffer, boolean last, Consumer<byte[]> records) {
+        int start = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                emitLine(buffer, start, i, records);
+                start = i + 1;
+            }
+        }
+        if (last && start < limit) {
+            emitLine(buffer, start, limit, records);
+            start = limit;
+        }
+        return start;
+    }
+
+    private static void emitLine(MappedByteBuffer buffer, int start, int end, Consumer<byte[]> records) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end > start) {
+            records.accept(copy(buffer, start, end - start));
+        }
+    }
+
+    /**
+     * @return the bytes of the window up to the end of its last complete record
+     */
+    private static int readLengthPrefixed(MappedByteBuffer buffer, long windowPosition, Consumer<byte[]> records) throws IOException {
+        int position = 0;
+        int limit = buffer.limit();
+        while (limit - position >= Integer.BYTES) {
+            int length = buffer.getInt(position);
+            if (length < 0) {
+                throw new IOException("Negative record length at byte " + (windowPosition + position));
+            }
+            if ((long) position + Integer.BYTES + length > limit) {
+                break;
+            }
+            records.accept(copy(buffer, position + Integer.BYTES, length));
+            position += Integer.BYTES + length;
+        }
+        return position;
+    }
+
+    private static byte[] copy(MappedByteBuffer buffer, int offset, int length) {
+        var bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+}
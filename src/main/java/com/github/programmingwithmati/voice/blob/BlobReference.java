@@ -0,0 +1,20 @@
+package com.github.programmingwithmati.voice.blob;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Claim check of a payload kept in a {@link BlobStore}: where it is, how big it is and its SHA-256 in hex.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BlobReference {
+
+    private String key;
+    private int size;
+    private String sha256;
+}
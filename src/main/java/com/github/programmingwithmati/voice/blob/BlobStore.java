@@ -0,0 +1,27 @@
+package com.github.programmingwithmati.voice.blob;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Object storage for payloads too large to travel through Kafka. Keys are plain strings without path separators,
+ * so implementations can map them to files, or to object keys of an S3-compatible bucket.
+ * <p>
+ * Failures are reported as {@link java.io.UncheckedIOException}.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the remaining bytes of {@code content} under {@code key}, replacing any previous content.
+     */
+    void put(String key, ByteBuffer content);
+
+    /**
+     * Read-only view of the content stored under {@code key}. Implementations may map it from disk instead of
+     * reading it, so it should not be held longer than needed.
+     */
+    ByteBuffer get(String key);
+
+    boolean exists(String key);
+
+    void delete(String key);
+}
@@ -0,0 +1,76 @@
+package com.github.programmingwithmati.voice.blob;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Moves the audio of voice commands above a size threshold into a {@link BlobStore}, leaving only a
+ * {@link BlobReference} in the command.
+ * <p>
+ * Blobs are keyed by the SHA-256 of their content, so the same audio sent twice is stored once.
+ */
+public class ClaimCheck {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(ClaimCheck::newSha256);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final BlobStore blobStore;
+    private final int threshold;
+
+    /**
+     * @param threshold audio of more than this many bytes is checked in
+     */
+    public ClaimCheck(BlobStore blobStore, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative but was " + threshold);
+        }
+        this.blobStore = blobStore;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the command unchanged if its audio is small enough, otherwise a copy that references the stored audio.
+     */
+    public VoiceCommand checkIn(VoiceCommand voiceCommand) {
+        if (voiceCommand.getAudioReference() != null || voiceCommand.getAudioLength() <= threshold) {
+            return voiceCommand;
+        }
+        ByteBuffer audio = voiceCommand.getAudioBuffer();
+        String sha256 = sha256(audio);
+        if (!blobStore.exists(sha256)) {
+            blobStore.put(sha256, audio);
+        }
+        return VoiceCommand.builder()
+                .id(voiceCommand.getId())
+                .audioCodec(voiceCommand.getAudioCodec())
+                .language(voiceCommand.getLanguage())
+                .audioReference(new BlobReference(sha256, audio.remaining(), sha256))
+                .build();
+    }
+
+    /**
+     * SHA-256 of the remaining bytes of {@code content} in lower case hex, leaving its position unchanged.
+     */
+    public static String sha256(ByteBuffer content) {
+        var digest = SHA_256.get();
+        digest.update(content.duplicate());
+        byte[] hash = digest.digest();
+        var hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.programmingwithmati.voice.blob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Stores every blob in its own file under a root directory, spread over sub-directories named after the first
+ * two characters of the key. Blobs are written to a temporary file and moved into place, so readers never see a
+ * partial blob, and read by memory-mapping the file, so the content is paged in only when it is actually read.
+ */
+public class FileBlobStore implements BlobStore {
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private final Path root;
+
+    public FileBlobStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void put(String key, ByteBuffer content) {
+        Path path = path(key);
+        try {
+            Files.createDirectories(path.getParent());
+            Path temporary = Files.createTempFile(path.getParent(), key, ".tmp");
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                var remaining = content.duplicate();
+                while (remaining.hasRemaining()) {
+                    channel.write(remaining);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write blob " + key, e);
+        }
+    }
+
+    @Override
+    public ByteBuffer get(String key) {
+        try (var channel = FileChannel.open(path(key), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after the channel is closed
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read blob " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(path(key));
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(path(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete blob " + key, e);
+        }
+    }
+
+    private Path path(String key) {
+        if (!VALID_KEY.matcher(key).matches() || key.length() < 2) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.programmingwithmati.voice.blob;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps blobs on the heap, for tests and single-process setups.
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, ByteBuffer content) {
+        var bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        blobs.put(key, bytes);
+    }
+
+    @Override
+    public ByteBuffer get(String key) {
+        byte[] bytes = blobs.get(key);
+        if (bytes == null) {
+            throw new UncheckedIOException(new NoSuchFileException(key, null, "No blob with this key"));
+        }
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return blobs.containsKey(key);
+    }
+
+    @Override
+    public void delete(String key) {
+        blobs.remove(key);
+    }
+}
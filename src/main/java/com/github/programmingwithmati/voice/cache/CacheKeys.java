@@ -0,0 +1,73 @@
+package com.github.programmingwithmati.voice.cache;
+
+import com.github.programmingwithmati.voice.blob.ClaimCheck;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Content hashes used as cache keys, so identical requests share a cache entry whatever their id.
+ */
+public final class CacheKeys {
+
+    private static final byte SEPARATOR = 0;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(CacheKeys::sha256);
+
+    private CacheKeys() {
+    }
+
+    /**
+     * Hash of the audio, codec and language of a voice command. The audio hash of a checked in command comes from
+     * its reference, so the blob is not read, and matches the hash of the same audio sent inline.
+     */
+    public static String transcription(VoiceCommand voiceCommand) {
+        String audioHash = null;
+        if (voiceCommand.getAudioReference() != null) {
+            audioHash = voiceCommand.getAudioReference().getSha256();
+        } else {
+            ByteBuffer audio = voiceCommand.getAudioBuffer();
+            if (audio != null) {
+                audioHash = ClaimCheck.sha256(audio);
+            }
+        }
+        var digest = SHA_256.get();
+        update(digest, voiceCommand.getAudioCodec());
+        update(digest, voiceCommand.getLanguage());
+        update(digest, audioHash);
+        return encode(digest.digest());
+    }
+
+    /**
+     * Hash of the text and source language of a parsed voice command.
+     */
+    public static String translation(ParsedVoiceCommand parsedVoiceCommand) {
+        var digest = SHA_256.get();
+        update(digest, parsedVoiceCommand.getLanguage());
+        update(digest, parsedVoiceCommand.getTextCommand());
+        return encode(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(SEPARATOR);
+    }
+
+    private static String encode(byte[] hash) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.programmingwithmati.voice.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counters of a cache, shared by all the stream tasks that use it.
+ */
+public class CacheStats {
+
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CacheStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEvictions(long count) {
+        evictions.add(count);
+    }
+
+    @Override
+    public String toString() {
+        return "%s cache: %d hits, %d misses, %d evictions".formatted(name, getHits(), getMisses(), getEvictions());
+    }
+}
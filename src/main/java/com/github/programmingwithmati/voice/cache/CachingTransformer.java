@@ -0,0 +1,166 @@
+package com.github.programmingwithmati.voice.cache;
+
+import com.github.programmingwithmati.voice.metrics.CacheMetrics;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Answers repeated requests from a cache instead of calling the backend again.
+ * <p>
+ * Results are kept in a persistent key-value store keyed by a content hash of the request, with a small LRU map
+ * in front of it so hot entries don't go through RocksDB and its deserialization. Entries expire {@code ttl}
+ * after they were written (in stream time). A second store indexes the entries by the time they were written, so
+ * a punctuator walks them oldest first: it removes the expired ones and, when the cache holds more than
+ * {@code maxEntries}, evicts the oldest ones, stopping at the first entry it keeps.
+ */
+public class CachingTransformer<V, R> implements ValueTransformerWithKey<String, V, R> {
+
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+    private static final char KEY_SEPARATOR = '|';
+
+    private final String storeName;
+    private final Function<V, String> cacheKey;
+    private final Function<V, R> call;
+    private final BiFunction<V, R, R> rebind;
+    private final CacheStats stats;
+    private final long ttlMs;
+    private final long maxEntries;
+    private final Map<String, ValueAndTimestamp<R>> heapCache;
+    private ProcessorContext context;
+    private TimestampedKeyValueStore<String, R> store;
+    private KeyValueStore<String, String> expiryIndex;
+    private long entries;
+
+    /**
+     * @param rebind adapts a cached result to the request it answers, e.g. to copy the request id into it
+     */
+    public CachingTransformer(String storeName, Function<V, String> cacheKey, Function<V, R> call, BiFunction<V, R, R> rebind,
+                              CacheStats stats, Duration ttl, long maxEntries, int heapEntries) {
+        this.storeName = storeName;
+        this.cacheKey = cacheKey;
+        this.call = call;
+        this.rebind = rebind;
+        this.stats = stats;
+        this.ttlMs = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.heapCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValueAndTimestamp<R>> eldest) {
+                return size() > heapEntries;
+            }
+        };
+    }
+
+    public static <R> StoreBuilder<TimestampedKeyValueStore<String, R>> storeBuilder(String storeName, Serde<R> valueSerde) {
+        return Stores.timestampedKeyValueStoreBuilder(Stores.persistentTimestampedKeyValueStore(storeName), Serdes.String(), valueSerde);
+    }
+
+    /**
+     * The index of the entries of {@code storeName} by the time they were written, which the transformer needs
+     * next to the cache itself.
+     */
+    public static StoreBuilder<KeyValueStore<String, String>> expiryIndexBuilder(String storeName) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(expiryIndexName(storeName)), Serdes.String(), Serdes.String());
+    }
+
+    public static String expiryIndexName(String storeName) {
+        return storeName + "-expiry";
+    }
+
+    public static <V, R> ValueTransformerWithKeySupplier<String, V, R> supplier(String storeName, Function<V, String> cacheKey, Function<V, R> call, BiFunction<V, R, R> rebind,
+                                                                             CacheStats stats, Duration ttl, long maxEntries, int heapEntries) {
+        return () -> new CachingTransformer<>(storeName, cacheKey, call, rebind, stats, ttl, maxEntries, heapEntries);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.store = (TimestampedKeyValueStore<String, R>) context.getStateStore(storeName);
+        this.expiryIndex = (KeyValueStore<String, String>) context.getStateStore(expiryIndexName(storeName));
+        try (var iterator = expiryIndex.all()) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                entries++;
+            }
+        }
+        CacheMetrics.register(context.metrics(), stats);
+        context.schedule(PURGE_INTERVAL, PunctuationType.STREAM_TIME, this::purge);
+    }
+
+    @Override
+    public R transform(String readOnlyKey, V value) {
+        String key = cacheKey.apply(value);
+        long now = Math.max(0, context.timestamp()); // a negative timestamp would sort out of order in the expiry index
+        ValueAndTimestamp<R> cached = heapCache.get(key);
+        if (cached == null) {
+            cached = store.get(key);
+        }
+        if (cached != null && !isExpired(cached, now)) {
+            heapCache.put(key, cached);
+            stats.recordHit();
+            return rebind.apply(value, cached.value());
+        }
+        stats.recordMiss();
+        R result = call.apply(value);
+        if (result != null) {
+            var entry = ValueAndTimestamp.make(result, now);
+            if (cached == null) {
+                entries++;
+            } else {
+                expiryIndex.delete(indexKey(cached.timestamp(), key));
+            }
+            store.put(key, entry);
+            expiryIndex.put(indexKey(now, key), key);
+            heapCache.put(key, entry);
+        }
+        return result;
+    }
+
+    private boolean isExpired(ValueAndTimestamp<R> entry, long now) {
+        return now - entry.timestamp() > ttlMs;
+    }
+
+    private void purge(long streamTime) {
+        long evicted = 0;
+        try (var iterator = expiryIndex.all()) {
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                long writtenAt = Long.parseLong(entry.key.substring(0, entry.key.indexOf(KEY_SEPARATOR)));
+                if (streamTime - writtenAt <= ttlMs && entries <= maxEntries) {
+                    break;
+                }
+                store.delete(entry.value);
+                expiryIndex.delete(entry.key);
+                heapCache.remove(entry.value);
+                entries--;
+                evicted++;
+            }
+        }
+        stats.recordEvictions(evicted);
+    }
+
+    private static String indexKey(long timestamp, String key) {
+        return String.format("%019d", timestamp) + KEY_SEPARATOR + key;
+    }
+
+    @Override
+    public void close() {
+        heapCache.clear();
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.programmingwithmati.voice.cascade;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of an STT cascade, shared by all the stream tasks that use it.
+ */
+public class CascadeStats {
+
+    private final LongAdder transcriptions = new LongAdder();
+    private final LongAdder escalations = new LongAdder();
+
+    /**
+     * Commands transcribed by the first-pass client.
+     */
+    public long getTranscriptions() {
+        return transcriptions.sum();
+    }
+
+    /**
+     * Commands sent again to the escalation client.
+     */
+    public long getEscalations() {
+        return escalations.sum();
+    }
+
+    public double getEscalationRatio() {
+        long total = getTranscriptions();
+        return total == 0 ? 0 : (double) getEscalations() / total;
+    }
+
+    void recordTranscriptions(long count) {
+        transcriptions.add(count);
+    }
+
+    void recordEscalations(long count) {
+        escalations.add(count);
+    }
+
+    @Override
+    public String toString() {
+        return "stt cascade: %d transcriptions, %d escalations".formatted(getTranscriptions(), getEscalations());
+    }
+}
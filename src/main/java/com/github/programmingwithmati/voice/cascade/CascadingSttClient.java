@@ -0,0 +1,76 @@
+package com.github.programmingwithmati.voice.cascade;
+
+import com.github.programmingwithmati.voice.configuration.CascadeConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.service.SttClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transcribes every command with a cheap first-pass {@link SttClient} and sends only the uncertain ones to an
+ * expensive escalation client, whose result replaces the first one. A failed escalation fails the command, so it's
+ * retried like any other STT call.
+ */
+public class CascadingSttClient implements SttClient {
+
+    private final SttClient firstPass;
+    private final SttClient escalation;
+    private final CascadeConfiguration configuration;
+    private final CascadeStats stats;
+
+    public CascadingSttClient(SttClient firstPass, SttClient escalation, CascadeConfiguration configuration, CascadeStats stats) {
+        this.firstPass = firstPass;
+        this.escalation = escalation;
+        this.configuration = configuration;
+        this.stats = stats;
+    }
+
+    @Override
+    public ParsedVoiceCommand speechToText(VoiceCommand value) {
+        var result = firstPass.speechToText(value);
+        stats.recordTranscriptions(1);
+        if (!isUncertain(value, result)) {
+            return result;
+        }
+        stats.recordEscalations(1);
+        return escalation.speechToText(value);
+    }
+
+    /**
+     * The uncertain commands of the batch are escalated together in a single batch call.
+     */
+    @Override
+    public List<ParsedVoiceCommand> speechToTextBatch(List<VoiceCommand> values) {
+        var results = new ArrayList<>(firstPass.speechToTextBatch(values));
+        stats.recordTranscriptions(values.size());
+        List<Integer> uncertain = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (isUncertain(values.get(i), results.get(i))) {
+                uncertain.add(i);
+            }
+        }
+        if (uncertain.isEmpty()) {
+            return results;
+        }
+        stats.recordEscalations(uncertain.size());
+        List<VoiceCommand> escalated = new ArrayList<>(uncertain.size());
+        uncertain.forEach(i -> escalated.add(values.get(i)));
+        var escalatedResults = escalation.speechToTextBatch(escalated);
+        for (int i = 0; i < uncertain.size(); i++) {
+            results.set(uncertain.get(i), escalatedResults.get(i));
+        }
+        return results;
+    }
+
+    private boolean isUncertain(VoiceCommand value, ParsedVoiceCommand result) {
+        // the first pass may not detect the language, the requested one picks the band then
+        String language = result.getLanguage() != null ? result.getLanguage() : value.getLanguage();
+        return configuration.band(language).contains(result.getProbability());
+    }
+
+    public CascadeStats getStats() {
+        return stats;
+    }
+}
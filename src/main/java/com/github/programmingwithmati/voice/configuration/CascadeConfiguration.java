@@ -0,0 +1,75 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * When a transcription of the first-pass STT client is sent again to the escalation client. Results whose
+ * probability falls in the uncertainty band of their language are escalated: above it the first pass is trusted,
+ * below it the clip is most likely noise that a better model wouldn't recognize either.
+ */
+@Value
+@Builder(toBuilder = true)
+public class CascadeConfiguration {
+
+    /**
+     * Band of the languages without a band of their own.
+     */
+    @Builder.Default
+    UncertaintyBand defaultBand = UncertaintyBand.of(0.5, 0.95);
+
+    /**
+     * Bands by language tag prefix, e.g. {@code es} for {@code es-AR}. The longest matching prefix wins.
+     */
+    @Builder.Default
+    Map<String, UncertaintyBand> languageBands = Map.of();
+
+    public static CascadeConfiguration defaults() {
+        return CascadeConfiguration.builder().build();
+    }
+
+    public UncertaintyBand band(String language) {
+        UncertaintyBand band = defaultBand;
+        int matched = -1;
+        if (language != null) {
+            for (Map.Entry<String, UncertaintyBand> entry : languageBands.entrySet()) {
+                if (language.startsWith(entry.getKey()) && entry.getKey().length() > matched) {
+                    band = entry.getValue();
+                    matched = entry.getKey().length();
+                }
+            }
+        }
+        return band;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a band is out of range
+     */
+    public CascadeConfiguration validate() {
+        defaultBand.validate("default");
+        languageBands.forEach((prefix, band) -> band.validate(prefix));
+        return this;
+    }
+
+    /**
+     * Probabilities from {@code lower}, inclusive, to {@code upper}, exclusive.
+     */
+    @Value(staticConstructor = "of")
+    public static class UncertaintyBand {
+
+        double lower;
+        double upper;
+
+        public boolean contains(double probability) {
+            return probability >= lower && probability < upper;
+        }
+
+        private void validate(String name) {
+            if (lower < 0 || upper > 1 || lower > upper) {
+                throw new IllegalArgumentException("The " + name + " uncertainty band must satisfy 0 <= lower <= upper <= 1 but was [" + lower + ", " + upper + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Where recognized commands of some languages go. Routes are tried in order and a command takes the first route
+ * with a prefix of its language; a route without prefixes takes every language and must be the last one.
+ * <p>
+ * A translated route is repartitioned into its own internal topic, so it runs in its own sub-topology, with its
+ * own tasks, in-flight limits and client concurrency, and a slow language pair doesn't hold back the others.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LanguageRoute {
+
+    public static final String ALL_LANGUAGES = "*";
+
+    /**
+     * Names the branch, the repartition topic, the stores and the stage metrics of the route.
+     */
+    String name;
+
+    /**
+     * Language tag prefixes, e.g. {@code es} for {@code es-AR} and {@code es-ES}. Empty matches every language.
+     */
+    @Singular
+    List<String> languagePrefixes;
+
+    /**
+     * Whether the commands of this route have to be translated to English.
+     */
+    @Builder.Default
+    boolean translate = false;
+
+    /**
+     * Partitions of the repartition topic of a translated route. {@code 0} uses as many as the input topic.
+     */
+    @Builder.Default
+    int partitions = 0;
+
+    /**
+     * Translate requests in flight per partition in an {@code ASYNC} mode. {@code 0} uses the topology setting.
+     */
+    @Builder.Default
+    int maxInFlight = 0;
+
+    /**
+     * Blocking translate calls running at a time for this route. {@code 0} uses the topology setting.
+     */
+    @Builder.Default
+    int maxConcurrency = 0;
+
+    /**
+     * English commands are passed through, everything else is translated.
+     */
+    public static List<LanguageRoute> defaults() {
+        return List.of(
+                LanguageRoute.builder().name("en").languagePrefix("en").build(),
+                LanguageRoute.builder().name("other").translate(true).build());
+    }
+
+    public boolean matches(String language) {
+        if (languagePrefixes.isEmpty()) {
+            return true;
+        }
+        if (language == null) {
+            return false;
+        }
+        for (String prefix : languagePrefixes) {
+            if (language.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the first route that matches the language, the one the topology sends the command to
+     */
+    public static LanguageRoute select(List<LanguageRoute> routes, String language) {
+        for (LanguageRoute route : routes) {
+            if (route.matches(language)) {
+                return route;
+            }
+        }
+        return routes.get(routes.size() - 1);
+    }
+
+    /**
+     * Parses routes written as {@code name:prefixes[:options]}, separated by {@code ;}. Prefixes are separated
+     * by {@code ,} and {@value #ALL_LANGUAGES} matches every language. Options are separated by {@code ,} and are
+     * {@code translate}, {@code partitions=N}, {@code maxInFlight=N} and {@code maxConcurrency=N}, e.g.
+     * {@code en:en;es:es,ca:translate,partitions=6;other:*:translate}.
+     */
+    public static List<LanguageRoute> parse(String routes) {
+        var parsed = new ArrayList<LanguageRoute>();
+        for (String route : routes.split(";")) {
+            String[] parts = route.trim().split(":");
+            if (parts.length < 2 || parts.length > 3 || parts[0].isBlank()) {
+                throw new IllegalArgumentException("Invalid language route: " + route);
+            }
+            var builder = LanguageRoute.builder().name(parts[0].trim());
+            for (String prefix : parts[1].split(",")) {
+                if (!prefix.isBlank() && !prefix.trim().equals(ALL_LANGUAGES)) {
+                    builder.languagePrefix(prefix.trim());
+                }
+            }
+            if (parts.length == 3) {
+                for (String option : parts[2].split(",")) {
+                    String[] keyValue = option.trim().split("=", 2);
+                    switch (keyValue[0].toLowerCase(Locale.ROOT)) {
+                        case "translate" -> builder.translate(true);
+                        case "partitions" -> builder.partitions(number(route, keyValue));
+                        case "maxinflight" -> builder.maxInFlight(number(route, keyValue));
+                        case "maxconcurrency" -> builder.maxConcurrency(number(route, keyValue));
+                        default -> throw new IllegalArgumentException("Unknown option " + option + " in language route: " + route);
+                    }
+                }
+            }
+            parsed.add(builder.build());
+        }
+        return parsed;
+    }
+
+    private static int number(String route, String[] keyValue) {
+        try {
+            return Integer.parseInt(keyValue[1].trim());
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + keyValue[0] + " in language route: " + route, e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException unless names are unique and exactly the last route takes every language
+     */
+    public static void validate(List<LanguageRoute> routes) {
+        if (routes.isEmpty() || !routes.get(routes.size() - 1).getLanguagePrefixes().isEmpty()) {
+            throw new IllegalArgumentException("The last language route must take every language");
+        }
+        var names = new ArrayList<String>();
+        for (int i = 0; i < routes.size(); i++) {
+            var route = routes.get(i);
+            if (i < routes.size() - 1 && route.getLanguagePrefixes().isEmpty()) {
+                throw new IllegalArgumentException("Only the last language route can take every language, not " + route.getName());
+            }
+            if (!route.getName().matches("[A-Za-z0-9_-]+") || names.contains(route.getName())) {
+                throw new IllegalArgumentException("Language route names must be unique and valid in topic names: " + route.getName());
+            }
+            if (route.getPartitions() < 0 || route.getMaxInFlight() < 0 || route.getMaxConcurrency() < 0) {
+                throw new IllegalArgumentException("Negative setting in language route " + route.getName());
+            }
+            names.add(route.getName());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import lombok.Builder;
+import lombok.Value;
+import org.apache.kafka.common.record.CompressionType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Threading, buffering and batching settings of the application, tuned by a {@link Preset} and optionally
+ * overridden from a properties file and environment variables.
+ * <p>
+ * Keys are the names of the fields below, e.g. {@code producer.linger.ms}, and {@code profile} selects the preset.
+ * The environment variable of a key is {@code VOICE_} followed by the key in upper case with dots replaced by
+ * underscores, e.g. {@code VOICE_PRODUCER_LINGER_MS}. Environment variables win over the file, which wins over
+ * the preset.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PerformanceProfile {
+
+    public static final String PROFILE_KEY = "profile";
+    public static final String ENV_PREFIX = "VOICE_";
+
+    public enum Preset {
+        /**
+         * One stream thread, no record cache and the Kafka Streams client defaults, including its
+         * {@code linger.ms} of 100 ms: what the application always ran with.
+         */
+        DEFAULT,
+        /**
+         * Larger, compressed producer batches and bigger fetches, at the cost of waiting for batches to fill.
+         */
+        THROUGHPUT,
+        /**
+         * Sends right away and polls fewer records, so a slow STT call holds back less of the poll.
+         */
+        LATENCY
+    }
+
+    @Builder.Default
+    Preset preset = Preset.DEFAULT;
+
+    /**
+     * {@code num.stream.threads}: stream threads per instance, at most one per input partition does useful work.
+     */
+    @Builder.Default
+    int numStreamThreads = 1;
+
+    /**
+     * {@code cache.max.bytes.buffering}: record cache of the state stores, {@code 0} forwards every update.
+     */
+    @Builder.Default
+    long cacheMaxBytesBuffering = 0;
+
+    /**
+     * {@code producer.linger.ms}: how long the producer waits for a batch to fill. {@code null} keeps the
+     * default Kafka Streams gives its producers.
+     */
+    @Builder.Default
+    Integer producerLingerMs = null;
+
+    /**
+     * {@code producer.batch.size}: upper bound of a producer batch in bytes. Audio records are tens of KB, so the
+     * default of 16 KB holds a single record.
+     */
+    @Builder.Default
+    int producerBatchSize = 16_384;
+
+    /**
+     * {@code producer.compression.type}: one of {@code none}, {@code gzip}, {@code snappy}, {@code lz4} and
+     * {@code zstd}.
+     */
+    @Builder.Default
+    String producerCompressionType = "none";
+
+    /**
+     * {@code consumer.fetch.max.bytes}: upper bound of the data returned by a fetch.
+     */
+    @Builder.Default
+    int consumerFetchMaxBytes = 52_428_800;
+
+    /**
+     * {@code consumer.max.poll.records}: records returned by a poll, each of them goes through STT before the next poll.
+     */
+    @Builder.Default
+    int consumerMaxPollRecords = 1_000;
+
+    public static PerformanceProfile defaults() {
+        return preset(Preset.DEFAULT);
+    }
+
+    public static PerformanceProfile preset(Preset preset) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        switch (preset) {
+            case THROUGHPUT:
+                return PerformanceProfile.builder()
+                        .preset(preset)
+                        .numStreamThreads(processors)
+                        .cacheMaxBytesBuffering(10 * 1024 * 1024)
+                        .producerLingerMs(50)
+                        .producerBatchSize(512 * 1024)
+                        .producerCompressionType("zstd")
+                        .consumerFetchMaxBytes(100 * 1024 * 1024)
+                        .consumerMaxPollRecords(500)
+                        .build();
+            case LATENCY:
+                return PerformanceProfile.builder()
+                        .preset(preset)
+                        .numStreamThreads(processors)
+                        .producerLingerMs(0)
+                        .producerCompressionType("lz4")
+                        .consumerFetchMaxBytes(8 * 1024 * 1024)
+                        .consumerMaxPollRecords(50)
+                        .build();
+            default:
+                return PerformanceProfile.builder().build();
+        }
+    }
+
+    /**
+     * Loads the profile from the file named by the {@code performance.profile.file} system property or the
+     * {@code VOICE_PROFILE_FILE} environment variable, if any, and the environment.
+     */
+    public static PerformanceProfile load() {
+        String file = System.getProperty("performance.profile.file", System.getenv(ENV_PREFIX + "PROFILE_FILE"));
+        Properties properties = new Properties();
+        if (file != null) {
+            try (InputStream input = Files.newInputStream(Path.of(file))) {
+                properties.load(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the performance profile " + file, e);
+            }
+        }
+        return load(properties, System.getenv());
+    }
+
+    public static PerformanceProfile load(Properties properties, Map<String, String> env) {
+        Function<String, String> lookup = key -> env.getOrDefault(ENV_PREFIX + key.toUpperCase(Locale.ROOT).replace('.', '_'), properties.getProperty(key));
+
+        String presetName = lookup.apply(PROFILE_KEY);
+        var builder = (presetName == null ? defaults() : preset(Preset.valueOf(presetName.trim().toUpperCase(Locale.ROOT)))).toBuilder();
+        override(lookup, "num.stream.threads", Integer::valueOf, builder::numStreamThreads);
+        override(lookup, "cache.max.bytes.buffering", Long::valueOf, builder::cacheMaxBytesBuffering);
+        override(lookup, "producer.linger.ms", Integer::valueOf, builder::producerLingerMs);
+        override(lookup, "producer.batch.size", Integer::valueOf, builder::producerBatchSize);
+        override(lookup, "producer.compression.type", text -> text.toLowerCase(Locale.ROOT), builder::producerCompressionType);
+        override(lookup, "consumer.fetch.max.bytes", Integer::valueOf, builder::consumerFetchMaxBytes);
+        override(lookup, "consumer.max.poll.records", Integer::valueOf, builder::consumerMaxPollRecords);
+
+        var profile = builder.build();
+        profile.validate();
+        return profile;
+    }
+
+    private static <T> void override(Function<String, String> lookup, String key, Function<String, T> parser, Consumer<T> setter) {
+        String text = lookup.apply(key);
+        if (text == null) {
+            return;
+        }
+        try {
+            setter.accept(parser.apply(text.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + text, e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public void validate() {
+        require(numStreamThreads >= 1, "num.stream.threads must be at least 1 but was " + numStreamThreads);
+        require(cacheMaxBytesBuffering >= 0, "cache.max.bytes.buffering must not be negative but was " + cacheMaxBytesBuffering);
+        require(producerLingerMs == null || producerLingerMs >= 0, "producer.linger.ms must not be negative but was " + producerLingerMs);
+        require(producerBatchSize >= 0, "producer.batch.size must not be negative but was " + producerBatchSize);
+        CompressionType.forName(producerCompressionType); // throws IllegalArgumentException for unknown codecs
+        require(consumerFetchMaxBytes >= 0, "consumer.fetch.max.bytes must not be negative but was " + consumerFetchMaxBytes);
+        require(consumerMaxPollRecords >= 1, "consumer.max.poll.records must be at least 1 but was " + consumerMaxPollRecords);
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * How the interactive and the bulk commands share a stream task, and how fast a single device may send commands.
+ * <p>
+ * Interactive commands are sent to the STT stage as they arrive while their device has tokens left. Bulk commands,
+ * and the interactive ones of a device over its rate, wait in a state store, and every scheduling interval the task
+ * releases up to {@code recordsPerInterval} records: the capacity the interactive lane didn't use, but never less
+ * than the weighted share of the bulk lane.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PriorityConfiguration {
+
+    /**
+     * How often waiting records are released, in wall-clock time.
+     */
+    @Builder.Default
+    Duration schedulingInterval = Duration.ofMillis(50);
+
+    /**
+     * Records a task sends to the STT stage per scheduling interval across both lanes.
+     */
+    @Builder.Default
+    int recordsPerInterval = 50;
+
+    @Builder.Default
+    int interactiveWeight = 4;
+
+    @Builder.Default
+    int bulkWeight = 1;
+
+    /**
+     * Commands per second a device may send, on average.
+     */
+    @Builder.Default
+    double deviceRate = 2;
+
+    /**
+     * Commands a device may send at once after it was quiet.
+     */
+    @Builder.Default
+    int deviceBurst = 10;
+
+    public static PriorityConfiguration defaults() {
+        return PriorityConfiguration.builder().build();
+    }
+
+    /**
+     * Records of the bulk lane released per interval even when the interactive lane is busy.
+     */
+    public int bulkShare() {
+        return Math.max(1, recordsPerInterval * bulkWeight / (interactiveWeight + bulkWeight));
+    }
+
+    /**
+     * @throws IllegalArgumentException if a setting is out of its range
+     */
+    public PriorityConfiguration validate() {
+        if (schedulingInterval.isNegative() || schedulingInterval.isZero()) {
+            throw new IllegalArgumentException("schedulingInterval must be positive");
+        }
+        if (recordsPerInterval < 1 || interactiveWeight < 1 || bulkWeight < 1) {
+            throw new IllegalArgumentException("recordsPerInterval and the lane weights must be at least 1");
+        }
+        if (deviceRate <= 0 || deviceBurst < 1) {
+            throw new IllegalArgumentException("deviceRate must be positive and deviceBurst at least 1");
+        }
+        return this;
+    }
+}
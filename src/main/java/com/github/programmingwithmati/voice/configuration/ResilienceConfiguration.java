@@ -0,0 +1,96 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * How calls to a blocking backend are bounded when it slows down or fails. Commands whose call is rejected or
+ * times out are sent to a retry topic instead of holding the stream thread.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ResilienceConfiguration {
+
+    /**
+     * Time after which a call is interrupted and its command sent to the retry topic.
+     */
+    @Builder.Default
+    Duration callTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Number of most recent calls the failure rate is computed over.
+     */
+    @Builder.Default
+    int slidingWindowSize = 20;
+
+    /**
+     * Calls needed in the window before the failure rate can open the circuit.
+     */
+    @Builder.Default
+    int minimumCalls = 10;
+
+    /**
+     * Fraction of failed or timed out calls in the window that opens the circuit.
+     */
+    @Builder.Default
+    double failureRateThreshold = 0.5;
+
+    /**
+     * How long an open circuit rejects every call before letting a trial call through.
+     */
+    @Builder.Default
+    Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * Calls allowed to run at a time when the backend is healthy; the limit grows from here by one call per
+     * window of fast calls.
+     */
+    @Builder.Default
+    int initialConcurrency = 8;
+
+    @Builder.Default
+    int minConcurrency = 1;
+
+    @Builder.Default
+    int maxConcurrency = 64;
+
+    /**
+     * Calls slower than this shrink the concurrency limit like a timeout does.
+     */
+    @Builder.Default
+    Duration latencyThreshold = Duration.ofMillis(500);
+
+    /**
+     * Factor the concurrency limit is multiplied by after a slow or timed out call.
+     */
+    @Builder.Default
+    double backoffRatio = 0.9;
+
+    public static ResilienceConfiguration defaults() {
+        return ResilienceConfiguration.builder().build();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a setting is out of its range
+     */
+    public ResilienceConfiguration validate() {
+        if (callTimeout.isNegative() || callTimeout.isZero() || openDuration.isNegative() || latencyThreshold.isNegative()) {
+            throw new IllegalArgumentException("Resilience timeouts must be positive");
+        }
+        if (slidingWindowSize < 1 || minimumCalls < 1 || minimumCalls > slidingWindowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and slidingWindowSize (" + slidingWindowSize + ") but was " + minimumCalls);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1] but was " + failureRateThreshold);
+        }
+        if (minConcurrency < 1 || initialConcurrency < minConcurrency || maxConcurrency < initialConcurrency) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1) but was " + backoffRatio);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The retry tiers a failed command goes through before it's sent to the dead letter topic. Each tier is a topic
+ * named after its delay, e.g. {@code voice-commands-retry-5s}, so records waiting for different delays don't
+ * queue behind each other.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+    /**
+     * Delay of each tier, in the order a command goes through them.
+     */
+    @Builder.Default
+    List<Duration> delays = List.of(Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofMinutes(10));
+
+    /**
+     * How often the commands waiting in a retry store are checked for being due.
+     */
+    @Builder.Default
+    Duration pollInterval = Duration.ofSeconds(1);
+
+    public static RetryPolicy defaults() {
+        return RetryPolicy.builder().build();
+    }
+
+    public int getMaxAttempts() {
+        return delays.size();
+    }
+
+    /**
+     * @param attempt 1 for the first retry
+     */
+    public Duration delay(int attempt) {
+        return delays.get(attempt - 1);
+    }
+
+    /**
+     * @param attempt 1 for the first retry
+     */
+    public String topic(String prefix, int attempt) {
+        return prefix + "-" + suffix(delay(attempt));
+    }
+
+    public List<String> topics(String prefix) {
+        var topics = new ArrayList<String>();
+        for (int attempt = 1; attempt <= getMaxAttempts(); attempt++) {
+            topics.add(topic(prefix, attempt));
+        }
+        return topics;
+    }
+
+    private static String suffix(Duration delay) {
+        long millis = delay.toMillis();
+        if (millis % 3_600_000 == 0) {
+            return millis / 3_600_000 + "h";
+        }
+        if (millis % 60_000 == 0) {
+            return millis / 60_000 + "m";
+        }
+        if (millis % 1_000 == 0) {
+            return millis / 1_000 + "s";
+        }
+        return millis + "ms";
+    }
+
+    /**
+     * @throws IllegalArgumentException unless there is at least one tier and every delay is positive and unique
+     */
+    public RetryPolicy validate() {
+        if (delays.isEmpty() || delays.stream().anyMatch(delay -> delay.isNegative() || delay.isZero())) {
+            throw new IllegalArgumentException("Retry delays must be positive: " + delays);
+        }
+        if (topics("retry").stream().distinct().count() != delays.size()) {
+            throw new IllegalArgumentException("Retry delays must be unique: " + delays);
+        }
+        if (pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("pollInterval must be positive but was " + pollInterval);
+        }
+        return this;
+    }
+}
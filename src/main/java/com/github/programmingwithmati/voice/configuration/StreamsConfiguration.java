@@ -1,6 +1,10 @@
 package com.github.programmingwithmati.voice.configuration;
 
+import com.github.programmingwithmati.voice.VoiceParserTopology;
+import com.github.programmingwithmati.voice.errors.DeadLetterDeserializationExceptionHandler;
+import com.github.programmingwithmati.voice.errors.OversizedRecordProductionExceptionHandler;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.StreamsConfig;
 
@@ -8,6 +12,39 @@ import java.util.Properties;
 
 public class StreamsConfiguration {
 
+    private final boolean exactlyOnce;
+    private final PerformanceProfile performanceProfile;
+    private final String applicationServer;
+
+    public StreamsConfiguration() {
+        this(false);
+    }
+
+    /**
+     * @param exactlyOnce process with exactly-once semantics, so results, state and offsets are committed atomically
+     */
+    public StreamsConfiguration(boolean exactlyOnce) {
+        this(exactlyOnce, PerformanceProfile.defaults());
+    }
+
+    /**
+     * @param performanceProfile threads, caching and client batching the application runs with
+     */
+    public StreamsConfiguration(boolean exactlyOnce, PerformanceProfile performanceProfile) {
+        this(exactlyOnce, performanceProfile, null);
+    }
+
+    /**
+     * @param applicationServer {@code host:port} other instances reach this one's interactive queries on, or
+     *                          {@code null} when they are not served
+     */
+    public StreamsConfiguration(boolean exactlyOnce, PerformanceProfile performanceProfile, String applicationServer) {
+        performanceProfile.validate();
+        this.exactlyOnce = exactlyOnce;
+        this.performanceProfile = performanceProfile;
+        this.applicationServer = applicationServer;
+    }
+
     public Properties streamsConfiguration() {
         Properties props = new Properties();
         props.put(StreamsConfig.APPLICATION_ID_CONFIG, "voice-command-parser-app");
@@ -15,7 +52,24 @@ public class StreamsConfiguration {
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass());
-        props.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, "0");
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, performanceProfile.getNumStreamThreads());
+        props.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, performanceProfile.getCacheMaxBytesBuffering());
+        if (performanceProfile.getProducerLingerMs() != null) {
+            props.put(StreamsConfig.producerPrefix(ProducerConfig.LINGER_MS_CONFIG), performanceProfile.getProducerLingerMs());
+        }
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.BATCH_SIZE_CONFIG), performanceProfile.getProducerBatchSize());
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.COMPRESSION_TYPE_CONFIG), performanceProfile.getProducerCompressionType());
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.FETCH_MAX_BYTES_CONFIG), performanceProfile.getConsumerFetchMaxBytes());
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.MAX_POLL_RECORDS_CONFIG), performanceProfile.getConsumerMaxPollRecords());
+        props.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG, DeadLetterDeserializationExceptionHandler.class);
+        props.put(DeadLetterDeserializationExceptionHandler.DEAD_LETTER_TOPIC_CONFIG, VoiceParserTopology.VOICE_COMMANDS_DLQ_TOPIC);
+        props.put(StreamsConfig.DEFAULT_PRODUCTION_EXCEPTION_HANDLER_CLASS_CONFIG, OversizedRecordProductionExceptionHandler.class);
+        if (applicationServer != null) {
+            props.put(StreamsConfig.APPLICATION_SERVER_CONFIG, applicationServer);
+        }
+        if (exactlyOnce) {
+            props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_BETA);
+        }
         return props;
     }
 }
@@ -0,0 +1,276 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import com.github.programmingwithmati.voice.blob.BlobStore;
+import com.github.programmingwithmati.voice.intent.IntentGrammar;
+import com.github.programmingwithmati.voice.phrase.PhraseTable;
+import com.github.programmingwithmati.voice.screening.AudioScreener;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.List;
+
+@Value
+@Builder(toBuilder = true)
+public class TopologyConfiguration {
+
+    /**
+     * Format of the records written to the output topics. Input records are accepted in any format.
+     */
+    @Builder.Default
+    SerdeFormat serdeFormat = SerdeFormat.JSON;
+
+    /**
+     * Where the audio of commands checked in by the producer is read from. Without it, checked in commands reach
+     * the STT client with a reference and no audio.
+     */
+    @Builder.Default
+    BlobStore blobStore = null;
+
+    /**
+     * Skip commands whose id already produced a result, e.g. when records are replayed after a crash.
+     */
+    @Builder.Default
+    boolean deduplicationEnabled = false;
+
+    /**
+     * How long, in stream time, processed ids are remembered.
+     */
+    @Builder.Default
+    Duration deduplicationRetention = Duration.ofHours(1);
+
+    /**
+     * Checks run on the audio before the STT stage, whose rejects go straight to the unrecognized commands topic.
+     * {@code null} sends every command to the STT stage.
+     */
+    @Builder.Default
+    AudioScreener audioScreener = null;
+
+    /**
+     * Also read the bulk commands topic, and schedule its commands behind the interactive ones with a rate limit
+     * per device. {@code null} sends every command to the STT stage in the order it was read.
+     */
+    @Builder.Default
+    PriorityConfiguration priorityLanes = null;
+
+    /**
+     * Also read commands streamed as audio chunks from the chunks topic, transcribing them while they arrive. STT
+     * clients without a streaming API transcribe them when their last chunk arrived.
+     */
+    @Builder.Default
+    boolean streamingSttEnabled = false;
+
+    /**
+     * How long, in wall-clock time, a streamed command waits for its next chunk before it is dropped.
+     */
+    @Builder.Default
+    Duration chunkSessionTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How the Speech To Text stage calls the {@link com.github.programmingwithmati.voice.service.SttClient}.
+     */
+    @Builder.Default
+    SttMode sttMode = SttMode.SYNC;
+
+    /**
+     * Maximum number of requests in flight per partition when a stage runs in an {@code ASYNC} mode.
+     */
+    @Builder.Default
+    int maxInFlight = 16;
+
+    /**
+     * How often completed asynchronous requests are emitted when no new records arrive.
+     */
+    @Builder.Default
+    Duration asyncDrainInterval = Duration.ofMillis(50);
+
+    /**
+     * Maximum number of blocking STT calls running at a time across all partitions of the instance, when the
+     * client has no asynchronous API of its own and is called from the {@code ASYNC} mode.
+     */
+    @Builder.Default
+    int sttMaxConcurrency = 256;
+
+    /**
+     * Time after which a blocking STT call of the {@code ASYNC} mode is interrupted and its command sent to the STT
+     * retry topics. Counted from the moment the call gets one of the {@code sttMaxConcurrency} permits.
+     */
+    @Builder.Default
+    Duration sttTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Deadline, circuit breaker and adaptive concurrency limit of the STT calls, whose commands are sent to the
+     * STT retry topics when the call is rejected or fails. In the {@code SYNC} mode a call finding every permit
+     * taken is rejected; in the {@code ASYNC} mode it waits for one, and the limit and call timeout take the place
+     * of {@code sttMaxConcurrency} and {@code sttTimeout}. Not supported in the {@code BATCH} mode; {@code null}
+     * calls the client unguarded.
+     */
+    @Builder.Default
+    ResilienceConfiguration sttResilience = null;
+
+    /**
+     * Send the uncertain transcriptions of the STT client to the escalation client given to the topology, which
+     * is guarded by its own resilience backend when {@code sttResilience} is set. Commands streamed in chunks are
+     * only escalated when the STT client has no streaming API. {@code null} trusts the STT client for every command.
+     */
+    @Builder.Default
+    CascadeConfiguration sttCascade = null;
+
+    /**
+     * How the translation stage calls the {@link com.github.programmingwithmati.voice.service.TranslateClient}.
+     */
+    @Builder.Default
+    TranslateMode translateMode = TranslateMode.SYNC;
+
+    /**
+     * Maximum number of blocking translate calls running at a time across all partitions of the instance, when
+     * the client has no asynchronous API of its own and is called from the {@code ASYNC} mode.
+     */
+    @Builder.Default
+    int translateMaxConcurrency = 256;
+
+    /**
+     * Time after which a blocking translate call of the {@code ASYNC} mode is interrupted and its command sent to the
+     * translate retry topics. Counted from the moment the call gets one of the {@code translateMaxConcurrency} permits.
+     */
+    @Builder.Default
+    Duration translateTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Deadline, circuit breaker and adaptive concurrency limit of the translate calls of each route, whose
+     * commands are sent to the translate retry topics when the call is rejected or fails. Applies to the
+     * {@code SYNC} and {@code ASYNC} modes like {@code sttResilience}, taking the place of the route's
+     * {@code maxConcurrency}, or {@code translateMaxConcurrency}, and of {@code translateTimeout} in the latter;
+     * {@code null} calls the client unguarded.
+     */
+    @Builder.Default
+    ResilienceConfiguration translateResilience = null;
+
+    /**
+     * Send the commands whose STT or translate call throws to the retry topics, instead of stopping the stream
+     * thread. Applies to the stages running in a {@code SYNC} mode. Commands rejected by a resilience
+     * configuration, and those whose call failed in an {@code ASYNC} mode, are always retried.
+     */
+    @Builder.Default
+    boolean retryOnFailure = false;
+
+    /**
+     * Retry tiers failed commands go through before they're sent to the dead letter topic of their stage.
+     */
+    @Builder.Default
+    RetryPolicy retryPolicy = RetryPolicy.defaults();
+
+    /**
+     * How recognized commands are routed by language, and which routes are translated.
+     */
+    @Builder.Default
+    List<LanguageRoute> languageRoutes = LanguageRoute.defaults();
+
+    /**
+     * Maximum number of records sent in one batch call when running in a {@code BATCH} mode.
+     */
+    @Builder.Default
+    int maxBatchSize = 32;
+
+    /**
+     * Maximum time a record waits for its batch to fill up when running in a {@code BATCH} mode.
+     */
+    @Builder.Default
+    Duration batchLinger = Duration.ofMillis(100);
+
+    /**
+     * Answer STT requests for audio that was already transcribed from a cache. Requires {@link SttMode#SYNC}.
+     */
+    @Builder.Default
+    boolean sttCacheEnabled = false;
+
+    /**
+     * Answer translations of already translated texts from a cache. Requires {@link TranslateMode#SYNC}.
+     */
+    @Builder.Default
+    boolean translateCacheEnabled = false;
+
+    /**
+     * How long, in stream time, a cached result stays valid.
+     */
+    @Builder.Default
+    Duration cacheTtl = Duration.ofHours(24);
+
+    /**
+     * Maximum number of entries kept per partition in the persistent cache stores.
+     */
+    @Builder.Default
+    long cacheMaxEntries = 100_000;
+
+    /**
+     * Number of entries per partition kept on the heap in front of the persistent cache stores.
+     */
+    @Builder.Default
+    int cacheHeapEntries = 1_000;
+
+    /**
+     * Known translations of frequent phrases, answered locally before calling the translate client. Phrases the
+     * client translates are added to it through the phrase table topic. {@code null} translates every command
+     * with the client.
+     */
+    @Builder.Default
+    PhraseTable phraseTable = null;
+
+    /**
+     * Times a phrase must be translated by the client before it is added to the phrase table, so phrases made
+     * unique by names and numbers aren't learned.
+     */
+    @Builder.Default
+    int phraseLearningThreshold = 3;
+
+    /**
+     * Most phrases kept in the learned phrase table, which every instance holds on its heap. Phrases learned once
+     * it is full are not added.
+     */
+    @Builder.Default
+    int maxLearnedPhrases = 100_000;
+
+    /**
+     * Also match the recognized commands against the intents and slots of the grammar, and send the matches to the
+     * intents topic as JSON, whatever the serde format. Commands no pattern matches are only sent to the recognized
+     * commands topic. {@code null} extracts no intents.
+     */
+    @Builder.Default
+    IntentGrammar intentGrammar = null;
+
+    /**
+     * Keep the results in state stores that can be queried by command id and by device, see
+     * {@link com.github.programmingwithmati.voice.query.TranscriptionQueryServer}.
+     */
+    @Builder.Default
+    boolean queryStoresEnabled = false;
+
+    /**
+     * How long, in stream time, results stay queryable.
+     */
+    @Builder.Default
+    Duration queryRetention = Duration.ofHours(1);
+
+    public static TopologyConfiguration defaults() {
+        return TopologyConfiguration.builder().build();
+    }
+
+    public enum SttMode {
+        /** Call the STT client inline in the stream thread. */
+        SYNC,
+        /** Keep up to {@code maxInFlight} STT calls running per partition. */
+        ASYNC,
+        /** Send the audio in batches of up to {@code maxBatchSize} commands. */
+        BATCH
+    }
+
+    public enum TranslateMode {
+        /** Call the translate client inline in the stream thread. */
+        SYNC,
+        /** Keep up to {@code maxInFlight} translate calls running per partition. */
+        ASYNC,
+        /** Send the commands in batches of up to {@code maxBatchSize} commands. */
+        BATCH
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.programmingwithmati.voice.consumer;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads parsed commands on one thread and handles them on a pool of workers, in parallel across partitions and in
+ * order within each partition.
+ * <p>
+ * The records a poll returns for a partition go to the {@link ParsedCommandHandler} as one batch, chained after the
+ * previous batch of the same partition. A partition with {@code maxPendingBatches} batches waiting is paused until
+ * its worker catches up, so a slow partition doesn't pile up records in memory. Offsets are only committed once
+ * their batch was handled: periodically while running, and synchronously when partitions are revoked and on
+ * shutdown. Auto commit must be disabled on the consumer.
+ * <p>
+ * {@link #close()} wakes up the poll, waits for the batches already handed off and commits them before the
+ * consumer is closed.
+ */
+@Slf4j
+public class ParallelCommandConsumer implements Runnable, AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+    private final Consumer<String, ParsedVoiceCommand> consumer;
+    private final List<String> topics;
+    private final ParsedCommandHandler handler;
+    private final ExecutorService workers;
+    private final int maxPendingBatches;
+    private final long commitIntervalMs;
+    private final Map<TopicPartition, Lane> lanes = new HashMap<>(); // only used by the poll thread
+    private final Set<TopicPartition> paused = new HashSet<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+    private long lastCommitMs;
+
+    public ParallelCommandConsumer(Consumer<String, ParsedVoiceCommand> consumer, List<String> topics, ParsedCommandHandler handler, int workerThreads) {
+        this(consumer, topics, handler, workerThreads, 4, Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param maxPendingBatches batches of a partition waiting for a worker before the partition is paused
+     * @param commitInterval    how often the offsets of handled batches are committed while running
+     */
+    public ParallelCommandConsumer(Consumer<String, ParsedVoiceCommand> consumer, List<String> topics, ParsedCommandHandler handler,
+                                   int workerThreads, int maxPendingBatches, Duration commitInterval) {
+        if (workerThreads < 1 || maxPendingBatches < 1) {
+            throw new IllegalArgumentException("workerThreads and maxPendingBatches must be at least 1");
+        }
+        this.consumer = consumer;
+        this.topics = topics;
+        this.handler = handler;
+        this.maxPendingBatches = maxPendingBatches;
+        this.commitIntervalMs = commitInterval.toMillis();
+        var counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> new Thread(runnable, "parsed-command-worker-" + counter.incrementAndGet()));
+    }
+
+    @Override
+    public void run() {
+        try {
+            consumer.subscribe(topics, new RebalanceListener());
+            while (running) {
+                var records = consumer.poll(POLL_TIMEOUT);
+                for (TopicPartition partition : records.partitions()) {
+                    lanes.computeIfAbsent(partition, Lane::new).submit(records.records(partition));
+                }
+                if (failure != null) {
+                    throw new KafkaException("A parsed command handler failed, stopping the consumer", failure);
+                }
+                throttle();
+                if (System.currentTimeMillis() - lastCommitMs >= commitIntervalMs) {
+                    commitAsync();
+                }
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                throw e;
+            }
+        } finally {
+            try {
+                drainAndCommit(lanes.keySet());
+            } finally {
+                workers.shutdown();
+                consumer.close();
+                stopped.countDown();
+            }
+        }
+    }
+
+    /**
+     * Pauses the partitions whose worker fell behind and resumes those that caught up.
+     */
+    private void throttle() {
+        var toPause = new HashSet<TopicPartition>();
+        var toResume = new HashSet<TopicPartition>();
+        for (Lane lane : lanes.values()) {
+            boolean behind = lane.pending.get() >= maxPendingBatches;
+            if (behind && !paused.contains(lane.partition)) {
+                toPause.add(lane.partition);
+            } else if (!behind && paused.contains(lane.partition)) {
+                toResume.add(lane.partition);
+            }
+        }
+        if (!toPause.isEmpty()) {
+            consumer.pause(toPause);
+            paused.addAll(toPause);
+        }
+        if (!toResume.isEmpty()) {
+            consumer.resume(toResume);
+            paused.removeAll(toResume);
+        }
+    }
+
+    private void commitAsync() {
+        var offsets = completedOffsets(lanes.keySet());
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, error) -> {
+                if (error != null) {
+                    log.warn("Failed to commit offsets {}, a later commit will cover them", committed, error);
+                }
+            });
+        }
+        lastCommitMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Waits for the batches handed off for the partitions and commits what they handled.
+     */
+    private void drainAndCommit(Collection<TopicPartition> partitions) {
+        drain(partitions);
+        var offsets = completedOffsets(partitions);
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+    }
+
+    /**
+     * Waits for the batches handed off for the partitions, whether they succeed or fail.
+     */
+    private void drain(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            lanes.get(partition).tail.handle((result, error) -> null).join();
+        }
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> completedOffsets(Collection<TopicPartition> partitions) {
+        var offsets = new HashMap<TopicPartition, OffsetAndMetadata>();
+        for (TopicPartition partition : partitions) {
+            var lane = lanes.get(partition);
+            long completed = lane.completedOffset;
+            if (completed > lane.committedOffset) {
+                offsets.put(partition, new OffsetAndMetadata(completed));
+                lane.committedOffset = completed;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Stops the poll loop and waits until the handed off batches were handled and committed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        consumer.wakeup();
+        try {
+            stopped.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The batches of one partition, chained so they run one after the other.
+     */
+    private final class Lane {
+        private final TopicPartition partition;
+        private final AtomicInteger pending = new AtomicInteger();
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private volatile long completedOffset = -1;
+        private long committedOffset = -1;
+
+        private Lane(TopicPartition partition) {
+            this.partition = partition;
+        }
+
+        private void submit(List<ConsumerRecord<String, ParsedVoiceCommand>> batch) {
+            long nextOffset = batch.get(batch.size() - 1).offset() + 1;
+            pending.incrementAndGet();
+            // a failed batch fails the rest of the chain, so no later batch of the partition is handled or committed
+            tail = tail.thenRunAsync(() -> {
+                try {
+                    handler.handle(partition, batch);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+                completedOffset = nextOffset;
+            }, workers);
+            tail.whenComplete((result, error) -> {
+                pending.decrementAndGet();
+                if (error != null && failure == null) {
+                    failure = error instanceof CompletionException ? error.getCause() : error;
+                }
+            });
+        }
+    }
+
+    private final class RebalanceListener implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            var owned = new HashSet<>(partitions);
+            owned.retainAll(lanes.keySet());
+            drainAndCommit(owned);
+            owned.forEach(lanes::remove);
+            paused.removeAll(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            // another consumer owns them already, their offsets must not be committed, but their batches still
+            // run on the workers and must finish before the partitions can be assigned to this consumer again
+            var owned = new HashSet<>(partitions);
+            owned.retainAll(lanes.keySet());
+            drain(owned);
+            owned.forEach(lanes::remove);
+            paused.removeAll(partitions);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.programmingwithmati.voice.consumer;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.List;
+
+/**
+ * Where a {@link ParallelCommandConsumer} hands the parsed commands it reads.
+ */
+@FunctionalInterface
+public interface ParsedCommandHandler {
+
+    /**
+     * Handles the records of one partition from one poll, in offset order. The batches of a partition are handled
+     * one at a time and in order, while batches of different partitions run in parallel. Offsets are committed
+     * once this returns, so throwing stops the consumer without committing the batch.
+     */
+    void handle(TopicPartition partition, List<ConsumerRecord<String, ParsedVoiceCommand>> records) throws Exception;
+}
@@ -0,0 +1,30 @@
+package com.github.programmingwithmati.voice.consumer;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints every command with its topic, building the text of a batch first so it takes a single write.
+ */
+public class PrintingCommandHandler implements ParsedCommandHandler {
+
+    private final PrintStream out;
+
+    public PrintingCommandHandler(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void handle(TopicPartition partition, List<ConsumerRecord<String, ParsedVoiceCommand>> records) {
+        var text = new StringBuilder(records.size() * 160);
+        for (var record : records) {
+            text.append("Topic: ").append(record.topic()).append('\n')
+                    .append("Result: ").append(record.value()).append("\n\n");
+        }
+        out.print(text);
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.programmingwithmati.voice.errors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.DeserializationExceptionHandler;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Sends the records that can't be deserialized to a dead letter topic, as they were read and with the
+ * {@link FailureHeaders}, and carries on with the next record instead of stopping the stream thread.
+ * <p>
+ * Kafka Streams creates a handler per task, so the handlers of an application share one producer, created when the
+ * first record fails and closed by {@link #closeProducers()} on shutdown. It is not the producer of the task: the
+ * dead letters are written outside the task's transaction under exactly-once, and a task that fails after sending
+ * one may send it again when the record is reprocessed.
+ */
+@Slf4j
+public class DeadLetterDeserializationExceptionHandler implements DeserializationExceptionHandler {
+
+    /**
+     * Topic the records are sent to.
+     */
+    public static final String DEAD_LETTER_TOPIC_CONFIG = "deserialization.dead.letter.topic";
+
+    private static final Map<String, Producer<byte[], byte[]>> PRODUCERS = new HashMap<>();
+
+    private String deadLetterTopic;
+    private String applicationId;
+    private Map<String, Object> producerConfigs;
+    private Producer<byte[], byte[]> producer;
+
+    public DeadLetterDeserializationExceptionHandler() {
+    }
+
+    DeadLetterDeserializationExceptionHandler(Producer<byte[], byte[]> producer) {
+        this.producer = producer;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        deadLetterTopic = (String) configs.get(DEAD_LETTER_TOPIC_CONFIG);
+        if (deadLetterTopic == null) {
+            throw new IllegalArgumentException(DEAD_LETTER_TOPIC_CONFIG + " is required by " + getClass().getSimpleName());
+        }
+        if (producer == null) {
+            var streamsConfig = new StreamsConfig(configs);
+            applicationId = streamsConfig.getString(StreamsConfig.APPLICATION_ID_CONFIG);
+            producerConfigs = streamsConfig.getProducerConfigs(applicationId + "-dead-letter-producer");
+            producerConfigs.remove(ProducerConfig.TRANSACTIONAL_ID_CONFIG);
+        }
+    }
+
+    /**
+     * Closes the producers shared by the handlers, once the applications using them are closed.
+     */
+    public static synchronized void closeProducers() {
+        PRODUCERS.values().forEach(Producer::close);
+        PRODUCERS.clear();
+    }
+
+    private static synchronized Producer<byte[], byte[]> sharedProducer(String applicationId, Map<String, Object> producerConfigs) {
+        return PRODUCERS.computeIfAbsent(applicationId, any -> new KafkaProducer<>(producerConfigs, new ByteArraySerializer(), new ByteArraySerializer()));
+    }
+
+    @Override
+    public DeserializationHandlerResponse handle(ProcessorContext context, ConsumerRecord<byte[], byte[]> record, Exception exception) {
+        var headers = new RecordHeaders(record.headers().toArray());
+        FailureHeaders.set(headers, FailureHeaders.STAGE, "deserialize");
+        FailureHeaders.set(headers, FailureHeaders.TIMESTAMP, System.currentTimeMillis());
+        FailureHeaders.set(headers, FailureHeaders.TOPIC, record.topic());
+        FailureHeaders.set(headers, FailureHeaders.PARTITION, record.partition());
+        FailureHeaders.set(headers, FailureHeaders.OFFSET, record.offset());
+        FailureHeaders.setException(headers, exception);
+        if (producer == null) {
+            producer = sharedProducer(applicationId, producerConfigs);
+        }
+        try {
+            // waits for the write, the offset of the record may be committed as soon as this returns
+            producer.send(new ProducerRecord<>(deadLetterTopic, null, record.timestamp() < 0 ? null : record.timestamp(), record.key(), record.value(), headers)).get();
+        } catch (ExecutionException e) {
+            log.error("Failed to send record {}-{}@{} to {}", record.topic(), record.partition(), record.offset(), deadLetterTopic, e.getCause());
+            return DeserializationHandlerResponse.FAIL;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DeserializationHandlerResponse.FAIL;
+        }
+        log.warn("Sent record {}-{}@{} that can't be deserialized to {}", record.topic(), record.partition(), record.offset(), deadLetterTopic, exception);
+        return DeserializationHandlerResponse.CONTINUE;
+    }
+}
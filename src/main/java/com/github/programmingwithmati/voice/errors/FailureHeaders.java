@@ -0,0 +1,77 @@
+package com.github.programmingwithmati.voice.errors;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Headers describing why a record was sent to a retry or dead letter topic. Values are UTF-8 strings, numbers
+ * included, so they can be read with any Kafka tool.
+ */
+public final class FailureHeaders {
+
+    /** Why the call failed, e.g. {@code TIMEOUT} or {@code CIRCUIT_OPEN}. */
+    public static final String REASON = "failure-reason";
+    /** Class of the exception that failed the record. */
+    public static final String EXCEPTION = "failure-exception";
+    public static final String MESSAGE = "failure-message";
+    /** Stage of the topology that failed the record, e.g. {@code stt} or {@code deserialize}. */
+    public static final String STAGE = "failure-stage";
+    /** Wall clock time of the failure, in epoch milliseconds. */
+    public static final String TIMESTAMP = "failure-timestamp";
+    /** Topic, partition and offset the failed record was read from. */
+    public static final String TOPIC = "failure-topic";
+    public static final String PARTITION = "failure-partition";
+    public static final String OFFSET = "failure-offset";
+    /** Retries made so far, {@code 1} in the first retry topic. */
+    public static final String ATTEMPT = "retry-attempt";
+    /** Wall clock time, in epoch milliseconds, before which the record must not be retried. */
+    public static final String DUE = "retry-due";
+
+    private static final String[] ALL = {REASON, EXCEPTION, MESSAGE, STAGE, TIMESTAMP, TOPIC, PARTITION, OFFSET, ATTEMPT, DUE};
+
+    private FailureHeaders() {
+    }
+
+    /**
+     * Removes every failure and retry header, once a retried record went through.
+     */
+    public static void clear(Headers headers) {
+        for (String key : ALL) {
+            headers.remove(key);
+        }
+    }
+
+    /**
+     * Replaces the header, or removes it if the value is {@code null}.
+     */
+    public static void set(Headers headers, String key, Object value) {
+        headers.remove(key);
+        if (value != null) {
+            headers.add(key, value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static String get(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    public static long getLong(Headers headers, String key, long defaultValue) {
+        String value = get(headers, key);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Sets the exception class and message headers.
+     */
+    public static void setException(Headers headers, Throwable exception) {
+        set(headers, EXCEPTION, exception.getClass().getName());
+        set(headers, MESSAGE, exception.getMessage());
+    }
+}
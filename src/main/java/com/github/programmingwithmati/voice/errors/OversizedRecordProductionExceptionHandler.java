@@ -0,0 +1,29 @@
+package com.github.programmingwithmati.voice.errors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.streams.errors.ProductionExceptionHandler;
+
+import java.util.Map;
+
+/**
+ * Skips, and logs, results too large for the broker to accept, which would fail again on every retry. Any other
+ * production error still stops the stream thread, since it can be transient and skipping would lose the result.
+ */
+@Slf4j
+public class OversizedRecordProductionExceptionHandler implements ProductionExceptionHandler {
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    @Override
+    public ProductionExceptionHandlerResponse handle(ProducerRecord<byte[], byte[]> record, Exception exception) {
+        if (exception instanceof RecordTooLargeException) {
+            log.error("Skipped a record of {} bytes too large for topic {}", record.value() == null ? 0 : record.value().length, record.topic(), exception);
+            return ProductionExceptionHandlerResponse.CONTINUE;
+        }
+        return ProductionExceptionHandlerResponse.FAIL;
+    }
+}
@@ -0,0 +1,401 @@
+package com.github.programmingwithmati.voice.intent;
+
+import lombok.Value;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Intents and their slots, compiled into a single automaton over the tokens of a command, so a command is matched
+ * against every pattern in one pass over its text, whatever the size of the grammar.
+ * <p>
+ * A pattern is a sequence of words and slots, e.g. {@code call {contact}} or {@code play {media} on {device}}.
+ * Words are matched on their tokens, the runs of letters and digits, without case, so "Call, John!" matches
+ * {@code call {contact}}. A slot captures one token or more, up to the token that continues one of the patterns
+ * it belongs to; its value is the text of the command from its first to its last token. Where a word and a slot
+ * could both continue a match, the word wins, and there is no backtracking: the first match found is the only one.
+ * <p>
+ * The grammar is loaded from a tab separated file with an {@code intent, pattern} line per pattern; empty lines
+ * and lines starting with {@code #} are skipped. An intent can have any number of patterns.
+ */
+public class IntentGrammar {
+
+    public static final String BUNDLED_INTENTS = "/intents.tsv";
+    private static final long NO_KEY = -1L;
+
+    // token ids, by the hash of the token in an open addressing table
+    private final String[] tokens;
+    private final int[] tokenHashes;
+    private final int[] tokenTable;
+    // word transitions, keyed by state and token id in an open addressing table
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    // per state
+    private final int[] slotTargets;
+    private final boolean[] slotStates;
+    private final int[] acceptedPatterns;
+    // per pattern
+    private final String[] intents;
+    private final String[][] slotNames;
+    private final int maxSlots;
+
+    private IntentGrammar(String[] tokens, int[] transitionSources, int[] transitionTokens, int[] transitionTargets,
+                          int[] slotTargets, boolean[] slotStates, int[] acceptedPatterns, String[] intents, String[][] slotNames) {
+        this.tokens = tokens;
+        this.tokenHashes = new int[tokens.length];
+        this.tokenTable = new int[tableSize(tokens.length)];
+        Arrays.fill(tokenTable, -1);
+        for (int id = 0; id < tokens.length; id++) {
+            tokenHashes[id] = hash(tokens[id], 0, tokens[id].length());
+            int index = mix(tokenHashes[id]) & (tokenTable.length - 1);
+            while (tokenTable[index] >= 0) {
+                index = (index + 1) & (tokenTable.length - 1);
+            }
+            tokenTable[index] = id;
+        }
+        this.transitionKeys = new long[tableSize(transitionSources.length)];
+        this.transitionTargets = new int[transitionKeys.length];
+        Arrays.fill(transitionKeys, NO_KEY);
+        for (int i = 0; i < transitionSources.length; i++) {
+            long key = key(transitionSources[i], transitionTokens[i]);
+            int index = mix(key) & (transitionKeys.length - 1);
+            while (transitionKeys[index] != NO_KEY) {
+                index = (index + 1) & (transitionKeys.length - 1);
+            }
+            transitionKeys[index] = key;
+            this.transitionTargets[index] = transitionTargets[i];
+        }
+        this.slotTargets = slotTargets;
+        this.slotStates = slotStates;
+        this.acceptedPatterns = acceptedPatterns;
+        this.intents = intents;
+        this.slotNames = slotNames;
+        this.maxSlots = Arrays.stream(slotNames).filter(names -> names != null).mapToInt(names -> names.length).max().orElse(0);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a pattern is malformed, or matches the same commands as a pattern of
+     *                                  another intent or with other slots
+     */
+    public static IntentGrammar compile(List<Rule> rules) {
+        var root = new Node(false);
+        var tokenIds = new HashMap<String, Integer>();
+        var intents = new String[rules.size()];
+        var slotNames = new String[rules.size()][];
+        for (int index = 0; index < rules.size(); index++) {
+            Rule rule = rules.get(index);
+            if (rule.getIntent() == null || rule.getIntent().isBlank() || rule.getPattern() == null) {
+                throw new IllegalArgumentException("Every pattern needs an intent: " + rule);
+            }
+            Node node = root;
+            var names = new ArrayList<String>();
+            boolean afterSlot = false;
+            for (String word : rule.getPattern().strip().split("\\s+")) {
+                if (word.startsWith("{")) {
+                    if (!word.endsWith("}") || word.length() < 3) {
+                        throw new IllegalArgumentException("Malformed slot " + word + " in " + rule);
+                    }
+                    if (afterSlot) {
+                        throw new IllegalArgumentException("Two slots in a row in " + rule);
+                    }
+                    String name = word.substring(1, word.length() - 1);
+                    if (names.contains(name)) {
+                        throw new IllegalArgumentException("Slot " + name + " appears twice in " + rule);
+                    }
+                    names.add(name);
+                    if (node.slot == null) {
+                        node.slot = new Node(true);
+                    }
+                    node = node.slot;
+                    afterSlot = true;
+                } else {
+                    for (String token : tokenize(word)) {
+                        int id = tokenIds.computeIfAbsent(token, any -> tokenIds.size());
+                        node = node.literals.computeIfAbsent(id, any -> new Node(false));
+                        afterSlot = false;
+                    }
+                }
+            }
+            if (node == root) {
+                throw new IllegalArgumentException("Pattern without words or slots: " + rule);
+            }
+            if (node.accepted >= 0) {
+                Rule existing = rules.get(node.accepted);
+                if (!existing.getIntent().equals(rule.getIntent()) || !Arrays.asList(slotNames[node.accepted]).equals(names)) {
+                    throw new IllegalArgumentException(rule + " matches the same commands as " + existing);
+                }
+                continue;
+            }
+            node.accepted = index;
+            intents[index] = rule.getIntent();
+            slotNames[index] = names.toArray(String[]::new);
+        }
+        return flatten(root, tokenIds, intents, slotNames);
+    }
+
+    private static IntentGrammar flatten(Node root, Map<String, Integer> tokenIds, String[] intents, String[][] slotNames) {
+        // number the states breadth first, the root is state 0
+        var states = new ArrayList<Node>();
+        var queue = new ArrayDeque<Node>();
+        queue.add(root);
+        int transitions = 0;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            node.id = states.size();
+            states.add(node);
+            transitions += node.literals.size();
+            queue.addAll(node.literals.values());
+            if (node.slot != null) {
+                queue.add(node.slot);
+            }
+        }
+        var transitionSources = new int[transitions];
+        var transitionTokens = new int[transitions];
+        var transitionTargets = new int[transitions];
+        var slotTargets = new int[states.size()];
+        var slotStates = new boolean[states.size()];
+        var acceptedPatterns = new int[states.size()];
+        int transition = 0;
+        for (Node node : states) {
+            for (var literal : node.literals.entrySet()) {
+                transitionSources[transition] = node.id;
+                transitionTokens[transition] = literal.getKey();
+                transitionTargets[transition] = literal.getValue().id;
+                transition++;
+            }
+            slotTargets[node.id] = node.slot == null ? -1 : node.slot.id;
+            slotStates[node.id] = node.slotState;
+            acceptedPatterns[node.id] = node.accepted;
+        }
+        var tokens = new String[tokenIds.size()];
+        tokenIds.forEach((token, id) -> tokens[id] = token);
+        return new IntentGrammar(tokens, transitionSources, transitionTokens, transitionTargets, slotTargets, slotStates,
+                acceptedPatterns, intents, slotNames);
+    }
+
+    public static IntentGrammar load(Path file) {
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the intent grammar " + file, e);
+        }
+    }
+
+    /**
+     * Loads the intents shipped with the application.
+     */
+    public static IntentGrammar bundled() {
+        var resource = IntentGrammar.class.getResourceAsStream(BUNDLED_INTENTS);
+        if (resource == null) {
+            throw new IllegalStateException(BUNDLED_INTENTS + " is missing from the classpath");
+        }
+        try (var reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+            return read(reader, BUNDLED_INTENTS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the intent grammar " + BUNDLED_INTENTS, e);
+        }
+    }
+
+    private static IntentGrammar read(BufferedReader reader, String source) throws IOException {
+        var rules = new ArrayList<Rule>();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            if (columns.length != 2) {
+                throw new IllegalArgumentException(source + ":" + number + " must have an intent and a pattern separated by a tab");
+            }
+            rules.add(Rule.of(columns[0].strip(), columns[1].strip()));
+        }
+        return compile(rules);
+    }
+
+    /**
+     * @return a matcher over this grammar, which can be reused for any number of commands by a single thread
+     */
+    public IntentMatcher matcher() {
+        return new IntentMatcher(this);
+    }
+
+    /**
+     * @return the tokens of the text, lower cased
+     */
+    static List<String> tokenize(String text) {
+        var tokens = new ArrayList<String>();
+        var token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (isTokenPart(codePoint)) {
+                token.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    static boolean isTokenPart(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /**
+     * Hash of the lower cased code points of {@code text[start, end)}.
+     */
+    static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; ) {
+            int codePoint = Character.codePointAt(text, i);
+            hash = 31 * hash + Character.toLowerCase(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the id of the token {@code text[start, end)} whose {@link #hash} is given, or {@code -1} when no
+     * pattern has it
+     */
+    int tokenId(CharSequence text, int start, int end, int hash) {
+        int mask = tokenTable.length - 1;
+        for (int index = mix(hash) & mask; tokenTable[index] >= 0; index = (index + 1) & mask) {
+            int id = tokenTable[index];
+            if (tokenHashes[id] == hash && equalsIgnoreCase(tokens[id], text, start, end)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsIgnoreCase(String token, CharSequence text, int start, int end) {
+        int i = 0;
+        int j = start;
+        while (i < token.length() && j < end) {
+            int expected = token.codePointAt(i);
+            int actual = Character.codePointAt(text, j);
+            if (expected != Character.toLowerCase(actual)) {
+                return false;
+            }
+            i += Character.charCount(expected);
+            j += Character.charCount(actual);
+        }
+        return i == token.length() && j == end;
+    }
+
+    /**
+     * @return the state reached from {@code state} with the word {@code token}, or {@code -1}
+     */
+    int transition(int state, int token) {
+        long key = key(state, token);
+        int mask = transitionKeys.length - 1;
+        for (int index = mix(key) & mask; transitionKeys[index] != NO_KEY; index = (index + 1) & mask) {
+            if (transitionKeys[index] == key) {
+                return transitionTargets[index];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the state reached from {@code state} by starting a slot, or {@code -1}
+     */
+    int slotTransition(int state) {
+        return slotTargets[state];
+    }
+
+    /**
+     * @return whether {@code state} was reached through a slot, which further tokens without a transition extend
+     */
+    boolean isSlotState(int state) {
+        return slotStates[state];
+    }
+
+    /**
+     * @return the pattern matched by the commands ending in {@code state}, or {@code -1}
+     */
+    int acceptedPattern(int state) {
+        return acceptedPatterns[state];
+    }
+
+    String intentOf(int pattern) {
+        return intents[pattern];
+    }
+
+    String[] slotNamesOf(int pattern) {
+        return slotNames[pattern];
+    }
+
+    int maxSlots() {
+        return maxSlots;
+    }
+
+    /**
+     * @return the number of states of the automaton
+     */
+    public int size() {
+        return acceptedPatterns.length;
+    }
+
+    private static long key(int state, int token) {
+        return (long) state << 32 | token;
+    }
+
+    private static int mix(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries * 2 - 1)) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "IntentGrammar(" + Arrays.stream(intents).filter(intent -> intent != null).count() + " patterns, "
+                + size() + " states, " + tokens.length + " tokens)";
+    }
+
+    /**
+     * A pattern of an intent, e.g. {@code Rule.of("call", "call {contact}")}.
+     */
+    @Value(staticConstructor = "of")
+    public static class Rule {
+        String intent;
+        String pattern;
+    }
+
+    private static class Node {
+
+        final Map<Integer, Node> literals = new HashMap<>();
+        final boolean slotState;
+        Node slot;
+        int accepted = -1;
+        int id;
+
+        Node(boolean slotState) {
+            this.slotState = slotState;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.programmingwithmati.voice.intent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Matches commands against an {@link IntentGrammar}, walking its automaton once over the text. Tokens are looked up
+ * in place and slots are kept as offsets in the text, so matching allocates nothing; the slot values are only
+ * copied out of the text when they are read.
+ * <p>
+ * A matcher keeps the result of its last match and is not thread-safe, each task or thread has its own.
+ */
+public class IntentMatcher {
+
+    private final IntentGrammar grammar;
+    private final int[] slotStarts;
+    private final int[] slotEnds;
+    private CharSequence text;
+    private int pattern = -1;
+
+    IntentMatcher(IntentGrammar grammar) {
+        this.grammar = grammar;
+        this.slotStarts = new int[grammar.maxSlots()];
+        this.slotEnds = new int[grammar.maxSlots()];
+    }
+
+    /**
+     * @return whether the whole text matches a pattern of the grammar
+     */
+    public boolean match(CharSequence text) {
+        this.text = text;
+        this.pattern = -1;
+        if (text == null) {
+            return false;
+        }
+        int length = text.length();
+        int state = 0;
+        int slot = -1;
+        int position = 0;
+        while (true) {
+            while (position < length && !IntentGrammar.isTokenPart(Character.codePointAt(text, position))) {
+                position += Character.charCount(Character.codePointAt(text, position));
+            }
+            if (position == length) {
+                break;
+            }
+            int start = position;
+            int hash = 0;
+            while (position < length) {
+                int codePoint = Character.codePointAt(text, position);
+                if (!IntentGrammar.isTokenPart(codePoint)) {
+                    break;
+                }
+                hash = 31 * hash + Character.toLowerCase(codePoint);
+                position += Character.charCount(codePoint);
+            }
+            int token = grammar.tokenId(text, start, position, hash);
+            int next = token < 0 ? -1 : grammar.transition(state, token);
+            if (next >= 0) {
+                state = next;
+            } else if (grammar.isSlotState(state)) {
+                slotEnds[slot] = position;
+            } else if (grammar.slotTransition(state) >= 0) {
+                state = grammar.slotTransition(state);
+                slot++;
+                slotStarts[slot] = start;
+                slotEnds[slot] = position;
+            } else {
+                return false;
+            }
+        }
+        pattern = grammar.acceptedPattern(state);
+        return pattern >= 0;
+    }
+
+    /**
+     * @return the intent of the last match, or {@code null} if the last command didn't match
+     */
+    public String intent() {
+        return pattern < 0 ? null : grammar.intentOf(pattern);
+    }
+
+    public int slotCount() {
+        return pattern < 0 ? 0 : grammar.slotNamesOf(pattern).length;
+    }
+
+    public String slotName(int slot) {
+        return grammar.slotNamesOf(pattern)[slot];
+    }
+
+    public String slotValue(int slot) {
+        return text.subSequence(slotStarts[slot], slotEnds[slot]).toString();
+    }
+
+    /**
+     * @return the values of the slots of the last match by name, in the order of the pattern
+     */
+    public Map<String, String> slots() {
+        var slots = new LinkedHashMap<String, String>();
+        for (int slot = 0; slot < slotCount(); slot++) {
+            slots.put(slotName(slot), slotValue(slot));
+        }
+        return slots;
+    }
+}
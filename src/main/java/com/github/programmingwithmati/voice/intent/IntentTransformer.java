@@ -0,0 +1,71 @@
+package com.github.programmingwithmati.voice.intent;
+
+import com.github.programmingwithmati.voice.metrics.SharedSensors;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceIntent;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns recognized commands into {@link VoiceIntent}s with an {@link IntentMatcher} of the task. Commands no pattern
+ * matches are dropped. Every command records {@code 1} if it matched and {@code 0} otherwise, so the average is the
+ * matched ratio.
+ */
+public class IntentTransformer implements ValueTransformerWithKey<String, ParsedVoiceCommand, Iterable<VoiceIntent>> {
+
+    private final IntentGrammar grammar;
+    private IntentMatcher matcher;
+    private StreamsMetrics streamsMetrics;
+    private Sensor matched;
+
+    private IntentTransformer(IntentGrammar grammar) {
+        this.grammar = grammar;
+    }
+
+    public static ValueTransformerWithKeySupplier<String, ParsedVoiceCommand, Iterable<VoiceIntent>> supplier(IntentGrammar grammar) {
+        return () -> new IntentTransformer(grammar);
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        this.matcher = grammar.matcher();
+        this.streamsMetrics = context.metrics();
+        String taskId = context.taskId().toString();
+        // the routes of a task share the sensor, Sensor.add ignores metrics that already exist
+        this.matched = SharedSensors.acquire(streamsMetrics, "voice." + taskId + ".intent.matched");
+        Map<String, String> tags = Map.of("task-id", taskId, "stage", "intent");
+        matched.add(new MetricName("matched-ratio", StageMetrics.GROUP, "Ratio of recognized commands matched by the intent grammar", tags), new Avg());
+        matched.add(new MetricName("matched-total", StageMetrics.GROUP, "Total number of recognized commands matched by the intent grammar", tags), new CumulativeSum());
+    }
+
+    @Override
+    public Iterable<VoiceIntent> transform(String readOnlyKey, ParsedVoiceCommand value) {
+        if (!matcher.match(value.getTextCommand())) {
+            matched.record(0);
+            return List.of();
+        }
+        matched.record(1);
+        return List.of(VoiceIntent.builder()
+                .id(value.getId())
+                .intent(matcher.intent())
+                .slots(matcher.slots())
+                .textCommand(value.getTextCommand())
+                .language(value.getLanguage())
+                .build());
+    }
+
+    @Override
+    public void close() {
+        SharedSensors.release(streamsMetrics, matched);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import com.github.programmingwithmati.voice.cache.CacheStats;
+import org.apache.kafka.common.metrics.MeasurableStat;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.streams.StreamsMetrics;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Publishes the counters of a {@link CacheStats} as gauges. The stats are shared by all tasks, so the gauges are
+ * registered once per application and never removed.
+ */
+public final class CacheMetrics {
+
+    private CacheMetrics() {
+    }
+
+    public static void register(StreamsMetrics streamsMetrics, CacheStats stats) {
+        Map<String, String> tags = Map.of("cache", stats.getName());
+        Sensor sensor = streamsMetrics.addSensor("voice.cache." + stats.getName(), Sensor.RecordingLevel.INFO);
+        sensor.add(StageMetrics.metricName("cache-hit-total", "Requests answered from the cache", tags), gauge(stats::getHits));
+        sensor.add(StageMetrics.metricName("cache-miss-total", "Requests sent to the backend", tags), gauge(stats::getMisses));
+        sensor.add(StageMetrics.metricName("cache-eviction-total", "Entries removed from the persistent cache", tags), gauge(stats::getEvictions));
+        sensor.add(StageMetrics.metricName("cache-hit-ratio", "Ratio of requests answered from the cache", tags), gauge(stats::getHitRatio));
+    }
+
+    static MeasurableStat gauge(DoubleSupplier value) {
+        return new MeasurableStat() {
+            @Override
+            public void record(MetricConfig config, double ignored, long timeMs) {
+            }
+
+            @Override
+            public double measure(MetricConfig config, long now) {
+                return value.getAsDouble();
+            }
+        };
+    }
+}
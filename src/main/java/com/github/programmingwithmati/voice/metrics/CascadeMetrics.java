@@ -0,0 +1,41 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import com.github.programmingwithmati.voice.cascade.CascadeStats;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.streams.processor.AbstractProcessor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.ProcessorSupplier;
+
+import java.util.Map;
+
+/**
+ * Publishes the counters of a {@link CascadeStats} as gauges. Like the cache gauges, they are registered once per
+ * application, by the first task that runs the probe, and never removed.
+ */
+public final class CascadeMetrics {
+
+    private CascadeMetrics() {
+    }
+
+    /**
+     * A processor that only registers the gauges, for the transcriptions of the STT stage.
+     */
+    public static ProcessorSupplier<String, ParsedVoiceCommand> probe(CascadeStats stats) {
+        return () -> new AbstractProcessor<>() {
+            @Override
+            public void init(ProcessorContext context) {
+                super.init(context);
+                Map<String, String> tags = Map.of("stage", "stt");
+                Sensor sensor = context.metrics().addSensor("voice.cascade.stt", Sensor.RecordingLevel.INFO);
+                sensor.add(StageMetrics.metricName("first-pass-total", "Commands transcribed by the first-pass client", tags), CacheMetrics.gauge(stats::getTranscriptions));
+                sensor.add(StageMetrics.metricName("escalation-total", "Commands sent again to the escalation client", tags), CacheMetrics.gauge(stats::getEscalations));
+                sensor.add(StageMetrics.metricName("escalation-ratio", "Ratio of commands sent to the escalation client", tags), CacheMetrics.gauge(stats::getEscalationRatio));
+            }
+
+            @Override
+            public void process(String key, ParsedVoiceCommand value) {
+            }
+        };
+    }
+}
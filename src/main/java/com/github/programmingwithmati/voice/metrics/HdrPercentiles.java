@@ -0,0 +1,94 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.HdrHistogram.IntCountsHistogram;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.CompoundStat;
+import org.apache.kafka.common.metrics.MetricConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency percentiles in milliseconds, kept in HdrHistograms with a relative precision of 1%, so a stage taking
+ * microseconds and one taking seconds are both reported precisely. Like Kafka's sampled stats, values are
+ * recorded in {@code samples} histograms of {@code timeWindowMs} each, and the percentiles cover the samples that
+ * haven't expired.
+ */
+class HdrPercentiles implements CompoundStat {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Map<MetricName, Double> percentiles;
+    private final List<Sample> samples = new ArrayList<>();
+    private final IntCountsHistogram merged = histogram();
+    private int current;
+
+    /**
+     * @param percentiles the percentile reported under each metric name, e.g. {@code 99.9}
+     */
+    HdrPercentiles(Map<MetricName, Double> percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    @Override
+    public List<NamedMeasurable> stats() {
+        var stats = new ArrayList<NamedMeasurable>();
+        percentiles.forEach((name, percentile) -> stats.add(new NamedMeasurable(name, (config, now) -> valueAt(config, now, percentile))));
+        return stats;
+    }
+
+    @Override
+    public void record(MetricConfig config, double valueMs, long timeMs) {
+        Sample sample = currentSample(config, timeMs);
+        sample.histogram.recordValue(Math.max(0, Math.min(HIGHEST_MICROS, Math.round(valueMs * 1000))));
+    }
+
+    private Sample currentSample(MetricConfig config, long timeMs) {
+        if (samples.isEmpty()) {
+            samples.add(new Sample(timeMs));
+        }
+        Sample sample = samples.get(current);
+        if (timeMs - sample.start >= config.timeWindowMs()) {
+            current = (current + 1) % Math.max(1, config.samples());
+            if (current == samples.size()) {
+                samples.add(new Sample(timeMs));
+            }
+            sample = samples.get(current);
+            sample.reset(timeMs);
+        }
+        return sample;
+    }
+
+    private double valueAt(MetricConfig config, long now, double percentile) {
+        merged.reset();
+        long expiry = config.samples() * config.timeWindowMs();
+        for (Sample sample : samples) {
+            if (now - sample.start < expiry) {
+                merged.add(sample.histogram);
+            }
+        }
+        return merged.getTotalCount() == 0 ? Double.NaN : merged.getValueAtPercentile(percentile) / 1000d;
+    }
+
+    private static IntCountsHistogram histogram() {
+        return new IntCountsHistogram(1, HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+    private static class Sample {
+
+        final IntCountsHistogram histogram = histogram();
+        long start;
+
+        Sample(long start) {
+            this.start = start;
+        }
+
+        void reset(long start) {
+            this.start = start;
+            histogram.reset();
+        }
+    }
+}
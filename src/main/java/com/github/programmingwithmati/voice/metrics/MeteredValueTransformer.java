@@ -0,0 +1,67 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.apache.kafka.streams.kstream.ValueMapperWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+/**
+ * Records the latency, throughput and errors of a value transformation in the {@link StageMetrics} of a stage.
+ */
+public class MeteredValueTransformer<V, R> implements ValueTransformerWithKey<String, V, R> {
+
+    private final String stage;
+    private final ValueTransformerWithKey<String, V, R> delegate;
+    private StageMetrics metrics;
+
+    public MeteredValueTransformer(String stage, ValueTransformerWithKey<String, V, R> delegate) {
+        this.stage = stage;
+        this.delegate = delegate;
+    }
+
+    public static <V, R> ValueTransformerWithKeySupplier<String, V, R> wrap(String stage, ValueTransformerWithKeySupplier<String, V, R> supplier) {
+        return () -> new MeteredValueTransformer<>(stage, supplier.get());
+    }
+
+    public static <V, R> ValueTransformerWithKeySupplier<String, V, R> of(String stage, ValueMapperWithKey<String, V, R> mapper) {
+        return () -> new MeteredValueTransformer<>(stage, new ValueTransformerWithKey<>() {
+            @Override
+            public void init(ProcessorContext context) {
+            }
+
+            @Override
+            public R transform(String readOnlyKey, V value) {
+                return mapper.apply(readOnlyKey, value);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        delegate.init(context);
+        metrics = StageMetrics.register(context, stage);
+    }
+
+    @Override
+    public R transform(String readOnlyKey, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.transform(readOnlyKey, value);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordLatency(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        metrics.close();
+    }
+}
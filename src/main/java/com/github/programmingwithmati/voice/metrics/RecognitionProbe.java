@@ -0,0 +1,70 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.apache.kafka.common.metrics.stats.Rate;
+import org.apache.kafka.common.metrics.stats.WindowedCount;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.processor.Processor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.ProcessorSupplier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts recognized and unrecognized commands per language. Every command records {@code 1} if it was recognized
+ * and {@code 0} otherwise, so the average is the recognized ratio.
+ */
+public class RecognitionProbe implements Processor<String, ParsedVoiceCommand> {
+
+    private final boolean recognized;
+    private final Map<String, Sensor> sensors = new HashMap<>();
+    private StreamsMetrics streamsMetrics;
+    private String taskId;
+
+    private RecognitionProbe(boolean recognized) {
+        this.recognized = recognized;
+    }
+
+    public static ProcessorSupplier<String, ParsedVoiceCommand> recognized() {
+        return () -> new RecognitionProbe(true);
+    }
+
+    public static ProcessorSupplier<String, ParsedVoiceCommand> unrecognized() {
+        return () -> new RecognitionProbe(false);
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        streamsMetrics = context.metrics();
+        taskId = context.taskId().toString();
+    }
+
+    @Override
+    public void process(String key, ParsedVoiceCommand value) {
+        String language = value.getLanguage() == null ? "unknown" : value.getLanguage();
+        sensors.computeIfAbsent(language, this::sensor).record(recognized ? 1 : 0);
+    }
+
+    /**
+     * Both probes of a task share the sensor of a language, {@link Sensor#add} ignores metrics that already exist.
+     */
+    private Sensor sensor(String language) {
+        Map<String, String> tags = Map.of("task-id", taskId, "language", language);
+        Sensor sensor = SharedSensors.acquire(streamsMetrics, "voice." + taskId + ".recognition." + language);
+        sensor.add(StageMetrics.metricName("recognized-ratio", "Ratio of commands above the probability threshold", tags), new Avg());
+        sensor.add(StageMetrics.metricName("recognized-total", "Total number of recognized commands", tags), new CumulativeSum());
+        sensor.add(StageMetrics.metricName("commands-total", "Total number of transcribed commands", tags), new CumulativeCount());
+        sensor.add(StageMetrics.metricName("commands-rate", "Transcribed commands per second", tags), new Rate(new WindowedCount()));
+        return sensor;
+    }
+
+    @Override
+    public void close() {
+        sensors.values().forEach(sensor -> SharedSensors.release(streamsMetrics, sensor));
+    }
+}
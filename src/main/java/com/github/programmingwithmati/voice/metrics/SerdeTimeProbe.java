@@ -0,0 +1,44 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.apache.kafka.streams.processor.Processor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.ProcessorSupplier;
+
+/**
+ * Records the serde time measured by {@link SerdeTimer} as the latency of a stage. Add it right after the source
+ * to measure deserialization, or to a stream after its {@code to()} to measure serialization.
+ */
+public class SerdeTimeProbe<V> implements Processor<String, V> {
+
+    private final String stage;
+    private final boolean serialization;
+    private StageMetrics metrics;
+
+    private SerdeTimeProbe(String stage, boolean serialization) {
+        this.stage = stage;
+        this.serialization = serialization;
+    }
+
+    public static <V> ProcessorSupplier<String, V> deserialization(String stage) {
+        return () -> new SerdeTimeProbe<>(stage, false);
+    }
+
+    public static <V> ProcessorSupplier<String, V> serialization(String stage) {
+        return () -> new SerdeTimeProbe<>(stage, true);
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        metrics = StageMetrics.register(context, stage);
+    }
+
+    @Override
+    public void process(String key, V value) {
+        metrics.recordLatency(serialization ? SerdeTimer.drainSerializationNanos() : SerdeTimer.drainDeserializationNanos());
+    }
+
+    @Override
+    public void close() {
+        metrics.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Measures the time a stream thread spends in serdes.
+ * <p>
+ * Serdes have no access to the metrics of the task, so the time is accumulated per thread and recorded by a
+ * {@link SerdeTimeProbe} further down the topology. Serialization happens in the sink right before the probe
+ * runs, so it is measured per record. Deserialization happens when a whole batch is polled, so the probe
+ * records it as one value followed by zeros: the average is accurate, the maximum and percentiles are not.
+ */
+public final class SerdeTimer {
+
+    private static final ThreadLocal<long[]> SERIALIZATION_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+    private static final ThreadLocal<long[]> DESERIALIZATION_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private SerdeTimer() {
+    }
+
+    public static <T> Serde<T> metered(Serde<T> serde) {
+        Serializer<T> serializer = serde.serializer();
+        Deserializer<T> deserializer = serde.deserializer();
+        Serializer<T> meteredSerializer = (topic, data) -> {
+            long start = System.nanoTime();
+            try {
+                return serializer.serialize(topic, data);
+            } finally {
+                SERIALIZATION_NANOS.get()[0] += System.nanoTime() - start;
+            }
+        };
+        Deserializer<T> meteredDeserializer = (topic, bytes) -> {
+            long start = System.nanoTime();
+            try {
+                return deserializer.deserialize(topic, bytes);
+            } finally {
+                DESERIALIZATION_NANOS.get()[0] += System.nanoTime() - start;
+            }
+        };
+        return new Serde<>() {
+            @Override
+            public Serializer<T> serializer() {
+                return meteredSerializer;
+            }
+
+            @Override
+            public Deserializer<T> deserializer() {
+                return meteredDeserializer;
+            }
+        };
+    }
+
+    static long drainSerializationNanos() {
+        return drain(SERIALIZATION_NANOS.get());
+    }
+
+    static long drainDeserializationNanos() {
+        return drain(DESERIALIZATION_NANOS.get());
+    }
+
+    private static long drain(long[] accumulator) {
+        long nanos = accumulator[0];
+        accumulator[0] = 0;
+        return nanos;
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.streams.StreamsMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Sensors registered by several processors of a task, e.g. the stage sensors of the language routes that run in the
+ * same task. {@link StreamsMetrics#addSensor} returns the sensor already registered under a name, so processors
+ * acquire their sensors here, and a sensor is only removed when the last processor using it released it.
+ */
+public final class SharedSensors {
+
+    private static final Map<StreamsMetrics, Map<String, Integer>> REFERENCES = new WeakHashMap<>();
+
+    private SharedSensors() {
+    }
+
+    public static synchronized Sensor acquire(StreamsMetrics streamsMetrics, String name) {
+        REFERENCES.computeIfAbsent(streamsMetrics, any -> new HashMap<>()).merge(name, 1, Integer::sum);
+        return streamsMetrics.addSensor(name, Sensor.RecordingLevel.INFO);
+    }
+
+    public static synchronized void release(StreamsMetrics streamsMetrics, Sensor sensor) {
+        var references = REFERENCES.get(streamsMetrics);
+        Integer remaining = references == null ? null
+                : references.computeIfPresent(sensor.name(), (name, count) -> count == 1 ? null : count - 1);
+        if (remaining == null) {
+            streamsMetrics.removeSensor(sensor);
+        }
+    }
+}
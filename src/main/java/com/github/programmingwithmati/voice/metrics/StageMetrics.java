@@ -0,0 +1,75 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Rate;
+import org.apache.kafka.common.metrics.stats.WindowedCount;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.util.Map;
+
+/**
+ * Latency, throughput and error sensors of one stage of the topology in one stream task, registered through
+ * {@link StreamsMetrics} so they are published over JMX with the rest of the Kafka Streams metrics.
+ * <p>
+ * Metrics are in the {@value #GROUP} group, tagged with {@code task-id} and {@code stage}. Latencies are in
+ * milliseconds. The processors of a task that run the same stage, e.g. the sinks of the language routes, share its
+ * sensors.
+ */
+public class StageMetrics {
+
+    public static final String GROUP = "voice-parser-stage-metrics";
+
+    private final StreamsMetrics streamsMetrics;
+    private final Sensor latency;
+    private final Sensor errors;
+
+    private StageMetrics(StreamsMetrics streamsMetrics, String taskId, String stage) {
+        this.streamsMetrics = streamsMetrics;
+        Map<String, String> tags = Map.of("task-id", taskId, "stage", stage);
+        String prefix = "voice." + taskId + "." + stage + ".";
+
+        latency = SharedSensors.acquire(streamsMetrics, prefix + "latency");
+        if (!latency.hasMetrics()) { // already registered by another processor of the stage, whose stats would record twice
+            latency.add(metricName("latency-avg", "Average time spent per record", tags), new Avg());
+            latency.add(metricName("latency-max", "Maximum time spent on a record", tags), new Max());
+            latency.add(new HdrPercentiles(Map.of(
+                    metricName("latency-p50", "Median time spent per record", tags), 50d,
+                    metricName("latency-p99", "99th percentile of the time spent per record", tags), 99d,
+                    metricName("latency-p999", "99.9th percentile of the time spent per record", tags), 99.9)));
+            latency.add(metricName("records-rate", "Records per second", tags), new Rate(new WindowedCount()));
+            latency.add(metricName("records-total", "Total number of records", tags), new CumulativeCount());
+        }
+
+        errors = SharedSensors.acquire(streamsMetrics, prefix + "errors");
+        if (!errors.hasMetrics()) {
+            errors.add(metricName("error-rate", "Failed records per second", tags), new Rate(new WindowedCount()));
+            errors.add(metricName("error-total", "Total number of failed records", tags), new CumulativeCount());
+        }
+    }
+
+    public static StageMetrics register(ProcessorContext context, String stage) {
+        return new StageMetrics(context.metrics(), context.taskId().toString(), stage);
+    }
+
+    static MetricName metricName(String name, String description, Map<String, String> tags) {
+        return new MetricName(name, GROUP, description, tags);
+    }
+
+    public void recordLatency(long nanos) {
+        latency.record(nanos / 1_000_000d);
+    }
+
+    public void recordError() {
+        errors.record();
+    }
+
+    public void close() {
+        SharedSensors.release(streamsMetrics, latency);
+        SharedSensors.release(streamsMetrics, errors);
+    }
+}
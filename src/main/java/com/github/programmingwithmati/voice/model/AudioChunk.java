@@ -0,0 +1,25 @@
+package com.github.programmingwithmati.voice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A piece of the audio of a voice command sent while the user is still speaking. The chunks of a command share
+ * its id and are numbered from 0; the last one is flagged, so the command is complete once every chunk up to it
+ * arrived. All the chunks of a command must be sent with the same record key.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AudioChunk {
+
+    private String commandId;
+    private int sequence;
+    private boolean last;
+    private byte[] audio;
+    private String audioCodec;
+    private String language;
+}
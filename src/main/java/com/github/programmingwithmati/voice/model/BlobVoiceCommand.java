@@ -0,0 +1,58 @@
+package com.github.programmingwithmati.voice.model;
+
+import com.github.programmingwithmati.voice.blob.BlobReference;
+import com.github.programmingwithmati.voice.blob.BlobStore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link VoiceCommand} whose audio was checked into a {@link BlobStore}. The blob is only read the first time
+ * {@link #getAudio()} or {@link #getAudioBuffer()} is called, and {@link #getAudioLength()} comes from the
+ * reference, so filtering and routing never touch the store.
+ */
+public class BlobVoiceCommand extends VoiceCommand {
+
+    private final BlobStore blobStore;
+    private ByteBuffer content;
+
+    public BlobVoiceCommand(String id, String audioCodec, String language, BlobReference audioReference, BlobStore blobStore) {
+        setId(id);
+        setAudioCodec(audioCodec);
+        setLanguage(language);
+        setAudioReference(audioReference);
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public byte[] getAudio() {
+        if (super.getAudio() == null && getAudioReference() != null) {
+            var buffer = getAudioBuffer();
+            var audio = new byte[buffer.remaining()];
+            buffer.get(audio);
+            super.setAudio(audio);
+        }
+        return super.getAudio();
+    }
+
+    @Override
+    public ByteBuffer getAudioBuffer() {
+        if (super.getAudio() != null || getAudioReference() == null) {
+            return super.getAudioBuffer();
+        }
+        if (content == null) {
+            content = blobStore.get(getAudioReference().getKey());
+            if (content.remaining() != getAudioReference().getSize()) {
+                throw new IllegalStateException("Blob %s has %d bytes but the reference says %d"
+                        .formatted(getAudioReference().getKey(), content.remaining(), getAudioReference().getSize()));
+            }
+        }
+        return content.asReadOnlyBuffer();
+    }
+
+    @Override
+    public void setAudio(byte[] audio) {
+        content = null;
+        setAudioReference(null);
+        super.setAudio(audio);
+    }
+}
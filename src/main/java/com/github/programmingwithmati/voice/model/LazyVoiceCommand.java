@@ -0,0 +1,92 @@
+package com.github.programmingwithmati.voice.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A {@link VoiceCommand} read from a serialized record whose audio stays in the record bytes until
+ * {@link #getAudio()} is called.
+ * <p>
+ * Filtering on {@link #getAudioLength()} or routing the command never decodes the audio, and
+ * {@link #getAudioBuffer()} exposes raw audio as a slice of the record without copying it.
+ */
+public class LazyVoiceCommand extends VoiceCommand {
+
+    private byte[] source;
+    private final int offset;
+    private final int length;
+    private final boolean base64;
+
+    private LazyVoiceCommand(String id, String audioCodec, String language, byte[] source, int offset, int length, boolean base64) {
+        setId(id);
+        setAudioCodec(audioCodec);
+        setLanguage(language);
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.base64 = base64;
+    }
+
+    /**
+     * Audio stored as raw bytes in {@code source[offset, offset + length)}.
+     */
+    public static LazyVoiceCommand ofRawAudio(String id, String audioCodec, String language, byte[] source, int offset, int length) {
+        return new LazyVoiceCommand(id, audioCodec, language, source, offset, length, false);
+    }
+
+    /**
+     * Audio stored as padded Base64 text in {@code source[offset, offset + length)}.
+     */
+    public static LazyVoiceCommand ofBase64Audio(String id, String audioCodec, String language, byte[] source, int offset, int length) {
+        return new LazyVoiceCommand(id, audioCodec, language, source, offset, length, true);
+    }
+
+    @Override
+    public byte[] getAudio() {
+        if (source != null) {
+            var buffer = ByteBuffer.wrap(source, offset, length);
+            byte[] audio;
+            if (base64) {
+                var decoded = Base64.getDecoder().decode(buffer);
+                audio = decoded.remaining() == decoded.array().length ? decoded.array() : Arrays.copyOf(decoded.array(), decoded.remaining());
+            } else {
+                audio = new byte[length];
+                buffer.get(audio);
+            }
+            super.setAudio(audio);
+            source = null;
+        }
+        return super.getAudio();
+    }
+
+    @Override
+    public void setAudio(byte[] audio) {
+        source = null;
+        super.setAudio(audio);
+    }
+
+    @Override
+    public int getAudioLength() {
+        if (source == null) {
+            return super.getAudioLength();
+        }
+        if (!base64) {
+            return length;
+        }
+        int padding = 0;
+        for (int i = offset + length - 1; i >= offset && source[i] == '='; i--) {
+            padding++;
+        }
+        return length / 4 * 3 - padding;
+    }
+
+    @Override
+    public ByteBuffer getAudioBuffer() {
+        if (source != null && !base64) {
+            return ByteBuffer.wrap(source, offset, length).slice().asReadOnlyBuffer();
+        }
+        getAudio(); // Base64 has to be decoded first
+        return super.getAudioBuffer();
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.programmingwithmati.voice.model;
+
+import lombok.Value;
+
+/**
+ * A transcription of a command whose audio is streamed in chunks: partial while chunks are still missing, final
+ * once the last chunk was transcribed.
+ */
+@Value
+public class StreamedTranscription {
+
+    ParsedVoiceCommand result;
+    boolean partial;
+
+    public static StreamedTranscription partial(ParsedVoiceCommand result) {
+        return new StreamedTranscription(result, true);
+    }
+
+    public static StreamedTranscription complete(ParsedVoiceCommand result) {
+        return new StreamedTranscription(result, false);
+    }
+}
@@ -1,10 +1,15 @@
 package com.github.programmingwithmati.voice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.programmingwithmati.voice.blob.BlobReference;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.nio.ByteBuffer;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,4 +20,28 @@ public class VoiceCommand {
     private byte[] audio;
     private String audioCodec;
     private String language;
+    /**
+     * Set instead of {@code audio} when the audio was checked into a {@link com.github.programmingwithmati.voice.blob.BlobStore}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BlobReference audioReference;
+
+    /**
+     * Size of the audio in bytes, without having to materialize it.
+     */
+    @JsonIgnore
+    public int getAudioLength() {
+        if (audio != null) {
+            return audio.length;
+        }
+        return audioReference == null ? 0 : audioReference.getSize();
+    }
+
+    /**
+     * Read-only view of the audio that, unlike {@link #getAudio()}, avoids copying it when possible.
+     */
+    @JsonIgnore
+    public ByteBuffer getAudioBuffer() {
+        return audio == null ? null : ByteBuffer.wrap(audio).asReadOnlyBuffer();
+    }
 }
@@ -0,0 +1,25 @@
+package com.github.programmingwithmati.voice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * A recognized command matched by the intent grammar: the name of the intent and the text captured by each of its
+ * slots, e.g. {@code call} with {@code contact=john} for "call john".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class VoiceIntent {
+
+    private String id;
+    private String intent;
+    private Map<String, String> slots;
+    private String textCommand;
+    private String language;
+}
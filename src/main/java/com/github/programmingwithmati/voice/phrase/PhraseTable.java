@@ -0,0 +1,125 @@
+package com.github.programmingwithmati.voice.phrase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Known translations of frequent commands, indexed by language and normalized phrase.
+ * <p>
+ * The table is loaded from a tab separated file with a {@code language, phrase, translation} line per phrase;
+ * empty lines and lines starting with {@code #} are skipped. Phrases are normalized, so "Llamar a Juan!" and
+ * "llamar  a juan" share an entry, and languages are reduced to their primary subtag, so {@code es} covers
+ * {@code es-AR} and {@code es-ES}.
+ */
+public class PhraseTable {
+
+    public static final String BUNDLED_PHRASES = "/phrases.tsv";
+    private static final char KEY_SEPARATOR = '|';
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, String> translations;
+
+    public PhraseTable(Map<String, String> translations) {
+        this.translations = Map.copyOf(translations);
+    }
+
+    public static PhraseTable empty() {
+        return new PhraseTable(Map.of());
+    }
+
+    public static PhraseTable load(Path file) {
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the phrase table " + file, e);
+        }
+    }
+
+    /**
+     * Loads the phrases shipped with the application.
+     */
+    public static PhraseTable bundled() {
+        var resource = PhraseTable.class.getResourceAsStream(BUNDLED_PHRASES);
+        if (resource == null) {
+            throw new IllegalStateException(BUNDLED_PHRASES + " is missing from the classpath");
+        }
+        try (var reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+            return read(reader, BUNDLED_PHRASES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the phrase table " + BUNDLED_PHRASES, e);
+        }
+    }
+
+    private static PhraseTable read(BufferedReader reader, String source) throws IOException {
+        var translations = new HashMap<String, String>();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            if (columns.length != 3) {
+                throw new IllegalArgumentException(source + ":" + number + " must have a language, a phrase and a translation separated by tabs");
+            }
+            translations.put(key(columns[0], columns[1]), columns[2].strip());
+        }
+        return new PhraseTable(translations);
+    }
+
+    /**
+     * @return the key of a phrase in the table and in the phrase table topic
+     */
+    public static String key(String language, String phrase) {
+        return languageOf(language) + KEY_SEPARATOR + normalize(phrase);
+    }
+
+    /**
+     * Lower cases the phrase and drops punctuation, symbols and repeated whitespace. Accents are kept, they can
+     * change the meaning of a word.
+     */
+    public static String normalize(String phrase) {
+        if (phrase == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(phrase, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalized = PUNCTUATION.matcher(normalized).replaceAll(" ");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").strip();
+    }
+
+    private static String languageOf(String language) {
+        if (language == null) {
+            return "";
+        }
+        int separator = language.indexOf('-');
+        return (separator < 0 ? language : language.substring(0, separator)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the translation for the key, or {@code null} when the phrase is unknown
+     */
+    public String get(String key) {
+        return translations.get(key);
+    }
+
+    public int size() {
+        return translations.size();
+    }
+
+    @Override
+    public String toString() {
+        return "PhraseTable(" + translations.size() + " phrases)";
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.programmingwithmati.voice.phrase;
+
+import com.github.programmingwithmati.voice.cache.CacheStats;
+import com.github.programmingwithmati.voice.metrics.CacheMetrics;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Translates known phrases locally and only calls the translation stage for the others.
+ * <p>
+ * A phrase is looked up in the {@link PhraseTable} loaded at startup and then in the learned phrases, a global
+ * store fed by the compacted phrase table topic, so a phrase translated by any instance is known by all of them.
+ * A phrase the wrapped stage translated {@code learningThreshold} times, counting the answers of a translation
+ * cache, is returned as learned once, for the topology to send it to that topic. The counts are kept on the heap for
+ * the most recent {@value #MAX_CANDIDATES} phrases, so a phrase that rarely repeats is never learned.
+ */
+public class PhraseTableTransformer implements ValueTransformerWithKey<String, ParsedVoiceCommand, PhraseTranslation> {
+
+    static final int MAX_CANDIDATES = 10_000;
+
+    private final String storeName;
+    private final PhraseTable phraseTable;
+    private final ValueTransformerWithKey<String, ParsedVoiceCommand, ParsedVoiceCommand> translation;
+    private final CacheStats stats;
+    private final int learningThreshold;
+    private final Map<String, Integer> candidates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_CANDIDATES;
+        }
+    };
+    private ReadOnlyKeyValueStore<String, String> learnedPhrases;
+
+    public PhraseTableTransformer(String storeName, PhraseTable phraseTable, ValueTransformerWithKey<String, ParsedVoiceCommand, ParsedVoiceCommand> translation,
+                                  CacheStats stats, int learningThreshold) {
+        this.storeName = storeName;
+        this.phraseTable = phraseTable;
+        this.translation = translation;
+        this.stats = stats;
+        this.learningThreshold = learningThreshold;
+    }
+
+    /**
+     * The learned phrases are only written by the global store of the topic, so the store has no changelog.
+     */
+    public static StoreBuilder<KeyValueStore<String, String>> storeBuilder(String storeName) {
+        return Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(storeName), Serdes.String(), Serdes.String()).withLoggingDisabled();
+    }
+
+    public static ValueTransformerWithKeySupplier<String, ParsedVoiceCommand, PhraseTranslation> wrap(String storeName, PhraseTable phraseTable,
+                                                                                                     ValueTransformerWithKeySupplier<String, ParsedVoiceCommand, ParsedVoiceCommand> translation,
+                                                                                                     CacheStats stats, int learningThreshold) {
+        return () -> new PhraseTableTransformer(storeName, phraseTable, translation.get(), stats, learningThreshold);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.learnedPhrases = (ReadOnlyKeyValueStore<String, String>) context.getStateStore(storeName);
+        CacheMetrics.register(context.metrics(), stats);
+        translation.init(context);
+    }
+
+    @Override
+    public PhraseTranslation transform(String readOnlyKey, ParsedVoiceCommand command) {
+        String phrase = PhraseTable.key(command.getLanguage(), command.getTextCommand());
+        String known = phraseTable.get(phrase);
+        if (known == null) {
+            known = learnedPhrases.get(phrase);
+        }
+        if (known != null) {
+            stats.recordHit();
+            return PhraseTranslation.known(command.toBuilder().textCommand(known).build());
+        }
+        stats.recordMiss();
+        ParsedVoiceCommand result = translation.transform(readOnlyKey, command);
+        if (result == null || result.getTextCommand() == null) {
+            return PhraseTranslation.known(result);
+        }
+        int translations = candidates.merge(phrase, 1, Integer::sum);
+        if (translations < learningThreshold) {
+            return PhraseTranslation.known(result);
+        }
+        candidates.remove(phrase); // sent once, the global store answers it from now on
+        return PhraseTranslation.learned(result, phrase);
+    }
+
+    @Override
+    public void close() {
+        candidates.clear();
+        translation.close();
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.programmingwithmati.voice.phrase;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+/**
+ * Keeps the global store of learned phrases in sync with the phrase table topic; a tombstone forgets a phrase.
+ * Once the store holds {@code maxPhrases} phrases, new ones are ignored and only the known ones are updated. Every
+ * instance reads the topic in the same order, so they all keep the same phrases.
+ */
+public class PhraseTableUpdater implements Processor<String, String, Void, Void> {
+
+    private final String storeName;
+    private final long maxPhrases;
+    private KeyValueStore<String, String> learnedPhrases;
+
+    public PhraseTableUpdater(String storeName, long maxPhrases) {
+        this.storeName = storeName;
+        this.maxPhrases = maxPhrases;
+    }
+
+    public static ProcessorSupplier<String, String, Void, Void> supplier(String storeName, long maxPhrases) {
+        return () -> new PhraseTableUpdater(storeName, maxPhrases);
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        this.learnedPhrases = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(Record<String, String> record) {
+        if (record.key() == null) {
+            return;
+        }
+        if (record.value() == null) {
+            learnedPhrases.delete(record.key());
+        } else if (learnedPhrases.approximateNumEntries() < maxPhrases || learnedPhrases.get(record.key()) != null) { // exact in memory
+            learnedPhrases.put(record.key(), record.value());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.programmingwithmati.voice.phrase;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import lombok.Value;
+
+/**
+ * A translated command, with the key of its phrase when the translation came from the backend and should be
+ * added to the phrase table.
+ */
+@Value
+public class PhraseTranslation {
+
+    ParsedVoiceCommand result;
+    String learnedPhrase;
+
+    public static PhraseTranslation known(ParsedVoiceCommand result) {
+        return new PhraseTranslation(result, null);
+    }
+
+    public static PhraseTranslation learned(ParsedVoiceCommand result, String phrase) {
+        return new PhraseTranslation(result, phrase);
+    }
+
+    public boolean isLearned() {
+        return learnedPhrase != null;
+    }
+}
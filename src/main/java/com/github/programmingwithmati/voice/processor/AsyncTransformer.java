@@ -0,0 +1,196 @@
+package com.github.programmingwithmati.voice.processor;
+
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import com.github.programmingwithmati.voice.resilience.Attempt;
+import com.github.programmingwithmati.voice.resilience.FallbackRecorder;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.To;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Keeps up to {@code maxInFlight} asynchronous calls running per partition.
+ * <p>
+ * Every accepted record is parked in a state store until its result has been forwarded, so committing the input
+ * offset before the call completes never loses it: after a crash or a rebalance the parked records are submitted
+ * again. Results are forwarded in submission order per key, and when the window is full the stream thread waits
+ * for the oldest call, which stops it from polling more input. The latency recorded in the {@link StageMetrics}
+ * of the stage goes from accepting a record to forwarding its result.
+ * <p>
+ * A call that fails or times out is forwarded as a failed {@link Attempt}, recorded by a {@link FallbackRecorder},
+ * for the topology to retry: throwing it would stop the stream thread with the record still parked, so it would
+ * fail again after every restart. Every result is forwarded with the headers of its own record, which keep the
+ * retry attempts of a retried command; records resubmitted after a restart have lost theirs.
+ */
+public class AsyncTransformer<V, R> implements Transformer<String, V, KeyValue<String, Attempt<V, R>>> {
+
+    private static final long UNKNOWN_TIMESTAMP = -1L;
+    private static final Header[] NO_HEADERS = new Header[0];
+
+    private final String storeName;
+    private final String stage;
+    private final Function<V, CompletableFuture<R>> call;
+    private final int maxInFlight;
+    private final Duration drainInterval;
+    private final ArrayDeque<InFlight<V, R>> inFlight = new ArrayDeque<>();
+    private ProcessorContext context;
+    private KeyValueStore<String, V> pending;
+    private StageMetrics metrics;
+    private FallbackRecorder fallbacks;
+    private long nextSequence;
+
+    public AsyncTransformer(String storeName, String stage, Function<V, CompletableFuture<R>> call, int maxInFlight, Duration drainInterval) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1 but was " + maxInFlight);
+        }
+        this.storeName = storeName;
+        this.stage = stage;
+        this.call = call;
+        this.maxInFlight = maxInFlight;
+        this.drainInterval = drainInterval;
+    }
+
+    public static <V> StoreBuilder<KeyValueStore<String, V>> storeBuilder(String storeName, Serde<V> valueSerde) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(storeName), Serdes.String(), valueSerde);
+    }
+
+    public static <V, R> TransformerSupplier<String, V, KeyValue<String, Attempt<V, R>>> supplier(String storeName, String stage, Function<V, CompletableFuture<R>> call, int maxInFlight, Duration drainInterval) {
+        return () -> new AsyncTransformer<>(storeName, stage, call, maxInFlight, drainInterval);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.pending = (KeyValueStore<String, V>) context.getStateStore(storeName);
+        this.metrics = StageMetrics.register(context, stage);
+        this.fallbacks = new FallbackRecorder(context, stage);
+        // resubmit whatever was accepted but not emitted before the last shutdown
+        try (var iterator = pending.all()) {
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                nextSequence = Math.max(nextSequence, SequencedKeys.sequenceOf(entry.key) + 1);
+                inFlight.add(new InFlight<>(entry.key, SequencedKeys.keyOf(entry.key), entry.value, UNKNOWN_TIMESTAMP, NO_HEADERS, System.nanoTime(), submit(entry.value)));
+            }
+        }
+        context.schedule(drainInterval, PunctuationType.WALL_CLOCK_TIME, timestamp -> drain());
+    }
+
+    @Override
+    public KeyValue<String, Attempt<V, R>> transform(String key, V value) {
+        drain();
+        while (inFlight.size() >= maxInFlight) {
+            inFlight.peekFirst().result.handle((result, error) -> null).join(); // backpressure: hold the stream thread until the oldest call returns
+            drain();
+        }
+        var storeKey = SequencedKeys.storeKey(nextSequence++, key);
+        pending.put(storeKey, value);
+        inFlight.add(new InFlight<>(storeKey, key, value, context.timestamp(), context.headers().toArray(), System.nanoTime(), submit(value)));
+        drain();
+        return null;
+    }
+
+    private CompletableFuture<R> submit(V value) {
+        try {
+            return call.apply(value);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e); // a client that throws instead of failing the future
+        }
+    }
+
+    private void drain() {
+        Set<String> blockedKeys = null;
+        Iterator<InFlight<V, R>> iterator = inFlight.iterator();
+        while (iterator.hasNext()) {
+            var next = iterator.next();
+            if (!next.result.isDone() || (blockedKeys != null && blockedKeys.contains(next.key))) {
+                if (blockedKeys == null) {
+                    blockedKeys = new HashSet<>();
+                }
+                blockedKeys.add(next.key); // a later record with the same key must wait for this one
+                continue;
+            }
+            forward(next);
+            pending.delete(next.storeKey);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Forwards the outcome of a call with the headers of its record, in place of those of the record or punctuation
+     * being processed, which get theirs back afterwards.
+     */
+    private void forward(InFlight<V, R> next) {
+        Headers headers = context.headers();
+        Header[] current = headers.toArray();
+        replace(headers, next.headers);
+        Attempt<V, R> attempt;
+        try {
+            R result = next.result.join();
+            metrics.recordLatency(System.nanoTime() - next.submittedNanos);
+            FailureHeaders.clear(headers);
+            attempt = result == null ? null : Attempt.succeeded(next.input, result);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            attempt = Attempt.failed(next.input, fallbacks.record(headers, e));
+        }
+        if (attempt != null) {
+            context.forward(next.key, attempt, next.timestamp == UNKNOWN_TIMESTAMP ? To.all() : To.all().withTimestamp(next.timestamp));
+        }
+        replace(headers, current);
+    }
+
+    private static void replace(Headers headers, Header[] replacement) {
+        for (Header header : headers.toArray()) {
+            headers.remove(header.key());
+        }
+        for (Header header : replacement) {
+            headers.add(header);
+        }
+    }
+
+    @Override
+    public void close() {
+        inFlight.clear();
+        metrics.close();
+        fallbacks.close();
+    }
+
+    private static class InFlight<V, R> {
+        private final String storeKey;
+        private final String key;
+        private final V input;
+        private final long timestamp;
+        private final Header[] headers;
+        private final long submittedNanos;
+        private final CompletableFuture<R> result;
+
+        private InFlight(String storeKey, String key, V input, long timestamp, Header[] headers, long submittedNanos, CompletableFuture<R> result) {
+            this.storeKey = storeKey;
+            this.key = key;
+            this.input = input;
+            this.timestamp = timestamp;
+            this.headers = headers;
+            this.submittedNanos = submittedNanos;
+            this.result = result;
+        }
+    }
+}
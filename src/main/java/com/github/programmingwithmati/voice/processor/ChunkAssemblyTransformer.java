@@ -0,0 +1,192 @@
+package com.github.programmingwithmati.voice.processor;
+
+import com.github.programmingwithmati.voice.metrics.SharedSensors;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import com.github.programmingwithmati.voice.model.AudioChunk;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.StreamedTranscription;
+import com.github.programmingwithmati.voice.serdes.AudioChunkSerde;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.service.StreamingSttClient;
+import com.github.programmingwithmati.voice.service.StreamingSttSession;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Puts the audio chunks of each command back in order and feeds them to a {@link StreamingSttClient} as soon as
+ * they can be, forwarding a partial transcription after each record that moved a session forward and the final
+ * one after the last chunk.
+ * <p>
+ * Chunks are kept in a store until their command is complete: out of order chunks wait there for the missing
+ * ones, and a session that is not open on this instance, e.g. after a rebalance, is opened again and replayed
+ * from them. Sessions that received no chunk for {@code sessionTimeout} (wall-clock time) are aborted and their
+ * chunks dropped. A completed session is kept for as long without its chunks, so a chunk redelivered after the
+ * final transcription is dropped instead of starting a new session.
+ */
+public class ChunkAssemblyTransformer implements Transformer<String, AudioChunk, KeyValue<String, StreamedTranscription>> {
+
+    private static final String KEY_FORMAT = "%s|%010d";
+
+    private final String chunkStoreName;
+    private final String sessionStoreName;
+    private final StreamingSttClient sttClient;
+    private final long sessionTimeoutMs;
+    private final Map<String, StreamingSttSession> openSessions = new HashMap<>();
+    private ProcessorContext context;
+    private KeyValueStore<String, AudioChunk> chunks;
+    private KeyValueStore<String, ChunkSession> sessions;
+    private StreamsMetrics streamsMetrics;
+    private Sensor abandoned;
+
+    public ChunkAssemblyTransformer(String chunkStoreName, String sessionStoreName, StreamingSttClient sttClient, Duration sessionTimeout) {
+        this.chunkStoreName = chunkStoreName;
+        this.sessionStoreName = sessionStoreName;
+        this.sttClient = sttClient;
+        this.sessionTimeoutMs = sessionTimeout.toMillis();
+    }
+
+    public static StoreBuilder<KeyValueStore<String, AudioChunk>> chunkStoreBuilder(String storeName) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(storeName), Serdes.String(), new AudioChunkSerde(SerdeFormat.BINARY));
+    }
+
+    public static StoreBuilder<KeyValueStore<String, ChunkSession>> sessionStoreBuilder(String storeName) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(storeName), Serdes.String(), new JsonSerde<>(ChunkSession.class));
+    }
+
+    public static TransformerSupplier<String, AudioChunk, KeyValue<String, StreamedTranscription>> supplier(String chunkStoreName, String sessionStoreName,
+                                                                                                         StreamingSttClient sttClient, Duration sessionTimeout) {
+        return () -> new ChunkAssemblyTransformer(chunkStoreName, sessionStoreName, sttClient, sessionTimeout);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.chunks = (KeyValueStore<String, AudioChunk>) context.getStateStore(chunkStoreName);
+        this.sessions = (KeyValueStore<String, ChunkSession>) context.getStateStore(sessionStoreName);
+        this.streamsMetrics = context.metrics();
+        String taskId = context.taskId().toString();
+        abandoned = SharedSensors.acquire(streamsMetrics, "voice." + taskId + ".stt-stream.abandoned");
+        abandoned.add(new MetricName("abandoned-sessions-total", StageMetrics.GROUP, "Streamed commands whose chunks stopped arriving",
+                Map.of("task-id", taskId, "stage", "stt-stream")), new CumulativeCount());
+        context.schedule(Duration.ofMillis(Math.max(100, sessionTimeoutMs / 4)), PunctuationType.WALL_CLOCK_TIME, this::expire);
+    }
+
+    @Override
+    public KeyValue<String, StreamedTranscription> transform(String key, AudioChunk chunk) {
+        if (chunk == null || chunk.getCommandId() == null) {
+            return null;
+        }
+        String id = chunk.getCommandId();
+        ChunkSession session = sessions.get(id);
+        if (session == null) {
+            session = new ChunkSession(key, 0, -1, 0, chunk.getAudioCodec(), chunk.getLanguage());
+        }
+        if (chunk.getSequence() < session.getNextSequence()) {
+            return null; // a redelivered chunk that was already transcribed
+        }
+        chunks.put(chunkKey(id, chunk.getSequence()), chunk);
+        if (chunk.isLast()) {
+            session.setLastSequence(chunk.getSequence());
+        }
+        session.setUpdatedAt(System.currentTimeMillis());
+
+        ParsedVoiceCommand partial = null;
+        AudioChunk next;
+        while ((next = chunks.get(chunkKey(id, session.getNextSequence()))) != null) {
+            var sttSession = sttSession(id, session);
+            partial = sttSession.feed(next.getAudio() == null ? new byte[0] : next.getAudio());
+            session.setNextSequence(session.getNextSequence() + 1);
+            if (session.isComplete()) {
+                ParsedVoiceCommand result = sttSession.finish();
+                openSessions.remove(id);
+                removeChunks(id);
+                sessions.put(id, session);
+                return result == null ? null : KeyValue.pair(session.getKey(), StreamedTranscription.complete(result));
+            }
+        }
+        sessions.put(id, session);
+        return partial == null ? null : KeyValue.pair(session.getKey(), StreamedTranscription.partial(partial));
+    }
+
+    /**
+     * The session of the command on this instance, opened and fed with the chunks it already transcribed if needed.
+     */
+    private StreamingSttSession sttSession(String id, ChunkSession session) {
+        var sttSession = openSessions.get(id);
+        if (sttSession == null) {
+            sttSession = sttClient.open(id, session.getAudioCodec(), session.getLanguage());
+            if (session.getNextSequence() > 0) {
+                try (var transcribed = chunks.range(chunkKey(id, 0), chunkKey(id, session.getNextSequence() - 1))) {
+                    var replay = sttSession;
+                    transcribed.forEachRemaining(entry -> replay.feed(entry.value.getAudio() == null ? new byte[0] : entry.value.getAudio()));
+                }
+            }
+            openSessions.put(id, sttSession);
+        }
+        return sttSession;
+    }
+
+    private void expire(long now) {
+        var expired = new ArrayList<String>();
+        var completed = new ArrayList<String>();
+        try (var iterator = sessions.all()) {
+            iterator.forEachRemaining(entry -> {
+                if (now - entry.value.getUpdatedAt() > sessionTimeoutMs) {
+                    (entry.value.isComplete() ? completed : expired).add(entry.key);
+                }
+            });
+        }
+        completed.forEach(sessions::delete);
+        for (String id : expired) {
+            var sttSession = openSessions.get(id);
+            if (sttSession != null) {
+                sttSession.abort();
+            }
+            remove(id);
+            abandoned.record();
+        }
+    }
+
+    private void remove(String id) {
+        openSessions.remove(id);
+        sessions.delete(id);
+        removeChunks(id);
+    }
+
+    private void removeChunks(String id) {
+        var keys = new ArrayList<String>();
+        try (var iterator = chunks.range(chunkKey(id, 0), chunkKey(id, Integer.MAX_VALUE))) {
+            iterator.forEachRemaining(entry -> keys.add(entry.key));
+        }
+        keys.forEach(chunks::delete);
+    }
+
+    private static String chunkKey(String id, int sequence) {
+        return KEY_FORMAT.formatted(id, sequence);
+    }
+
+    @Override
+    public void close() {
+        openSessions.values().forEach(StreamingSttSession::abort);
+        openSessions.clear();
+        SharedSensors.release(streamsMetrics, abandoned);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.programmingwithmati.voice.processor;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a streamed command in the {@link ChunkAssemblyTransformer}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkSession {
+
+    /** Record key the chunks were sent with, which the transcriptions keep. */
+    private String key;
+    /** Sequence of the next chunk to transcribe; all the chunks before it were fed to the STT session. */
+    private int nextSequence;
+    /** Sequence of the last chunk, or -1 until it arrived. */
+    private int lastSequence;
+    /** Wall-clock time the last chunk arrived at. */
+    private long updatedAt;
+    private String audioCodec;
+    private String language;
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return lastSequence >= 0 && nextSequence > lastSequence;
+    }
+}
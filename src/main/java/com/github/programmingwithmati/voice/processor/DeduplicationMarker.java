@@ -0,0 +1,48 @@
+package com.github.programmingwithmati.voice.processor;
+
+import org.apache.kafka.streams.processor.Processor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.ProcessorSupplier;
+import org.apache.kafka.streams.state.WindowStore;
+
+import java.util.function.Function;
+
+/**
+ * Records the ids of the results that reached a sink, for the {@link DeduplicationTransformer} at the head of the
+ * topology. Add it to a stream after its {@code to()} so the result is sent before the id is marked.
+ */
+public class DeduplicationMarker<V> implements Processor<String, V> {
+
+    private final String storeName;
+    private final Function<V, String> idExtractor;
+    private WindowStore<String, Long> processedIds;
+    private ProcessorContext context;
+
+    public DeduplicationMarker(String storeName, Function<V, String> idExtractor) {
+        this.storeName = storeName;
+        this.idExtractor = idExtractor;
+    }
+
+    public static <V> ProcessorSupplier<String, V> supplier(String storeName, Function<V, String> idExtractor) {
+        return () -> new DeduplicationMarker<>(storeName, idExtractor);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.processedIds = (WindowStore<String, Long>) context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(String key, V value) {
+        String id = idExtractor.apply(value);
+        if (id != null) {
+            processedIds.put(id, context.timestamp(), context.timestamp());
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
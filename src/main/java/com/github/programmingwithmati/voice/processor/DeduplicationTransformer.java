@@ -0,0 +1,65 @@
+package com.github.programmingwithmati.voice.processor;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Drops records whose id was already processed within the retention period.
+ * <p>
+ * This only reads the store: ids are recorded by a {@link DeduplicationMarker} placed after the sinks, so an id is
+ * never marked as processed before its result has been sent.
+ */
+public class DeduplicationTransformer<V> implements Transformer<String, V, KeyValue<String, V>> {
+
+    private final String storeName;
+    private final Function<V, String> idExtractor;
+    private final long retentionMs;
+    private WindowStore<String, Long> processedIds;
+    private ProcessorContext context;
+
+    public DeduplicationTransformer(String storeName, Function<V, String> idExtractor, Duration retention) {
+        this.storeName = storeName;
+        this.idExtractor = idExtractor;
+        this.retentionMs = retention.toMillis();
+    }
+
+    public static StoreBuilder<WindowStore<String, Long>> storeBuilder(String storeName, Duration retention) {
+        return Stores.windowStoreBuilder(Stores.persistentWindowStore(storeName, retention, retention, false), Serdes.String(), Serdes.Long());
+    }
+
+    public static <V> TransformerSupplier<String, V, KeyValue<String, V>> supplier(String storeName, Function<V, String> idExtractor, Duration retention) {
+        return () -> new DeduplicationTransformer<>(storeName, idExtractor, retention);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.processedIds = (WindowStore<String, Long>) context.getStateStore(storeName);
+    }
+
+    @Override
+    public KeyValue<String, V> transform(String key, V value) {
+        String id = idExtractor.apply(value);
+        if (id == null) {
+            return KeyValue.pair(key, value);
+        }
+        long timestamp = context.timestamp();
+        try (var seen = processedIds.fetch(id, timestamp - retentionMs, timestamp + retentionMs)) {
+            return seen.hasNext() ? null : KeyValue.pair(key, value);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
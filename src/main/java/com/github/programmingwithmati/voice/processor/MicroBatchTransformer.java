@@ -0,0 +1,142 @@
+package com.github.programmingwithmati.voice.processor;
+
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.To;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Accumulates the records of a stream task and hands them to a batch call once {@code maxBatchSize} records
+ * are buffered or {@code linger} has passed, whichever comes first.
+ * <p>
+ * Buffered records live in a state store until their batch has been forwarded, so they survive a restart
+ * even if their offsets were already committed. The latency recorded in the {@link StageMetrics} of the stage goes
+ * from buffering a record to forwarding its result, so it includes the time spent waiting for the batch.
+ */
+public class MicroBatchTransformer<V, R> implements Transformer<String, V, KeyValue<String, R>> {
+
+    private static final long UNKNOWN_TIMESTAMP = -1L;
+
+    private final String storeName;
+    private final String stage;
+    private final Function<List<V>, List<R>> batchCall;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final List<Buffered<V>> buffer = new ArrayList<>();
+    private ProcessorContext context;
+    private KeyValueStore<String, V> pending;
+    private StageMetrics metrics;
+    private long nextSequence;
+
+    public MicroBatchTransformer(String storeName, String stage, Function<List<V>, List<R>> batchCall, int maxBatchSize, Duration linger) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1 but was " + maxBatchSize);
+        }
+        this.storeName = storeName;
+        this.stage = stage;
+        this.batchCall = batchCall;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+    }
+
+    public static <V> StoreBuilder<KeyValueStore<String, V>> storeBuilder(String storeName, Serde<V> valueSerde) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(storeName), Serdes.String(), valueSerde);
+    }
+
+    public static <V, R> TransformerSupplier<String, V, KeyValue<String, R>> supplier(String storeName, String stage, Function<List<V>, List<R>> batchCall, int maxBatchSize, Duration linger) {
+        return () -> new MicroBatchTransformer<>(storeName, stage, batchCall, maxBatchSize, linger);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.pending = (KeyValueStore<String, V>) context.getStateStore(storeName);
+        this.metrics = StageMetrics.register(context, stage);
+        // records buffered before the last shutdown go out with the first batch
+        try (var iterator = pending.all()) {
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                nextSequence = Math.max(nextSequence, SequencedKeys.sequenceOf(entry.key) + 1);
+                buffer.add(new Buffered<>(entry.key, SequencedKeys.keyOf(entry.key), UNKNOWN_TIMESTAMP, System.nanoTime(), entry.value));
+            }
+        }
+        context.schedule(linger, PunctuationType.WALL_CLOCK_TIME, timestamp -> flush());
+    }
+
+    @Override
+    public KeyValue<String, R> transform(String key, V value) {
+        var storeKey = SequencedKeys.storeKey(nextSequence++, key);
+        pending.put(storeKey, value);
+        buffer.add(new Buffered<>(storeKey, key, context.timestamp(), System.nanoTime(), value));
+        if (buffer.size() >= maxBatchSize) {
+            flush();
+        }
+        return null;
+    }
+
+    private void flush() {
+        // each batch leaves the buffer once forwarded, so a failing call only leaves the unsent records behind
+        while (!buffer.isEmpty()) {
+            var batch = buffer.subList(0, Math.min(maxBatchSize, buffer.size()));
+            var values = new ArrayList<V>(batch.size());
+            batch.forEach(buffered -> values.add(buffered.value));
+            List<R> results;
+            try {
+                results = batchCall.apply(values);
+                if (results.size() != batch.size()) {
+                    throw new IllegalStateException("Batch call returned %d results for %d records".formatted(results.size(), batch.size()));
+                }
+            } catch (RuntimeException e) {
+                metrics.recordError();
+                throw e;
+            }
+            long now = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                var buffered = batch.get(i);
+                var result = results.get(i);
+                metrics.recordLatency(now - buffered.bufferedNanos);
+                if (result != null) {
+                    context.forward(buffered.key, result, buffered.timestamp == UNKNOWN_TIMESTAMP ? To.all() : To.all().withTimestamp(buffered.timestamp));
+                }
+                pending.delete(buffered.storeKey);
+            }
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        buffer.clear();
+        metrics.close();
+    }
+
+    private static class Buffered<V> {
+        private final String storeKey;
+        private final String key;
+        private final long timestamp;
+        private final long bufferedNanos;
+        private final V value;
+
+        private Buffered(String storeKey, String key, long timestamp, long bufferedNanos, V value) {
+            this.storeKey = storeKey;
+            this.key = key;
+            this.timestamp = timestamp;
+            this.bufferedNanos = bufferedNanos;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.github.programmingwithmati.voice.processor;
+
+import com.github.programmingwithmati.voice.configuration.PriorityConfiguration;
+import com.github.programmingwithmati.voice.metrics.SharedSensors;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.To;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Schedules the commands of a task in two lanes, by device, so a backlog of bulk commands or a chatty device can't
+ * queue up ahead of the interactive commands. The device is the record key, as on the voice commands topic.
+ * <p>
+ * Records read from the bulk topic, or sent with a {@value #PRIORITY_HEADER} header of {@code low}, are bulk. The
+ * others are interactive and are forwarded right away while their device has tokens and no interactive record
+ * waiting, so a device keeps its order. Everything else waits in a
+ * store keyed by lane, device and arrival, and a wall clock punctuator releases it every scheduling interval, going
+ * round the devices of a lane one record at a time so a device with a large backlog can't starve the others. Released
+ * records keep their timestamp but not their headers. Time is the wall-clock time of the last scheduling round, so
+ * buckets refill at the granularity of the interval, and a bucket is only written when a token is taken from it.
+ */
+public class PriorityLaneTransformer implements Transformer<String, VoiceCommand, KeyValue<String, VoiceCommand>> {
+
+    public static final String PRIORITY_HEADER = "priority";
+    private static final String INTERACTIVE = "0";
+    private static final String BULK = "1";
+    private static final char SEPARATOR = '|';
+    /** Sorts after every sequence, to skip the rest of the records of a device. */
+    private static final String LAST_SEQUENCE = "9".repeat(19);
+    /** How often full buckets are removed from the store, in scheduling intervals. */
+    private static final int CLEANUP_ROUNDS = 1200;
+
+    private final String bucketStoreName;
+    private final String deferredStoreName;
+    private final String bulkTopic;
+    private final PriorityConfiguration configuration;
+    private ProcessorContext context;
+    private KeyValueStore<String, TokenBucket> buckets;
+    private TimestampedKeyValueStore<String, VoiceCommand> deferred;
+    private StreamsMetrics streamsMetrics;
+    private Sensor interactiveDeferred;
+    private Sensor bulkDeferred;
+    private long nextSequence;
+    private long now;
+    private int interactiveForwarded;
+    private int rounds;
+
+    public PriorityLaneTransformer(String bucketStoreName, String deferredStoreName, String bulkTopic, PriorityConfiguration configuration) {
+        this.bucketStoreName = bucketStoreName;
+        this.deferredStoreName = deferredStoreName;
+        this.bulkTopic = bulkTopic;
+        this.configuration = configuration;
+    }
+
+    public static StoreBuilder<KeyValueStore<String, TokenBucket>> bucketStoreBuilder(String storeName) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(storeName), Serdes.String(), new JsonSerde<>(TokenBucket.class));
+    }
+
+    public static StoreBuilder<TimestampedKeyValueStore<String, VoiceCommand>> deferredStoreBuilder(String storeName, Serde<VoiceCommand> valueSerde) {
+        return Stores.timestampedKeyValueStoreBuilder(Stores.persistentTimestampedKeyValueStore(storeName), Serdes.String(), valueSerde);
+    }
+
+    public static TransformerSupplier<String, VoiceCommand, KeyValue<String, VoiceCommand>> supplier(String bucketStoreName, String deferredStoreName,
+                                                                                                   String bulkTopic, PriorityConfiguration configuration) {
+        return () -> new PriorityLaneTransformer(bucketStoreName, deferredStoreName, bulkTopic, configuration);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.buckets = (KeyValueStore<String, TokenBucket>) context.getStateStore(bucketStoreName);
+        this.deferred = (TimestampedKeyValueStore<String, VoiceCommand>) context.getStateStore(deferredStoreName);
+        try (var iterator = deferred.all()) {
+            while (iterator.hasNext()) {
+                String storeKey = iterator.next().key;
+                nextSequence = Math.max(nextSequence, Long.parseLong(storeKey.substring(storeKey.lastIndexOf(SEPARATOR) + 1)) + 1);
+            }
+        }
+        this.streamsMetrics = context.metrics();
+        this.interactiveDeferred = sensor(context.taskId().toString(), "interactive");
+        this.bulkDeferred = sensor(context.taskId().toString(), "bulk");
+        this.now = System.currentTimeMillis();
+        context.schedule(configuration.getSchedulingInterval(), PunctuationType.WALL_CLOCK_TIME, this::release);
+    }
+
+    private Sensor sensor(String taskId, String lane) {
+        Sensor sensor = SharedSensors.acquire(streamsMetrics, "voice." + taskId + ".scheduler." + lane);
+        sensor.add(new MetricName("deferred-total", StageMetrics.GROUP, "Commands that waited for the scheduler",
+                Map.of("task-id", taskId, "stage", "scheduler", "lane", lane)), new CumulativeCount());
+        return sensor;
+    }
+
+    @Override
+    public KeyValue<String, VoiceCommand> transform(String key, VoiceCommand value) {
+        if (key == null) {
+            return KeyValue.pair(key, value); // no device to schedule it by
+        }
+        boolean bulk = isBulk();
+        if (!bulk && !hasDeferred(INTERACTIVE, key) && tryTake(key)) {
+            interactiveForwarded++;
+            return KeyValue.pair(key, value);
+        }
+        deferred.put((bulk ? BULK : INTERACTIVE) + SEPARATOR + key + SEPARATOR + String.format("%019d", nextSequence++),
+                ValueAndTimestamp.make(value, context.timestamp()));
+        (bulk ? bulkDeferred : interactiveDeferred).record();
+        return null;
+    }
+
+    /**
+     * A device with records waiting in a lane sends its next ones after them, so it keeps its order.
+     */
+    private boolean hasDeferred(String lane, String device) {
+        String prefix = lane + SEPARATOR + device + SEPARATOR;
+        try (var iterator = deferred.range(prefix, prefix + LAST_SEQUENCE)) {
+            return iterator.hasNext();
+        }
+    }
+
+    private boolean isBulk() {
+        if (bulkTopic.equals(context.topic())) {
+            return true;
+        }
+        Header priority = context.headers().lastHeader(PRIORITY_HEADER);
+        return priority != null && "low".equalsIgnoreCase(new String(priority.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Interactive records that waited go first, then the bulk lane gets what is left of the interval, but at least
+     * its weighted share.
+     */
+    private void release(long timestamp) {
+        now = timestamp;
+        int remaining = Math.max(0, configuration.getRecordsPerInterval() - interactiveForwarded);
+        remaining -= releaseLane(INTERACTIVE, remaining);
+        releaseLane(BULK, Math.max(configuration.bulkShare(), remaining));
+        interactiveForwarded = 0;
+        if (++rounds % CLEANUP_ROUNDS == 0) {
+            removeFullBuckets();
+        }
+    }
+
+    /**
+     * Goes round the devices of the lane, forwarding the oldest record of each device with a token left, until the
+     * budget is used or no device can send anymore.
+     *
+     * @return the number of records forwarded
+     */
+    private int releaseLane(String lane, int budget) {
+        int released = 0;
+        boolean progress = true;
+        while (released < budget && progress) {
+            progress = false;
+            String from = lane + SEPARATOR;
+            String to = lane + (char) (SEPARATOR + 1);
+            while (released < budget) {
+                KeyValue<String, ValueAndTimestamp<VoiceCommand>> oldest;
+                try (var iterator = deferred.range(from, to)) {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    oldest = iterator.next();
+                }
+                String device = oldest.key.substring(lane.length() + 1, oldest.key.lastIndexOf(SEPARATOR));
+                if (tryTake(device)) {
+                    context.forward(device, oldest.value.value(), To.all().withTimestamp(oldest.value.timestamp()));
+                    deferred.delete(oldest.key);
+                    released++;
+                    progress = true;
+                }
+                from = lane + SEPARATOR + device + SEPARATOR + LAST_SEQUENCE;
+            }
+        }
+        return released;
+    }
+
+    private boolean tryTake(String device) {
+        TokenBucket bucket = buckets.get(device);
+        if (bucket == null) {
+            bucket = TokenBucket.full(configuration.getDeviceBurst(), now);
+        }
+        bucket.refill(now, configuration.getDeviceRate(), configuration.getDeviceBurst());
+        if (!bucket.tryTake()) {
+            return false; // the refill is recomputed from the stored bucket, so there is nothing to write
+        }
+        buckets.put(device, bucket);
+        return true;
+    }
+
+    /**
+     * A full bucket is the same as no bucket, so devices that went quiet don't stay in the store.
+     */
+    private void removeFullBuckets() {
+        var full = new ArrayList<String>();
+        try (var iterator = buckets.all()) {
+            iterator.forEachRemaining(entry -> {
+                entry.value.refill(now, configuration.getDeviceRate(), configuration.getDeviceBurst());
+                if (entry.value.getTokens() >= configuration.getDeviceBurst()) {
+                    full.add(entry.key);
+                }
+            });
+        }
+        full.forEach(buckets::delete);
+    }
+
+    @Override
+    public void close() {
+        SharedSensors.release(streamsMetrics, interactiveDeferred);
+        SharedSensors.release(streamsMetrics, bulkDeferred);
+    }
+}
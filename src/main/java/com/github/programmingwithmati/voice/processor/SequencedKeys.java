@@ -0,0 +1,25 @@
+package com.github.programmingwithmati.voice.processor;
+
+/**
+ * Store keys made of a zero-padded sequence number and the record key, so iterating a store returns the
+ * records in the order they were accepted and the original key can be recovered after a restart.
+ */
+final class SequencedKeys {
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private SequencedKeys() {
+    }
+
+    static String storeKey(long sequence, String key) {
+        return String.format("%019d", sequence) + KEY_SEPARATOR + key;
+    }
+
+    static long sequenceOf(String storeKey) {
+        return Long.parseLong(storeKey.substring(0, storeKey.indexOf(KEY_SEPARATOR)));
+    }
+
+    static String keyOf(String storeKey) {
+        return storeKey.substring(storeKey.indexOf(KEY_SEPARATOR) + 1);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.programmingwithmati.voice.processor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tokens left to a device in the {@link PriorityLaneTransformer}, refilled lazily when the bucket is read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenBucket {
+
+    private double tokens;
+    /** Wall-clock time the tokens were counted at. */
+    private long updatedAt;
+
+    static TokenBucket full(int burst, long now) {
+        return new TokenBucket(burst, now);
+    }
+
+    void refill(long now, double ratePerSecond, int burst) {
+        if (now > updatedAt) {
+            tokens = Math.min(burst, tokens + (now - updatedAt) * ratePerSecond / 1000);
+            updatedAt = now;
+        }
+    }
+
+    boolean tryTake() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
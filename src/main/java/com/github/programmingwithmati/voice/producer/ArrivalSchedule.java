@@ -0,0 +1,38 @@
+package com.github.programmingwithmati.voice.producer;
+
+/**
+ * When each command of a run is due, as an offset from the start of the run. The schedule only depends on the
+ * configured rate, not on how fast commands are acknowledged, so a slow application doesn't slow down the load
+ * it's measured under.
+ */
+public class ArrivalSchedule {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final LoadConfiguration configuration;
+    private final long burstPeriodNanos;
+    private final long burstLengthNanos;
+    private double nextNanos;
+
+    public ArrivalSchedule(LoadConfiguration configuration) {
+        this.configuration = configuration;
+        this.burstPeriodNanos = configuration.getBurstPeriod().toNanos();
+        this.burstLengthNanos = configuration.getBurstLength().toNanos();
+    }
+
+    /**
+     * @return the offset of the next command, in nanoseconds from the start of the run
+     */
+    public long nextNanos() {
+        long due = (long) nextNanos;
+        nextNanos += NANOS_PER_SECOND / rateAt(due);
+        return due;
+    }
+
+    double rateAt(long offsetNanos) {
+        if (configuration.getShape() == LoadConfiguration.RateShape.BURSTY && offsetNanos % burstPeriodNanos < burstLengthNanos) {
+            return configuration.getRate() * configuration.getBurstFactor();
+        }
+        return configuration.getRate();
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.programmingwithmati.voice.producer;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Correlates the results read from the output topics with the commands sent, by id, and records the time from
+ * when each command was due to be sent to when its result was read, per output topic.
+ * <p>
+ * Latencies are recorded in microseconds in HdrHistogram {@link Recorder}s, which the reporting thread swaps for
+ * interval histograms without stopping the threads recording into them.
+ */
+public class LatencyTracker {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final Map<String, Histogram> totals = new LinkedHashMap<>();
+    private final Map<String, Histogram> intervals = new LinkedHashMap<>();
+    private final HistogramLogWriter logWriter;
+
+    /**
+     * @param logWriter where interval histograms are logged, tagged with their topic, or {@code null}
+     */
+    public LatencyTracker(Iterable<String> topics, HistogramLogWriter logWriter) {
+        for (String topic : topics) {
+            recorders.put(topic, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            totals.put(topic, new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+        }
+        this.logWriter = logWriter;
+    }
+
+    /**
+     * @param dueNanos {@link System#nanoTime()} the command was due to be sent at, not when it was actually sent
+     */
+    public void sent(String id, long dueNanos) {
+        pending.put(id, dueNanos);
+    }
+
+    public void failed(String id) {
+        pending.remove(id);
+    }
+
+    /**
+     * @return whether the result belonged to a command of this run
+     */
+    public boolean received(String topic, String id, long receivedNanos) {
+        Long dueNanos = pending.remove(id);
+        if (dueNanos == null) {
+            return false;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, receivedNanos - dueNanos));
+        recorders.get(topic).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        return true;
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Prints the latencies of the last interval, and logs them if there is a log writer. Called by one thread only.
+     */
+    public synchronized void reportInterval(PrintStream out) {
+        for (Map.Entry<String, Recorder> recorder : recorders.entrySet()) {
+            var interval = recorder.getValue().getIntervalHistogram(intervals.get(recorder.getKey()));
+            intervals.put(recorder.getKey(), interval);
+            totals.get(recorder.getKey()).add(interval);
+            if (logWriter != null) {
+                interval.setTag(recorder.getKey());
+                logWriter.outputIntervalHistogram(interval);
+            }
+            out.println(summary(recorder.getKey(), interval));
+        }
+    }
+
+    /**
+     * Prints the latencies of the whole run, with their full percentile distribution.
+     */
+    public synchronized void reportTotal(PrintStream out) {
+        reportInterval(new PrintStream(OutputStream.nullOutputStream())); // adds the last, partial interval
+        for (Map.Entry<String, Histogram> total : totals.entrySet()) {
+            out.println(summary(total.getKey(), total.getValue()));
+            if (total.getValue().getTotalCount() > 0) {
+                total.getValue().outputPercentileDistribution(out, 1000.0); // in milliseconds
+            }
+        }
+    }
+
+    private static String summary(String topic, Histogram histogram) {
+        return "%-22s count=%-8d p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms".formatted(topic, histogram.getTotalCount(),
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.programmingwithmati.voice.producer;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a {@link LoadGenerator} run. {@link #fromSystemProperties()} reads each setting from a {@code load.}
+ * system property, e.g. {@code -Dload.rate=500 -Dload.shape=BURSTY -Dload.duration=PT1H}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LoadConfiguration {
+
+    public enum RateShape {
+        /** The same rate for the whole run. */
+        CONSTANT,
+        /** The base rate, multiplied by {@code burstFactor} for {@code burstLength} at the start of every {@code burstPeriod}. */
+        BURSTY
+    }
+
+    @Builder.Default
+    String bootstrapServers = "localhost:29092";
+
+    /**
+     * Commands sent per second, on a schedule that doesn't wait for the application (open loop).
+     */
+    @Builder.Default
+    double rate = 100;
+
+    @Builder.Default
+    RateShape shape = RateShape.CONSTANT;
+
+    @Builder.Default
+    double burstFactor = 10;
+
+    @Builder.Default
+    Duration burstPeriod = Duration.ofSeconds(10);
+
+    @Builder.Default
+    Duration burstLength = Duration.ofSeconds(1);
+
+    @Builder.Default
+    Duration duration = Duration.ofMinutes(1);
+
+    /**
+     * Number of distinct record keys, e.g. devices, the commands are spread over.
+     */
+    @Builder.Default
+    int keyCardinality = 1_000;
+
+    /**
+     * Relative weight of each language tag.
+     */
+    @Builder.Default
+    Map<String, Double> languages = Map.of("en-US", 0.7, "es-AR", 0.3);
+
+    /**
+     * Sends not yet acknowledged by the broker. A full window delays the next send, but its latency still counts
+     * from the time it was scheduled.
+     */
+    @Builder.Default
+    int maxInFlight = 1_000;
+
+    @Builder.Default
+    Duration reportInterval = Duration.ofSeconds(10);
+
+    /**
+     * How long to wait for the results of the last commands after the run.
+     */
+    @Builder.Default
+    Duration drainTimeout = Duration.ofSeconds(30);
+
+    /**
+     * File the interval histograms are logged to, for HdrHistogram's log tools. {@code null} logs none.
+     */
+    @Builder.Default
+    Path histogramLog = null;
+
+    @Builder.Default
+    long seed = System.nanoTime();
+
+    public static LoadConfiguration fromSystemProperties() {
+        var defaults = LoadConfiguration.builder().build();
+        var builder = defaults.toBuilder()
+                .bootstrapServers(System.getProperty("load.bootstrap.servers", defaults.getBootstrapServers()))
+                .rate(Double.parseDouble(System.getProperty("load.rate", String.valueOf(defaults.getRate()))))
+                .shape(RateShape.valueOf(System.getProperty("load.shape", defaults.getShape().name())))
+                .burstFactor(Double.parseDouble(System.getProperty("load.burst.factor", String.valueOf(defaults.getBurstFactor()))))
+                .burstPeriod(Duration.parse(System.getProperty("load.burst.period", defaults.getBurstPeriod().toString())))
+                .burstLength(Duration.parse(System.getProperty("load.burst.length", defaults.getBurstLength().toString())))
+                .duration(Duration.parse(System.getProperty("load.duration", defaults.getDuration().toString())))
+                .keyCardinality(Integer.getInteger("load.keys", defaults.getKeyCardinality()))
+                .maxInFlight(Integer.getInteger("load.max.in.flight", defaults.getMaxInFlight()))
+                .reportInterval(Duration.parse(System.getProperty("load.report.interval", defaults.getReportInterval().toString())))
+                .drainTimeout(Duration.parse(System.getProperty("load.drain.timeout", defaults.getDrainTimeout().toString())))
+                .seed(Long.getLong("load.seed", defaults.getSeed()));
+        if (System.getProperty("load.languages") != null) {
+            builder.languages(parseLanguages(System.getProperty("load.languages")));
+        }
+        if (System.getProperty("load.histogram.log") != null) {
+            builder.histogramLog(Path.of(System.getProperty("load.histogram.log")));
+        }
+        return builder.build().validate();
+    }
+
+    /**
+     * Parses weights written as {@code language:weight}, separated by {@code ,}, e.g. {@code en-US:0.7,es-AR:0.3}.
+     */
+    public static Map<String, Double> parseLanguages(String languages) {
+        var weights = new LinkedHashMap<String, Double>();
+        for (String entry : languages.split(",")) {
+            String[] parts = entry.trim().split(":");
+            try {
+                weights.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid language weight: " + entry, e);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a setting is out of its range
+     */
+    public LoadConfiguration validate() {
+        if (rate <= 0 || burstFactor <= 0 || keyCardinality < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("rate, burstFactor, keyCardinality and maxInFlight must be positive");
+        }
+        if (burstPeriod.isZero() || burstPeriod.isNegative() || burstLength.isNegative() || burstLength.compareTo(burstPeriod) > 0) {
+            throw new IllegalArgumentException("burstLength must be between 0 and burstPeriod (" + burstPeriod + ") but was " + burstLength);
+        }
+        if (languages.isEmpty() || languages.values().stream().anyMatch(weight -> weight < 0) || languages.values().stream().mapToDouble(Double::doubleValue).sum() <= 0) {
+            throw new IllegalArgumentException("Language weights must be non-negative with a positive sum: " + languages);
+        }
+        return this;
+    }
+}
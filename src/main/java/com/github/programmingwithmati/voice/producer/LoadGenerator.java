@@ -0,0 +1,161 @@
+package com.github.programmingwithmati.voice.producer;
+
+import com.github.programmingwithmati.voice.VoiceParserTopology;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.ParsedVoiceCommandSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import org.HdrHistogram.HistogramLogWriter;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.Serdes;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sends generated commands to the application at a configured rate and reports the end-to-end latency, from when a
+ * command was due to be sent to when its result was read from {@code recognized-commands} or
+ * {@code unrecognized-commands}, correlated by id.
+ * <p>
+ * The load is open loop: commands are due on an {@link ArrivalSchedule} that ignores how the application keeps up,
+ * and latencies are measured from the due time, so a stalled application shows up in the percentiles instead of
+ * silently lowering the load (coordinated omission). Sends are asynchronous with at most {@code maxInFlight} waiting
+ * for the broker. Run it for minutes or hours against a local broker to soak the application:
+ * {@code -Dload.rate=200 -Dload.shape=BURSTY -Dload.duration=PT2H}.
+ */
+public class LoadGenerator {
+
+    private static final List<String> OUTPUT_TOPICS = List.of(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, VoiceParserTopology.UNRECOGNIZED_COMMAND_TOPIC);
+
+    private final LoadConfiguration configuration;
+    private final PrintStream out;
+
+    public LoadGenerator(LoadConfiguration configuration, PrintStream out) {
+        this.configuration = configuration;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(LoadConfiguration.fromSystemProperties(), System.out).run();
+    }
+
+    public void run() throws Exception {
+        HistogramLogWriter logWriter = null;
+        if (configuration.getHistogramLog() != null) {
+            logWriter = new HistogramLogWriter(configuration.getHistogramLog().toFile());
+            logWriter.outputLogFormatVersion();
+            logWriter.outputLegend();
+        }
+        var tracker = new LatencyTracker(OUTPUT_TOPICS, logWriter);
+        var sendErrors = new AtomicLong();
+        var reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "load-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (var consumer = createConsumer(); var producer = VoiceCommandProducer.createProducer(Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, configuration.getBootstrapServers()))) {
+            var resultReader = new Thread(() -> readResults(consumer, tracker), "load-results");
+            resultReader.start();
+            long reportMillis = configuration.getReportInterval().toMillis();
+            reporter.scheduleAtFixedRate(() -> {
+                out.printf("pending=%d send-errors=%d%n", tracker.getPending(), sendErrors.get());
+                tracker.reportInterval(out);
+            }, reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+            long sent = send(producer, tracker, sendErrors);
+            producer.flush();
+            long drainDeadline = System.nanoTime() + configuration.getDrainTimeout().toNanos();
+            while (tracker.getPending() > 0 && System.nanoTime() < drainDeadline) {
+                Thread.sleep(100);
+            }
+
+            reporter.shutdownNow();
+            consumer.wakeup();
+            resultReader.join();
+            out.printf("sent=%d send-errors=%d without-result=%d%n", sent, sendErrors.get(), tracker.getPending());
+            tracker.reportTotal(out);
+        } finally {
+            reporter.shutdownNow();
+            if (logWriter != null) {
+                logWriter.close();
+            }
+        }
+    }
+
+    private long send(KafkaProducer<String, VoiceCommand> producer, LatencyTracker tracker, AtomicLong sendErrors) throws InterruptedException {
+        var schedule = new ArrivalSchedule(configuration);
+        var generator = new VoiceCommandGenerator(configuration);
+        UnaryOperator<VoiceCommand> claimCheck = VoiceCommandProducer.claimCheck();
+        var inFlight = new Semaphore(configuration.getMaxInFlight());
+        long durationNanos = configuration.getDuration().toNanos();
+        long start = System.nanoTime();
+        long sent = 0;
+        for (long offset = schedule.nextNanos(); offset < durationNanos; offset = schedule.nextNanos()) {
+            long due = start + offset;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            VoiceCommand voiceCommand = claimCheck.apply(generator.nextCommand());
+            String id = voiceCommand.getId();
+            tracker.sent(id, due);
+            producer.send(new ProducerRecord<>(VoiceParserTopology.VOICE_COMMANDS_TOPIC, generator.nextKey(), voiceCommand), (metadata, error) -> {
+                inFlight.release();
+                if (error != null) {
+                    tracker.failed(id);
+                    sendErrors.incrementAndGet();
+                }
+            });
+            sent++;
+        }
+        return sent;
+    }
+
+    /**
+     * Reads from the end of the output topics, positioned before the first command is sent so no result is missed.
+     */
+    private KafkaConsumer<String, ParsedVoiceCommand> createConsumer() {
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, configuration.getBootstrapServers(),
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        var consumer = new KafkaConsumer<>(props, Serdes.String().deserializer(), new ParsedVoiceCommandSerde(SerdeFormat.JSON).deserializer());
+        var partitions = new ArrayList<TopicPartition>();
+        for (String topic : OUTPUT_TOPICS) {
+            consumer.partitionsFor(topic).forEach(partition -> partitions.add(new TopicPartition(topic, partition.partition())));
+        }
+        consumer.assign(partitions);
+        consumer.seekToEnd(partitions);
+        partitions.forEach(consumer::position); // seekToEnd is lazy
+        return consumer;
+    }
+
+    private static void readResults(KafkaConsumer<String, ParsedVoiceCommand> consumer, LatencyTracker tracker) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (var record : consumer.poll(Duration.ofMillis(100))) {
+                    if (record.value() != null) {
+                        tracker.received(record.topic(), record.value().getId(), System.nanoTime());
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // the run is over
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.programmingwithmati.voice.producer;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates commands with a unique id, a key out of {@code keyCardinality}, a language drawn from the configured
+ * mix and the audio of one of the bundled recordings, so the audio sizes follow those of real commands.
+ */
+public class VoiceCommandGenerator {
+
+    public static final List<String> BUNDLED_AUDIO = List.of("audio/callJohn.flac", "audio/llamarJuan.flac", "audio/gibberish.flac");
+
+    private final Random random;
+    private final int keyCardinality;
+    private final List<String> languages = new ArrayList<>();
+    private final double[] cumulativeWeights;
+    private final List<byte[]> audioSamples = new ArrayList<>();
+
+    public VoiceCommandGenerator(LoadConfiguration configuration) {
+        this.random = new Random(configuration.getSeed());
+        this.keyCardinality = configuration.getKeyCardinality();
+        this.cumulativeWeights = new double[configuration.getLanguages().size()];
+        double total = 0;
+        for (Map.Entry<String, Double> language : configuration.getLanguages().entrySet()) {
+            total += language.getValue();
+            cumulativeWeights[languages.size()] = total;
+            languages.add(language.getKey());
+        }
+        for (String resource : BUNDLED_AUDIO) {
+            try (var input = VoiceCommandGenerator.class.getClassLoader().getResourceAsStream(resource)) {
+                if (input == null) {
+                    throw new IllegalStateException("Missing bundled audio " + resource);
+                }
+                audioSamples.add(input.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public String nextKey() {
+        return "device-" + random.nextInt(keyCardinality);
+    }
+
+    public VoiceCommand nextCommand() {
+        return VoiceCommand.builder()
+                .id(new UUID(random.nextLong(), random.nextLong()).toString())
+                .audio(audioSamples.get(random.nextInt(audioSamples.size())))
+                .language(nextLanguage())
+                .audioCodec("FLAC")
+                .build();
+    }
+
+    private String nextLanguage() {
+        double draw = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return languages.get(i);
+            }
+        }
+        return languages.get(languages.size() - 1);
+    }
+}
@@ -2,8 +2,11 @@ package com.github.programmingwithmati.voice.producer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.programmingwithmati.voice.VoiceParserTopology;
+import com.github.programmingwithmati.voice.blob.ClaimCheck;
+import com.github.programmingwithmati.voice.blob.FileBlobStore;
 import com.github.programmingwithmati.voice.model.VoiceCommand;
-import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.serdes.VoiceCommandSerde;
 import lombok.SneakyThrows;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -11,26 +14,51 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.Serdes;
 
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 public class VoiceCommandProducer {
 
     public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+    /**
+     * Sends the sample commands as recorded by the device given with the {@code device.id} system property, which is
+     * the record key the topology expects.
+     */
     @SneakyThrows
     public static void main(String[] args) {
-        Map<String, Object> props = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:29092");
-        var voiceCommandKafkaProducer = new KafkaProducer<>(props, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        var voiceCommandKafkaProducer = createProducer(Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:29092"));
+        var device = System.getProperty("device.id", "device-1");
 
         Stream.of(OBJECT_MAPPER.readValue(VoiceCommandProducer.class.getClassLoader().getResourceAsStream("data/test-data.json"), VoiceCommand[].class))
-                .map(voiceCommand -> new ProducerRecord<>(VoiceParserTopology.VOICE_COMMANDS_TOPIC, voiceCommand.getId(), voiceCommand))
+                .map(claimCheck())
+                .map(voiceCommand -> new ProducerRecord<>(VoiceParserTopology.VOICE_COMMANDS_TOPIC, device, voiceCommand))
                 .map(voiceCommandKafkaProducer::send)
                 .forEach(VoiceCommandProducer::waitForProducer);
 
     }
 
+    /**
+     * A producer writing commands in the format of the {@code serde.format} system property.
+     */
+    public static KafkaProducer<String, VoiceCommand> createProducer(Map<String, Object> props) {
+        var serdeFormat = SerdeFormat.valueOf(System.getProperty("serde.format", SerdeFormat.JSON.name()));
+        return new KafkaProducer<>(props, Serdes.String().serializer(), new VoiceCommandSerde(serdeFormat).serializer());
+    }
+
+    /**
+     * With a {@code claim.check.dir}, large audio goes to the blob store and only its reference to Kafka.
+     */
+    public static UnaryOperator<VoiceCommand> claimCheck() {
+        var claimCheckDir = System.getProperty("claim.check.dir");
+        return claimCheckDir == null
+                ? UnaryOperator.identity()
+                : new ClaimCheck(new FileBlobStore(Path.of(claimCheckDir)), Integer.getInteger("claim.check.threshold", 16 * 1024))::checkIn;
+    }
+
     @SneakyThrows
     private static void waitForProducer(Future<RecordMetadata> recordMetadataFuture) {
         recordMetadataFuture.get();
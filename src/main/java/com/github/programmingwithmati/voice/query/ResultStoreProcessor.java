@@ -0,0 +1,61 @@
+package com.github.programmingwithmati.voice.query;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.serdes.ParsedVoiceCommandSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.Processor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.ProcessorSupplier;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+
+import java.time.Duration;
+
+/**
+ * Keeps the results it receives under their record key and timestamp, so they can be looked up with interactive
+ * queries until they fall out of the retention period.
+ */
+public class ResultStoreProcessor implements Processor<String, ParsedVoiceCommand> {
+
+    private final String storeName;
+    private WindowStore<String, ParsedVoiceCommand> results;
+    private ProcessorContext context;
+
+    public ResultStoreProcessor(String storeName) {
+        this.storeName = storeName;
+    }
+
+    /**
+     * @param retainDuplicates keep every result of a key with the same timestamp instead of the last one, for keys
+     *                         that have many results such as devices
+     */
+    public static StoreBuilder<WindowStore<String, ParsedVoiceCommand>> storeBuilder(String storeName, Duration retention, boolean retainDuplicates) {
+        // results are stored at their timestamp, the window size only has to fit in the retention
+        return Stores.windowStoreBuilder(Stores.persistentWindowStore(storeName, retention, Duration.ofMillis(1), retainDuplicates),
+                Serdes.String(), new ParsedVoiceCommandSerde(SerdeFormat.BINARY));
+    }
+
+    public static ProcessorSupplier<String, ParsedVoiceCommand> supplier(String storeName) {
+        return () -> new ResultStoreProcessor(storeName);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.results = (WindowStore<String, ParsedVoiceCommand>) context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(String key, ParsedVoiceCommand value) {
+        if (key != null && value != null) {
+            results.put(key, value, context.timestamp());
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.programmingwithmati.voice.query;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads of the result stores kept by {@link ResultStoreProcessor}s.
+ */
+public final class TranscriptionQueries {
+
+    private TranscriptionQueries() {
+    }
+
+    /**
+     * @return the most recent result of the command, if it is still retained
+     */
+    public static Optional<ParsedVoiceCommand> latest(ReadOnlyWindowStore<String, ParsedVoiceCommand> resultsById, String id) {
+        try (var results = resultsById.backwardFetch(id, Instant.EPOCH, Instant.ofEpochMilli(Long.MAX_VALUE))) {
+            return results.hasNext() ? Optional.of(results.next().value) : Optional.empty();
+        }
+    }
+
+    /**
+     * @param languagePrefix only return results whose language starts with it, or every result when {@code null}
+     * @return the results of the device with a timestamp between {@code from} and {@code to}, oldest first
+     */
+    public static List<ParsedVoiceCommand> recent(ReadOnlyWindowStore<String, ParsedVoiceCommand> resultsByDevice, String device,
+                                                  Instant from, Instant to, String languagePrefix) {
+        var recent = new ArrayList<ParsedVoiceCommand>();
+        try (var results = resultsByDevice.fetch(device, from, to)) {
+            results.forEachRemaining(result -> {
+                String language = result.value.getLanguage();
+                if (languagePrefix == null || (language != null && language.startsWith(languagePrefix))) {
+                    recent.add(result.value);
+                }
+            });
+        }
+        return recent;
+    }
+}
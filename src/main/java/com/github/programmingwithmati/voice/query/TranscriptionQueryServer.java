@@ -0,0 +1,201 @@
+package com.github.programmingwithmati.voice.query;
+
+import com.github.programmingwithmati.voice.VoiceParserTopology;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Serves the result stores of the topology over HTTP:
+ * <ul>
+ *     <li>{@code GET /commands/{id}}: the latest result of a command</li>
+ *     <li>{@code GET /devices/{device}/commands?since=PT10M&language=es}: the results of a device, the record key
+ *     of its commands, optionally for a language prefix, from the last {@code since} (one hour by default)</li>
+ * </ul>
+ * A key owned by another instance is looked up with the host metadata of the application and the request is
+ * forwarded to it once, so every instance can answer for every key. Instances must run with
+ * {@code application.server} set to the host and port they serve on.
+ */
+@Slf4j
+public class TranscriptionQueryServer implements AutoCloseable {
+
+    private static final String FORWARDED_HEADER = "X-Forwarded-By";
+    private static final Duration DEFAULT_SINCE = Duration.ofHours(1);
+
+    private final KafkaStreams streams;
+    private final HostInfo self;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private TranscriptionQueryServer(KafkaStreams streams, HostInfo self, HttpServer server) {
+        this.streams = streams;
+        this.self = self;
+        this.server = server;
+    }
+
+    /**
+     * @param self the {@code application.server} of this instance, whose port the server listens on
+     */
+    public static TranscriptionQueryServer start(KafkaStreams streams, HostInfo self) throws IOException {
+        var server = HttpServer.create(new InetSocketAddress(self.port()), 0);
+        var queryServer = new TranscriptionQueryServer(streams, self, server);
+        server.createContext("/", queryServer::handle);
+        server.setExecutor(queryServer.executor);
+        server.start();
+        log.info("Serving interactive queries on {}:{}", self.host(), self.port());
+        return queryServer;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try {
+            response = respond(exchange);
+        } catch (InvalidStateStoreException e) {
+            // the store is migrating or restoring, the client should try again shortly
+            response = Response.error(503, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Failed to answer {}", exchange.getRequestURI(), e);
+            response = Response.error(500, e.getMessage());
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status, response.body.length);
+        try (var body = exchange.getResponseBody()) {
+            body.write(response.body);
+        }
+    }
+
+    private Response respond(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            return Response.error(405, "Only GET is supported");
+        }
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length == 3 && path[1].equals("commands")) {
+            String id = decode(path[2]);
+            return route(exchange, VoiceParserTopology.RESULTS_BY_ID_STORE, id, store -> TranscriptionQueries.latest(store, id)
+                    .map(Response::json)
+                    .orElseGet(() -> Response.error(404, "No result for command " + id)));
+        }
+        if (path.length == 4 && path[1].equals("devices") && path[3].equals("commands")) {
+            String device = decode(path[2]);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            Duration since = query.containsKey("since") ? Duration.parse(query.get("since")) : DEFAULT_SINCE;
+            Instant now = Instant.now();
+            return route(exchange, VoiceParserTopology.RESULTS_BY_DEVICE_STORE, device, store ->
+                    Response.json(TranscriptionQueries.recent(store, device, now.minus(since), now, query.get("language"))));
+        }
+        return Response.error(404, "Unknown path " + exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Reads the partition of the key from the local store when this instance owns it, and forwards the request to
+     * its owner otherwise.
+     */
+    private Response route(HttpExchange exchange, String storeName, String key,
+                           Function<ReadOnlyWindowStore<String, ParsedVoiceCommand>, Response> read) throws IOException {
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(storeName, key, Serdes.String().serializer());
+        if (metadata == null || KeyQueryMetadata.NOT_AVAILABLE.equals(metadata)) {
+            return Response.error(503, "The owner of " + key + " is not known yet");
+        }
+        if (self.equals(metadata.activeHost())) {
+            return read.apply(streams.store(StoreQueryParameters
+                    .fromNameAndType(storeName, QueryableStoreTypes.<String, ParsedVoiceCommand>windowStore())
+                    .withPartition(metadata.partition())));
+        }
+        if (exchange.getRequestHeaders().containsKey(FORWARDED_HEADER)) {
+            // the partition moved while the request was forwarded, don't bounce it between instances
+            return Response.error(503, "The owner of " + key + " is changing");
+        }
+        return forward(metadata.activeHost(), exchange.getRequestURI());
+    }
+
+    private Response forward(HostInfo owner, URI uri) throws IOException {
+        var request = HttpRequest.newBuilder(URI.create("http://" + owner.host() + ":" + owner.port() + uri.getRawPath()
+                        + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery())))
+                .header(FORWARDED_HEADER, self.host() + ":" + self.port())
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return new Response(response.statusCode(), response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.error(503, "Interrupted while asking " + owner.host() + ":" + owner.port());
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        var parameters = new HashMap<String, String>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private static final class Response {
+        private final int status;
+        private final byte[] body;
+
+        private Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private static Response json(Object value) {
+            try {
+                return new Response(200, JsonSerde.OBJECT_MAPPER.writeValueAsBytes(value));
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't write the response", e);
+            }
+        }
+
+        private static Response error(int status, String message) {
+            return new Response(status, JsonSerde.OBJECT_MAPPER.createObjectNode().put("error", message).toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import lombok.Value;
+
+/**
+ * The outcome of a guarded backend call: its result, or the reason it failed together with the input to try
+ * again later.
+ */
+@Value
+public class Attempt<V, R> {
+
+    V input;
+    R result;
+    BackendUnavailableException.Reason failure;
+
+    public static <V, R> Attempt<V, R> succeeded(V input, R result) {
+        return new Attempt<>(input, result, null);
+    }
+
+    public static <V, R> Attempt<V, R> failed(V input, BackendUnavailableException.Reason failure) {
+        return new Attempt<>(input, null, failure);
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+}
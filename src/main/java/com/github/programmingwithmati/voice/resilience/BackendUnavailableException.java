@@ -0,0 +1,35 @@
+package com.github.programmingwithmati.voice.resilience;
+
+/**
+ * A backend call that was not made, or not answered in time, so its command has to be tried again later.
+ */
+public class BackendUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Reason reason;
+
+    public BackendUnavailableException(String backend, Reason reason) {
+        this(backend, reason, null);
+    }
+
+    public BackendUnavailableException(String backend, Reason reason, Throwable cause) {
+        super(backend + " call " + reason.name().toLowerCase().replace('_', ' '), cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public enum Reason {
+        /** The circuit breaker is open and the backend wasn't called. */
+        CIRCUIT_OPEN,
+        /** Every permit of the adaptive concurrency limit was taken and the backend wasn't called. */
+        CONCURRENCY_LIMITED,
+        /** The call didn't finish before its deadline and was interrupted. */
+        TIMEOUT,
+        /** The backend answered with an error, or the call couldn't be submitted. */
+        FAILED
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import com.github.programmingwithmati.voice.metrics.SharedSensors;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.metrics.stats.Rate;
+import org.apache.kafka.common.metrics.stats.WindowedCount;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Records why the call of a stage failed, for the commands sent to its retry topics: the reason, {@code FAILED}
+ * unless the call was rejected by a {@link ResilientBackend} or timed out, and the exception go in the
+ * {@link FailureHeaders}, and the fallbacks are counted per stage and reason.
+ */
+public class FallbackRecorder implements AutoCloseable {
+
+    private final String stage;
+    private final String taskId;
+    private final StreamsMetrics streamsMetrics;
+    private final Map<BackendUnavailableException.Reason, Sensor> sensors = new EnumMap<>(BackendUnavailableException.Reason.class);
+
+    public FallbackRecorder(ProcessorContext context, String stage) {
+        this.stage = stage;
+        this.taskId = context.taskId().toString();
+        this.streamsMetrics = context.metrics();
+    }
+
+    public BackendUnavailableException.Reason record(Headers headers, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause(); // the failure of an asynchronous call
+        }
+        var reason = BackendUnavailableException.Reason.FAILED;
+        Throwable failure = error;
+        if (error instanceof BackendUnavailableException) {
+            reason = ((BackendUnavailableException) error).getReason();
+            failure = error.getCause() == null ? error : error.getCause(); // the timeout or the backend error behind it
+        } else if (error instanceof TimeoutException) {
+            reason = BackendUnavailableException.Reason.TIMEOUT;
+        }
+        FailureHeaders.set(headers, FailureHeaders.REASON, reason);
+        FailureHeaders.setException(headers, failure);
+        sensors.computeIfAbsent(reason, this::sensor).record();
+        return reason;
+    }
+
+    private Sensor sensor(BackendUnavailableException.Reason reason) {
+        Map<String, String> tags = Map.of("task-id", taskId, "stage", stage, "reason", reason.name());
+        Sensor sensor = SharedSensors.acquire(streamsMetrics, "voice." + taskId + "." + stage + ".fallback." + reason);
+        sensor.add(new MetricName("fallback-total", StageMetrics.GROUP, "Commands sent to the retry topic", tags), new CumulativeCount());
+        sensor.add(new MetricName("fallback-rate", StageMetrics.GROUP, "Commands sent to the retry topic per second", tags), new Rate(new WindowedCount()));
+        return sensor;
+    }
+
+    @Override
+    public void close() {
+        sensors.values().forEach(sensor -> SharedSensors.release(streamsMetrics, sensor));
+    }
+}
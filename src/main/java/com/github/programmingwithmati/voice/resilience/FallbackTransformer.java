@@ -0,0 +1,52 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+/**
+ * Turns the exceptions of a value transformation into failed {@link Attempt}s, so the topology can send their input
+ * to a retry topic instead of stopping the stream thread. The failure is recorded by a {@link FallbackRecorder}.
+ * A successful call clears the headers a retried input came back with, so they don't reach its result.
+ */
+public class FallbackTransformer<V, R> implements ValueTransformerWithKey<String, V, Attempt<V, R>> {
+
+    private final String stage;
+    private final ValueTransformerWithKey<String, V, R> delegate;
+    private ProcessorContext context;
+    private FallbackRecorder fallbacks;
+
+    public FallbackTransformer(String stage, ValueTransformerWithKey<String, V, R> delegate) {
+        this.stage = stage;
+        this.delegate = delegate;
+    }
+
+    public static <V, R> ValueTransformerWithKeySupplier<String, V, Attempt<V, R>> wrap(String stage, ValueTransformerWithKeySupplier<String, V, R> supplier) {
+        return () -> new FallbackTransformer<>(stage, supplier.get());
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        delegate.init(context);
+        this.context = context;
+        this.fallbacks = new FallbackRecorder(context, stage);
+    }
+
+    @Override
+    public Attempt<V, R> transform(String readOnlyKey, V value) {
+        try {
+            R result = delegate.transform(readOnlyKey, value);
+            FailureHeaders.clear(context.headers());
+            return Attempt.succeeded(value, result);
+        } catch (RuntimeException e) {
+            return Attempt.failed(value, fallbacks.record(context.headers(), e));
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        fallbacks.close();
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import com.github.programmingwithmati.voice.configuration.ResilienceConfiguration;
+import com.github.programmingwithmati.voice.service.AdaptiveConcurrencyLimit;
+import com.github.programmingwithmati.voice.service.CallExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Guards the calls to one backend with a circuit breaker, and with the adaptive concurrency limit and deadline per
+ * call of its {@link CallExecutor}. A call that can't be made or doesn't finish in time fails with a
+ * {@link BackendUnavailableException} right away instead of holding the caller until the backend recovers.
+ * <p>
+ * A blocking {@link #call} comes from a stream thread, so it's rejected when every permit of the limit is taken
+ * rather than waiting for one. An asynchronous {@link #callAsync} waits for a permit in the executor, so the limit
+ * bounds how many of the calls in flight in the {@code ASYNC} modes reach the backend at once.
+ */
+public class ResilientBackend {
+
+    private final String name;
+    private final CallExecutor callExecutor;
+    private final CircuitBreaker circuitBreaker;
+
+    public ResilientBackend(String name, CallExecutor callExecutor, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.callExecutor = callExecutor;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * @param callExecutor runs the calls, limited by {@link #concurrencyLimit}, and interrupts them after the call
+     *                     timeout of the configuration
+     */
+    public static ResilientBackend create(String name, CallExecutor callExecutor, ResilienceConfiguration configuration) {
+        return new ResilientBackend(name, callExecutor,
+                new CircuitBreaker(configuration.getSlidingWindowSize(), configuration.getMinimumCalls(),
+                        configuration.getFailureRateThreshold(), configuration.getOpenDuration()));
+    }
+
+    public static AdaptiveConcurrencyLimit concurrencyLimit(ResilienceConfiguration configuration) {
+        return new AdaptiveConcurrencyLimit(configuration.getInitialConcurrency(), configuration.getMinConcurrency(),
+                configuration.getMaxConcurrency(), configuration.getLatencyThreshold(), configuration.getBackoffRatio());
+    }
+
+    public <T> T call(Supplier<T> call) {
+        try {
+            return guard(call, true).join();
+        } catch (CompletionException e) {
+            throw (BackendUnavailableException) e.getCause();
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(Supplier<T> call) {
+        return guard(call, false);
+    }
+
+    private <T> CompletableFuture<T> guard(Supplier<T> call, boolean rejectWhenLimited) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(new BackendUnavailableException(name, BackendUnavailableException.Reason.CIRCUIT_OPEN));
+        }
+        CompletableFuture<T> result;
+        try {
+            result = rejectWhenLimited ? callExecutor.trySubmit(call) : callExecutor.submit(call);
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(); // the call couldn't be submitted, e.g. the executor was closed
+            return CompletableFuture.failedFuture(new BackendUnavailableException(name, BackendUnavailableException.Reason.FAILED, e));
+        }
+        if (result == null) {
+            circuitBreaker.onIgnored();
+            return CompletableFuture.failedFuture(new BackendUnavailableException(name, BackendUnavailableException.Reason.CONCURRENCY_LIMITED));
+        }
+        return result.handle((value, error) -> {
+            if (error == null) {
+                circuitBreaker.onSuccess();
+                return value;
+            }
+            circuitBreaker.onFailure();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            throw new BackendUnavailableException(name, cause instanceof TimeoutException
+                    ? BackendUnavailableException.Reason.TIMEOUT : BackendUnavailableException.Reason.FAILED, cause);
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return callExecutor.getPermits();
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.service.AsyncSttClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls another {@link SttClient} through a {@link ResilientBackend}, so a slow or failing STT service throws a
+ * {@link BackendUnavailableException} instead of blocking. Its asynchronous calls run the blocking ones in the
+ * backend's executor.
+ */
+public class ResilientSttClient implements SttClient, AsyncSttClient {
+
+    private final SttClient delegate;
+    private final ResilientBackend backend;
+
+    public ResilientSttClient(SttClient delegate, ResilientBackend backend) {
+        this.delegate = delegate;
+        this.backend = backend;
+    }
+
+    @Override
+    public ParsedVoiceCommand speechToText(VoiceCommand value) {
+        return backend.call(() -> delegate.speechToText(value));
+    }
+
+    @Override
+    public CompletableFuture<ParsedVoiceCommand> speechToTextAsync(VoiceCommand value) {
+        return backend.callAsync(() -> delegate.speechToText(value));
+    }
+
+    @Override
+    public List<ParsedVoiceCommand> speechToTextBatch(List<VoiceCommand> values) {
+        return backend.call(() -> delegate.speechToTextBatch(values));
+    }
+
+    public ResilientBackend getBackend() {
+        return backend;
+    }
+}
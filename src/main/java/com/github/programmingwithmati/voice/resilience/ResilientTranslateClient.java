@@ -0,0 +1,43 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.service.AsyncTranslateClient;
+import com.github.programmingwithmati.voice.service.TranslateClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls another {@link TranslateClient} through a {@link ResilientBackend}, so a slow or failing translation
+ * service throws a {@link BackendUnavailableException} instead of blocking. Its asynchronous calls run the blocking
+ * ones in the backend's executor.
+ */
+public class ResilientTranslateClient implements TranslateClient, AsyncTranslateClient {
+
+    private final TranslateClient delegate;
+    private final ResilientBackend backend;
+
+    public ResilientTranslateClient(TranslateClient delegate, ResilientBackend backend) {
+        this.delegate = delegate;
+        this.backend = backend;
+    }
+
+    @Override
+    public ParsedVoiceCommand translate(ParsedVoiceCommand original) {
+        return backend.call(() -> delegate.translate(original));
+    }
+
+    @Override
+    public CompletableFuture<ParsedVoiceCommand> translateAsync(ParsedVoiceCommand original) {
+        return backend.callAsync(() -> delegate.translate(original));
+    }
+
+    @Override
+    public List<ParsedVoiceCommand> translateBatch(List<ParsedVoiceCommand> originals) {
+        return backend.call(() -> delegate.translateBatch(originals));
+    }
+
+    public ResilientBackend getBackend() {
+        return backend;
+    }
+}
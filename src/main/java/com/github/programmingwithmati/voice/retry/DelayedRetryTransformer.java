@@ -0,0 +1,113 @@
+package com.github.programmingwithmati.voice.retry;
+
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.To;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Re-injects the commands read from the retry topics once they are due, without holding back the records behind
+ * them.
+ * <p>
+ * A command that is already due is forwarded right away. The others wait in a state store keyed by their due time,
+ * which a wall clock punctuator scans every poll interval, so the fresh traffic of the task keeps flowing while they
+ * wait. The store keys also carry the retry attempt and the failed stage, since the headers aren't stored, and the
+ * record key after a {@code +}, or a {@code -} for a null key. They are re-injected with their record timestamp.
+ * <p>
+ * Due times are compared with the wall clock time of the last punctuation, so a command is never forwarded by
+ * {@link #transform} before the punctuator would have forwarded it.
+ */
+public class DelayedRetryTransformer<V> implements Transformer<String, V, KeyValue<String, V>> {
+
+    private static final String NULL_KEY = "-";
+    private static final String KEY_PREFIX = "+";
+
+    private final String storeName;
+    private final Duration pollInterval;
+    private ProcessorContext context;
+    private TimestampedKeyValueStore<String, V> pending;
+    private long nextSequence;
+    private long wallClockTime;
+
+    public DelayedRetryTransformer(String storeName, Duration pollInterval) {
+        this.storeName = storeName;
+        this.pollInterval = pollInterval;
+    }
+
+    public static <V> StoreBuilder<TimestampedKeyValueStore<String, V>> storeBuilder(String storeName, Serde<V> valueSerde) {
+        return Stores.timestampedKeyValueStoreBuilder(Stores.persistentTimestampedKeyValueStore(storeName), Serdes.String(), valueSerde);
+    }
+
+    public static <V> TransformerSupplier<String, V, KeyValue<String, V>> supplier(String storeName, Duration pollInterval) {
+        return () -> new DelayedRetryTransformer<>(storeName, pollInterval);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.pending = (TimestampedKeyValueStore<String, V>) context.getStateStore(storeName);
+        this.wallClockTime = System.currentTimeMillis(); // until the first punctuation
+        try (var iterator = pending.all()) {
+            while (iterator.hasNext()) {
+                nextSequence = Math.max(nextSequence, Long.parseLong(split(iterator.next().key)[1]) + 1);
+            }
+        }
+        context.schedule(pollInterval, PunctuationType.WALL_CLOCK_TIME, this::emitDue);
+    }
+
+    @Override
+    public KeyValue<String, V> transform(String key, V value) {
+        long due = FailureHeaders.getLong(context.headers(), FailureHeaders.DUE, 0);
+        if (due <= wallClockTime) {
+            return KeyValue.pair(key, value);
+        }
+        var storeKey = String.format("%019d|%019d|%d|%s|", due, nextSequence++,
+                FailureHeaders.getLong(context.headers(), FailureHeaders.ATTEMPT, 1), FailureHeaders.get(context.headers(), FailureHeaders.STAGE)) + (key == null ? NULL_KEY : KEY_PREFIX + key);
+        pending.put(storeKey, ValueAndTimestamp.make(value, context.timestamp()));
+        return null;
+    }
+
+    private void emitDue(long now) {
+        wallClockTime = now;
+        var emitted = new ArrayList<String>();
+        try (var iterator = pending.all()) {
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                String[] parts = split(entry.key);
+                if (Long.parseLong(parts[0]) > now) {
+                    break; // keys sort by due time
+                }
+                FailureHeaders.set(context.headers(), FailureHeaders.ATTEMPT, parts[2]);
+                FailureHeaders.set(context.headers(), FailureHeaders.STAGE, parts[3]);
+                context.forward(parts[4].equals(NULL_KEY) ? null : parts[4].substring(KEY_PREFIX.length()), entry.value.value(),
+                        To.all().withTimestamp(entry.value.timestamp()));
+                emitted.add(entry.key);
+            }
+        }
+        emitted.forEach(pending::delete);
+    }
+
+    /**
+     * @return the due time, sequence, attempt, stage and record key of a store key
+     */
+    private static String[] split(String storeKey) {
+        return storeKey.split("\\|", 5);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.programmingwithmati.voice.retry;
+
+import com.github.programmingwithmati.voice.configuration.RetryPolicy;
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import com.github.programmingwithmati.voice.metrics.SharedSensors;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.TopicNameExtractor;
+
+import java.util.Map;
+
+/**
+ * Stamps a failed command with its next retry attempt and the time it's due, in the {@link FailureHeaders}, and
+ * picks its topic through {@link #topicNameExtractor}: the retry tier of the attempt, or the dead letter topic once
+ * every tier was tried.
+ * <p>
+ * Attempts are counted per stage, so a command retried by the STT stage starts over when its translation fails.
+ */
+public class RetryScheduler<V> implements ValueTransformerWithKey<String, V, V> {
+
+    private final String stage;
+    private final RetryPolicy retryPolicy;
+    private ProcessorContext context;
+    private StreamsMetrics streamsMetrics;
+    private Sensor retries;
+    private Sensor deadLetters;
+
+    public RetryScheduler(String stage, RetryPolicy retryPolicy) {
+        this.stage = stage;
+        this.retryPolicy = retryPolicy;
+    }
+
+    public static <V> ValueTransformerWithKeySupplier<String, V, V> supplier(String stage, RetryPolicy retryPolicy) {
+        return () -> new RetryScheduler<>(stage, retryPolicy);
+    }
+
+    public static <V> TopicNameExtractor<String, V> topicNameExtractor(String retryTopicPrefix, String deadLetterTopic, RetryPolicy retryPolicy) {
+        return (key, value, recordContext) -> {
+            int attempt = (int) FailureHeaders.getLong(recordContext.headers(), FailureHeaders.ATTEMPT, 1);
+            return attempt <= retryPolicy.getMaxAttempts() ? retryPolicy.topic(retryTopicPrefix, attempt) : deadLetterTopic;
+        };
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.streamsMetrics = context.metrics();
+        String taskId = context.taskId().toString();
+        Map<String, String> tags = Map.of("task-id", taskId, "stage", stage);
+        retries = SharedSensors.acquire(streamsMetrics, "voice." + taskId + "." + stage + ".retries");
+        retries.add(new MetricName("retries-total", StageMetrics.GROUP, "Commands sent to a retry topic", tags), new CumulativeCount());
+        deadLetters = SharedSensors.acquire(streamsMetrics, "voice." + taskId + "." + stage + ".dead-letters");
+        deadLetters.add(new MetricName("dead-letters-total", StageMetrics.GROUP, "Commands sent to the dead letter topic", tags), new CumulativeCount());
+    }
+
+    @Override
+    public V transform(String readOnlyKey, V value) {
+        Headers headers = context.headers();
+        long previousAttempts = stage.equals(FailureHeaders.get(headers, FailureHeaders.STAGE)) ? FailureHeaders.getLong(headers, FailureHeaders.ATTEMPT, 0) : 0;
+        int attempt = (int) previousAttempts + 1;
+        long now = System.currentTimeMillis();
+        FailureHeaders.set(headers, FailureHeaders.STAGE, stage);
+        FailureHeaders.set(headers, FailureHeaders.TIMESTAMP, now);
+        if (context.topic() != null) { // null for commands re-injected by a punctuator
+            FailureHeaders.set(headers, FailureHeaders.TOPIC, context.topic());
+            FailureHeaders.set(headers, FailureHeaders.PARTITION, context.partition());
+            FailureHeaders.set(headers, FailureHeaders.OFFSET, context.offset());
+        }
+        FailureHeaders.set(headers, FailureHeaders.ATTEMPT, attempt);
+        if (attempt <= retryPolicy.getMaxAttempts()) {
+            FailureHeaders.set(headers, FailureHeaders.DUE, now + retryPolicy.delay(attempt).toMillis());
+            retries.record();
+        } else {
+            FailureHeaders.set(headers, FailureHeaders.DUE, null);
+            deadLetters.record();
+        }
+        return value;
+    }
+
+    @Override
+    public void close() {
+        SharedSensors.release(streamsMetrics, retries);
+        SharedSensors.release(streamsMetrics, deadLetters);
+    }
+}
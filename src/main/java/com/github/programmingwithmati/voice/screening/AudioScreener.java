@@ -0,0 +1,15 @@
+package com.github.programmingwithmati.voice.screening;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+/**
+ * Cheap checks run on the audio before it is sent to the STT service, so commands that can't be transcribed
+ * don't use any of its quota.
+ */
+public interface AudioScreener {
+
+    /**
+     * @return why the command should not be transcribed, or {@code null} to transcribe it
+     */
+    RejectionReason screen(VoiceCommand voiceCommand);
+}
@@ -0,0 +1,119 @@
+package com.github.programmingwithmati.voice.screening;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Screens FLAC audio using only its metadata, without decoding any frame.
+ * <p>
+ * The STREAMINFO block gives the duration and the smallest frame size, which bounds how many bytes the frames
+ * need at least. Decoding the samples to measure their energy would cost about as much as the STT stage saves,
+ * so the compression ratio stands in for it: FLAC encodes silence and near-constant signals in a fraction of the
+ * bytes speech needs, which makes the ratio of the frame bytes to the raw PCM size a cheap proxy for the signal
+ * energy.
+ */
+public class FlacScreener implements AudioScreener {
+
+    public static final String CODEC = "FLAC";
+    private static final int MAGIC = 0x664C6143; // "fLaC"
+    private static final int STREAMINFO = 0;
+    private static final int STREAMINFO_LENGTH = 34;
+    private static final int BLOCK_HEADER_LENGTH = 4;
+    private static final int FRAME_SYNC = 0xFFF8;
+    private static final int FRAME_SYNC_MASK = 0xFFFE;
+
+    private final Duration minDuration;
+    private final Duration maxDuration;
+    private final double minCompressionRatio;
+
+    public FlacScreener() {
+        this(Duration.ofMillis(200), Duration.ofSeconds(60), 0.03);
+    }
+
+    /**
+     * @param minCompressionRatio audio whose frames take less than this fraction of its raw PCM size is silence
+     */
+    public FlacScreener(Duration minDuration, Duration maxDuration, double minCompressionRatio) {
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        this.minCompressionRatio = minCompressionRatio;
+    }
+
+    @Override
+    public RejectionReason screen(VoiceCommand voiceCommand) {
+        if (!CODEC.equalsIgnoreCase(voiceCommand.getAudioCodec())) {
+            return RejectionReason.UNSUPPORTED_CODEC;
+        }
+        ByteBuffer audio = voiceCommand.getAudioBuffer();
+        if (audio == null || audio.remaining() < Integer.BYTES + BLOCK_HEADER_LENGTH + STREAMINFO_LENGTH) {
+            return RejectionReason.INVALID_HEADER;
+        }
+        int start = audio.position();
+        int end = audio.limit();
+        if (audio.getInt(start) != MAGIC) {
+            return RejectionReason.INVALID_HEADER;
+        }
+        int streamInfo = start + Integer.BYTES + BLOCK_HEADER_LENGTH;
+        if ((audio.get(start + Integer.BYTES) & 0x7F) != STREAMINFO || blockLength(audio, start + Integer.BYTES) != STREAMINFO_LENGTH) {
+            return RejectionReason.INVALID_HEADER;
+        }
+
+        // skip the remaining metadata blocks, the last one has the high bit of its type set
+        int position = start + Integer.BYTES;
+        boolean last = false;
+        while (!last) {
+            if (position + BLOCK_HEADER_LENGTH > end) {
+                return RejectionReason.TRUNCATED;
+            }
+            last = (audio.get(position) & 0x80) != 0;
+            position += BLOCK_HEADER_LENGTH + blockLength(audio, position);
+        }
+        if (position + 2 > end) {
+            return RejectionReason.TRUNCATED;
+        }
+        if ((audio.getShort(position) & FRAME_SYNC_MASK) != FRAME_SYNC) {
+            return RejectionReason.INVALID_HEADER;
+        }
+
+        int maxBlockSize = audio.getShort(streamInfo + 2) & 0xFFFF;
+        int minFrameSize = uint24(audio, streamInfo + 4);
+        long packed = audio.getLong(streamInfo + 10);
+        int sampleRate = (int) (packed >>> 44);
+        int channels = (int) ((packed >>> 41) & 0x7) + 1;
+        int bitsPerSample = (int) ((packed >>> 36) & 0x1F) + 1;
+        long totalSamples = packed & 0xF_FFFF_FFFFL;
+        if (sampleRate == 0) {
+            return RejectionReason.INVALID_HEADER;
+        }
+        if (totalSamples == 0) {
+            return null; // the encoder didn't know the length, nothing else can be checked cheaply
+        }
+
+        long durationMs = totalSamples * 1000 / sampleRate;
+        if (durationMs < minDuration.toMillis()) {
+            return RejectionReason.TOO_SHORT;
+        }
+        if (durationMs > maxDuration.toMillis()) {
+            return RejectionReason.TOO_LONG;
+        }
+        long frameBytes = end - position;
+        if (maxBlockSize > 0 && minFrameSize > 0 && frameBytes < (totalSamples + maxBlockSize - 1) / maxBlockSize * minFrameSize) {
+            return RejectionReason.TRUNCATED;
+        }
+        double pcmBytes = (double) totalSamples * channels * bitsPerSample / 8;
+        if (frameBytes / pcmBytes < minCompressionRatio) {
+            return RejectionReason.SILENCE;
+        }
+        return null;
+    }
+
+    private static int blockLength(ByteBuffer audio, int blockHeader) {
+        return uint24(audio, blockHeader + 1);
+    }
+
+    private static int uint24(ByteBuffer buffer, int index) {
+        return (buffer.get(index) & 0xFF) << 16 | (buffer.get(index + 1) & 0xFF) << 8 | buffer.get(index + 2) & 0xFF;
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.programmingwithmati.voice.screening;
+
+public enum RejectionReason {
+    /** The codec is not one the STT service accepts. */
+    UNSUPPORTED_CODEC,
+    /** The audio doesn't start with a valid header for its codec. */
+    INVALID_HEADER,
+    /** The audio ends before the data its header announces. */
+    TRUNCATED,
+    /** The audio is shorter than a spoken command can be. */
+    TOO_SHORT,
+    /** The audio is longer than the STT service accepts for a command. */
+    TOO_LONG,
+    /** The audio carries too little signal to contain speech. */
+    SILENCE
+}
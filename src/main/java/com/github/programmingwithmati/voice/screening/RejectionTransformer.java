@@ -0,0 +1,82 @@
+package com.github.programmingwithmati.voice.screening;
+
+import com.github.programmingwithmati.voice.metrics.SharedSensors;
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.metrics.stats.Rate;
+import org.apache.kafka.common.metrics.stats.WindowedCount;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKey;
+import org.apache.kafka.streams.kstream.ValueTransformerWithKeySupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Turns a command rejected by an {@link AudioScreener} into an unrecognized {@link ParsedVoiceCommand}, with the
+ * reason in the {@value #REASON_HEADER} header, and counts it as a saved STT call per reason.
+ */
+public class RejectionTransformer implements ValueTransformerWithKey<String, VoiceCommand, ParsedVoiceCommand> {
+
+    public static final String REASON_HEADER = "rejection-reason";
+
+    private final AudioScreener screener;
+    private final Map<RejectionReason, Sensor> sensors = new EnumMap<>(RejectionReason.class);
+    private ProcessorContext context;
+    private StreamsMetrics streamsMetrics;
+
+    public RejectionTransformer(AudioScreener screener) {
+        this.screener = screener;
+    }
+
+    public static ValueTransformerWithKeySupplier<String, VoiceCommand, ParsedVoiceCommand> supplier(AudioScreener screener) {
+        return () -> new RejectionTransformer(screener);
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        this.context = context;
+        this.streamsMetrics = context.metrics();
+    }
+
+    @Override
+    public ParsedVoiceCommand transform(String readOnlyKey, VoiceCommand value) {
+        RejectionReason reason = screener.screen(value); // screened again, rejects are the rare path
+        if (reason != null) {
+            context.headers().remove(REASON_HEADER).add(REASON_HEADER, reason.name().getBytes(StandardCharsets.UTF_8));
+            sensors.computeIfAbsent(reason, this::sensor).record();
+        }
+        return rejected(value);
+    }
+
+    /**
+     * The unrecognized result of a rejected command.
+     */
+    public static ParsedVoiceCommand rejected(VoiceCommand value) {
+        return ParsedVoiceCommand.builder()
+                .id(value.getId())
+                .probability(0.0)
+                .language(value.getLanguage())
+                .build();
+    }
+
+    private Sensor sensor(RejectionReason reason) {
+        String taskId = context.taskId().toString();
+        Map<String, String> tags = Map.of("task-id", taskId, "reason", reason.name());
+        Sensor sensor = SharedSensors.acquire(streamsMetrics, "voice." + taskId + ".screening." + reason);
+        sensor.add(new MetricName("stt-calls-saved-total", StageMetrics.GROUP, "Commands rejected before the STT stage", tags), new CumulativeCount());
+        sensor.add(new MetricName("stt-calls-saved-rate", StageMetrics.GROUP, "Commands rejected before the STT stage per second", tags), new Rate(new WindowedCount()));
+        return sensor;
+    }
+
+    @Override
+    public void close() {
+        sensors.values().forEach(sensor -> SharedSensors.release(streamsMetrics, sensor));
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.programmingwithmati.voice.serdes;
+
+import com.github.programmingwithmati.voice.model.AudioChunk;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes {@link AudioChunk}s in the configured {@link SerdeFormat} and reads both JSON and binary records.
+ */
+public class AudioChunkSerde implements Serde<AudioChunk> {
+
+    private final SerdeFormat format;
+    private final JsonSerde<AudioChunk> jsonSerde = new JsonSerde<>(AudioChunk.class);
+
+    public AudioChunkSerde(SerdeFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public Serializer<AudioChunk> serializer() {
+        if (format == SerdeFormat.JSON) {
+            return (topic, data) -> data == null ? null : jsonSerde.serializer().serialize(topic, data);
+        }
+        return (topic, data) -> data == null ? null : serializeBinary(data);
+    }
+
+    @Override
+    public Deserializer<AudioChunk> deserializer() {
+        Deserializer<AudioChunk> jsonDeserializer = jsonSerde.deserializer();
+        return (topic, bytes) -> {
+            if (bytes == null) {
+                return null;
+            }
+            return BinaryEncoding.isBinary(bytes) ? deserializeBinary(bytes) : jsonDeserializer.deserialize(topic, bytes);
+        };
+    }
+
+    private byte[] serializeBinary(AudioChunk data) {
+        byte[] commandId = BinaryEncoding.utf8(data.getCommandId());
+        byte[] audioCodec = BinaryEncoding.utf8(data.getAudioCodec());
+        byte[] language = BinaryEncoding.utf8(data.getLanguage());
+        var buffer = ByteBuffer.allocate(BinaryEncoding.HEADER_SIZE
+                + BinaryEncoding.sizeOf(commandId)
+                + Integer.BYTES
+                + 1
+                + BinaryEncoding.sizeOf(audioCodec)
+                + BinaryEncoding.sizeOf(language)
+                + BinaryEncoding.sizeOf(data.getAudio()));
+        BinaryEncoding.writeHeader(buffer, BinaryEncoding.VERSION_1);
+        BinaryEncoding.writeBytes(buffer, commandId);
+        buffer.putInt(data.getSequence());
+        buffer.put((byte) (data.isLast() ? 1 : 0));
+        BinaryEncoding.writeBytes(buffer, audioCodec);
+        BinaryEncoding.writeBytes(buffer, language);
+        BinaryEncoding.writeBytes(buffer, data.getAudio());
+        return buffer.array();
+    }
+
+    private AudioChunk deserializeBinary(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes);
+        try {
+            BinaryEncoding.readVersion(buffer, BinaryEncoding.VERSION_1);
+            var chunk = AudioChunk.builder()
+                    .commandId(BinaryEncoding.readString(buffer))
+                    .sequence(buffer.getInt())
+                    .last(buffer.get() != 0)
+                    .audioCodec(BinaryEncoding.readString(buffer))
+                    .language(BinaryEncoding.readString(buffer))
+                    .build();
+            int audioLength = BinaryEncoding.readLength(buffer);
+            if (audioLength != BinaryEncoding.NULL_LENGTH) {
+                var audio = new byte[audioLength];
+                buffer.get(audio);
+                chunk.setAudio(audio);
+            }
+            return chunk;
+        } catch (BufferUnderflowException e) {
+            throw BinaryEncoding.corrupt(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.programmingwithmati.voice.serdes;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for the binary record format.
+ * <p>
+ * Every record starts with a {@link #MAGIC} byte, which can never be the first byte of a JSON document, followed
+ * by a schema version byte. Fields follow in declaration order: strings and byte arrays as a 4 byte length
+ * ({@code -1} for {@code null}) plus their bytes, and nullable doubles as a presence byte plus 8 bytes.
+ */
+final class BinaryEncoding {
+
+    static final byte MAGIC = 0x00;
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+    static final int HEADER_SIZE = 2;
+    static final int NULL_LENGTH = -1;
+
+    private BinaryEncoding() {
+    }
+
+    static boolean isBinary(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == MAGIC;
+    }
+
+    static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int sizeOf(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    static int sizeOf(ByteBuffer value) {
+        return Integer.BYTES + (value == null ? 0 : value.remaining());
+    }
+
+    static int sizeOfDouble() {
+        return 1 + Double.BYTES;
+    }
+
+    static void writeHeader(ByteBuffer buffer, byte version) {
+        buffer.put(MAGIC).put(version);
+    }
+
+    static void writeBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    static void writeBytes(ByteBuffer buffer, ByteBuffer value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(value.remaining()).put(value.duplicate());
+        }
+    }
+
+    static void writeDouble(ByteBuffer buffer, Double value) {
+        if (value == null) {
+            buffer.put((byte) 0).putDouble(0);
+        } else {
+            buffer.put((byte) 1).putDouble(value);
+        }
+    }
+
+    static byte readVersion(ByteBuffer buffer, byte maxVersion) {
+        buffer.get(); // magic
+        byte version = buffer.get();
+        if (version < VERSION_1 || version > maxVersion) {
+            throw new SerializationException("Unsupported binary record version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Reads the length of the next field, checking it fits in the remaining bytes.
+     */
+    static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        return length == NULL_LENGTH ? length : checkLength(buffer, length);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = readLength(buffer);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        var value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    static Double readDouble(ByteBuffer buffer) {
+        boolean present = buffer.get() != 0;
+        double value = buffer.getDouble();
+        return present ? value : null;
+    }
+
+    private static int checkLength(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new SerializationException("Corrupt binary record: field length %d with %d bytes left".formatted(length, buffer.remaining()));
+        }
+        return length;
+    }
+
+    static SerializationException corrupt(BufferUnderflowException e) {
+        return new SerializationException("Corrupt binary record: unexpected end of data", e);
+    }
+}
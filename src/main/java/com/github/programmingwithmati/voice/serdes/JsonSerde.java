@@ -1,18 +1,34 @@
 package com.github.programmingwithmati.voice.serdes;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.SneakyThrows;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serializer;
 
+import java.io.IOException;
+
+/**
+ * Failures are thrown as {@link SerializationException}s, so the deserialization exception handler of the
+ * application can send the record to the dead letter topic instead of stopping the stream thread.
+ * <p>
+ * The reader and writer of the type are resolved once, records are written into a {@link ReusableOutputStream}
+ * and the mapper uses Afterburner, which replaces reflective getter and setter calls with generated accessors.
+ */
 public class JsonSerde<T> implements Serde<T> {
 
-    public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new AfterburnerModule());
     private final Class<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
 
     public JsonSerde(Class<T> type) {
         this.type = type;
+        this.reader = OBJECT_MAPPER.readerFor(type);
+        this.writer = OBJECT_MAPPER.writerFor(type);
     }
 
     @Override
@@ -20,9 +36,14 @@ public class JsonSerde<T> implements Serde<T> {
         return (topic, data) -> serialize(data);
     }
 
-    @SneakyThrows
     private byte[] serialize(T data) {
-        return OBJECT_MAPPER.writeValueAsBytes(data);
+        var buffer = ReusableOutputStream.get();
+        try {
+            writer.writeValue(buffer, data);
+            return buffer.toByteArrayAndReset();
+        } catch (IOException e) {
+            throw new SerializationException("Can't write " + type.getSimpleName() + " as JSON", e);
+        }
     }
 
     @Override
@@ -30,8 +51,14 @@ public class JsonSerde<T> implements Serde<T> {
         return (topic, bytes) -> deserialize(bytes);
     }
 
-    @SneakyThrows
     private T deserialize(byte[] bytes) {
-        return OBJECT_MAPPER.readValue(bytes, type);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return reader.readValue(bytes);
+        } catch (IOException e) {
+            throw new SerializationException("Invalid JSON " + type.getSimpleName(), e);
+        }
     }
 }
@@ -0,0 +1,127 @@
+package com.github.programmingwithmati.voice.serdes;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes {@link ParsedVoiceCommand}s in the configured {@link SerdeFormat} and reads both JSON and binary records.
+ * <p>
+ * JSON is written and read with Jackson's streaming API, field by field, which skips the bean introspection of
+ * data binding. The documents are the same {@link JsonSerde} writes and reads.
+ */
+public class ParsedVoiceCommandSerde implements Serde<ParsedVoiceCommand> {
+
+    private static final JsonFactory JSON_FACTORY = JsonSerde.OBJECT_MAPPER.getFactory();
+
+    private final SerdeFormat format;
+
+    public ParsedVoiceCommandSerde(SerdeFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public Serializer<ParsedVoiceCommand> serializer() {
+        if (format == SerdeFormat.JSON) {
+            return (topic, data) -> data == null ? null : serializeJson(data);
+        }
+        return (topic, data) -> data == null ? null : serializeBinary(data);
+    }
+
+    @Override
+    public Deserializer<ParsedVoiceCommand> deserializer() {
+        return (topic, bytes) -> {
+            if (bytes == null) {
+                return null;
+            }
+            return BinaryEncoding.isBinary(bytes) ? deserializeBinary(bytes) : deserializeJson(bytes);
+        };
+    }
+
+    private byte[] serializeJson(ParsedVoiceCommand data) {
+        var buffer = ReusableOutputStream.get();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", data.getId());
+            generator.writeStringField("textCommand", data.getTextCommand());
+            if (data.getProbability() == null) {
+                generator.writeNullField("probability");
+            } else {
+                generator.writeNumberField("probability", data.getProbability());
+            }
+            generator.writeStringField("language", data.getLanguage());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new SerializationException("Can't write ParsedVoiceCommand as JSON", e);
+        }
+        return buffer.toByteArrayAndReset();
+    }
+
+    private ParsedVoiceCommand deserializeJson(byte[] bytes) {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SerializationException("Expected a JSON object for a ParsedVoiceCommand");
+            }
+            var command = new ParsedVoiceCommand();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> command.setId(parser.getValueAsString());
+                    case "textCommand" -> command.setTextCommand(parser.getValueAsString());
+                    case "probability" -> command.setProbability(value == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble());
+                    case "language" -> command.setLanguage(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new SerializationException("Unterminated JSON ParsedVoiceCommand");
+            }
+            return command;
+        } catch (IOException e) {
+            throw new SerializationException("Invalid JSON ParsedVoiceCommand", e);
+        }
+    }
+
+    private byte[] serializeBinary(ParsedVoiceCommand data) {
+        byte[] id = BinaryEncoding.utf8(data.getId());
+        byte[] textCommand = BinaryEncoding.utf8(data.getTextCommand());
+        byte[] language = BinaryEncoding.utf8(data.getLanguage());
+        var buffer = ByteBuffer.allocate(BinaryEncoding.HEADER_SIZE
+                + BinaryEncoding.sizeOf(id)
+                + BinaryEncoding.sizeOf(textCommand)
+                + BinaryEncoding.sizeOfDouble()
+                + BinaryEncoding.sizeOf(language));
+        BinaryEncoding.writeHeader(buffer, BinaryEncoding.VERSION_1);
+        BinaryEncoding.writeBytes(buffer, id);
+        BinaryEncoding.writeBytes(buffer, textCommand);
+        BinaryEncoding.writeDouble(buffer, data.getProbability());
+        BinaryEncoding.writeBytes(buffer, language);
+        return buffer.array();
+    }
+
+    private ParsedVoiceCommand deserializeBinary(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes);
+        try {
+            BinaryEncoding.readVersion(buffer, BinaryEncoding.VERSION_1);
+            return ParsedVoiceCommand.builder()
+                    .id(BinaryEncoding.readString(buffer))
+                    .textCommand(BinaryEncoding.readString(buffer))
+                    .probability(BinaryEncoding.readDouble(buffer))
+                    .language(BinaryEncoding.readString(buffer))
+                    .build();
+        } catch (BufferUnderflowException e) {
+            throw BinaryEncoding.corrupt(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.programmingwithmati.voice.serdes;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * A per-thread buffer serializers write into before copying the record out, so a record costs one exactly sized
+ * array instead of a chain of growing ones. Buffers that grew beyond {@link #MAX_RETAINED_SIZE} for a large
+ * record are dropped after it, so an occasional large record doesn't pin memory on every thread.
+ * <p>
+ * The buffer is not reentrant: a serializer must call {@link #toByteArrayAndReset()} before anything else on the
+ * same thread writes into it.
+ */
+final class ReusableOutputStream extends ByteArrayOutputStream {
+
+    static final int MAX_RETAINED_SIZE = 1024 * 1024;
+    private static final int INITIAL_SIZE = 4096;
+    private static final ThreadLocal<ReusableOutputStream> BUFFERS = ThreadLocal.withInitial(ReusableOutputStream::new);
+
+    private ReusableOutputStream() {
+        super(INITIAL_SIZE);
+    }
+
+    static ReusableOutputStream get() {
+        ReusableOutputStream buffer = BUFFERS.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    byte[] toByteArrayAndReset() {
+        byte[] bytes = Arrays.copyOf(buf, count);
+        count = 0;
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        return bytes;
+    }
+}
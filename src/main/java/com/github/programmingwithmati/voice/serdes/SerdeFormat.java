@@ -0,0 +1,12 @@
+package com.github.programmingwithmati.voice.serdes;
+
+/**
+ * Wire format used when writing voice command records. Readers accept both formats, so producers and the
+ * topology can be migrated one at a time.
+ */
+public enum SerdeFormat {
+    /** Jackson JSON, with the audio Base64 encoded. */
+    JSON,
+    /** Length-prefixed binary fields with the raw audio bytes, see {@link BinaryEncoding}. */
+    BINARY
+}
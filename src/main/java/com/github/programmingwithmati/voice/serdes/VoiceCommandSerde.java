@@ -0,0 +1,219 @@
+package com.github.programmingwithmati.voice.serdes;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.programmingwithmati.voice.blob.BlobReference;
+import com.github.programmingwithmati.voice.blob.BlobStore;
+import com.github.programmingwithmati.voice.model.BlobVoiceCommand;
+import com.github.programmingwithmati.voice.model.LazyVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes {@link VoiceCommand}s in the configured {@link SerdeFormat} and reads both JSON and binary records.
+ * <p>
+ * The binary format carries the audio as raw bytes, avoiding the Base64 overhead of JSON. Records of both formats
+ * are read into a {@link LazyVoiceCommand}: only the header fields are parsed, and the audio is decoded the first
+ * time it is actually used.
+ * <p>
+ * Commands whose audio was checked into a {@link BlobStore} are written with their {@link BlobReference} and no
+ * audio (binary version 2, or an {@code audioReference} JSON field). When the serde has a blob store, they are
+ * read into a {@link BlobVoiceCommand} that fetches the audio on first use.
+ */
+public class VoiceCommandSerde implements Serde<VoiceCommand> {
+
+    private static final char QUOTE = '"';
+    private static final char ESCAPE = '\\';
+
+    private final SerdeFormat format;
+    private final BlobStore blobStore;
+    private final JsonSerde<VoiceCommand> jsonSerde = new JsonSerde<>(VoiceCommand.class);
+
+    public VoiceCommandSerde(SerdeFormat format) {
+        this(format, null);
+    }
+
+    /**
+     * @param blobStore where the audio of checked in commands is read from, or {@code null} to leave it unresolved
+     */
+    public VoiceCommandSerde(SerdeFormat format, BlobStore blobStore) {
+        this.format = format;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public Serializer<VoiceCommand> serializer() {
+        if (format == SerdeFormat.JSON) {
+            Serializer<VoiceCommand> serializer = jsonSerde.serializer();
+            return (topic, data) -> serializer.serialize(topic, data == null || data.getAudioReference() == null ? data : withoutAudio(data));
+        }
+        return (topic, data) -> data == null ? null : serializeBinary(data);
+    }
+
+    /**
+     * A checked in command only travels with its reference, even if its audio was already fetched.
+     */
+    private static VoiceCommand withoutAudio(VoiceCommand data) {
+        return VoiceCommand.builder()
+                .id(data.getId())
+                .audioCodec(data.getAudioCodec())
+                .language(data.getLanguage())
+                .audioReference(data.getAudioReference())
+                .build();
+    }
+
+    @Override
+    public Deserializer<VoiceCommand> deserializer() {
+        return (topic, bytes) -> {
+            if (bytes == null) {
+                return null;
+            }
+            return BinaryEncoding.isBinary(bytes) ? deserializeBinary(bytes) : deserializeJson(bytes);
+        };
+    }
+
+    private byte[] serializeBinary(VoiceCommand data) {
+        byte[] id = BinaryEncoding.utf8(data.getId());
+        byte[] audioCodec = BinaryEncoding.utf8(data.getAudioCodec());
+        byte[] language = BinaryEncoding.utf8(data.getLanguage());
+        BlobReference reference = data.getAudioReference();
+        if (reference != null) {
+            return serializeReference(id, audioCodec, language, reference);
+        }
+        ByteBuffer audio = data.getAudioBuffer();
+        var buffer = ByteBuffer.allocate(BinaryEncoding.HEADER_SIZE
+                + BinaryEncoding.sizeOf(id)
+                + BinaryEncoding.sizeOf(audioCodec)
+                + BinaryEncoding.sizeOf(language)
+                + BinaryEncoding.sizeOf(audio));
+        BinaryEncoding.writeHeader(buffer, BinaryEncoding.VERSION_1);
+        BinaryEncoding.writeBytes(buffer, id);
+        BinaryEncoding.writeBytes(buffer, audioCodec);
+        BinaryEncoding.writeBytes(buffer, language);
+        BinaryEncoding.writeBytes(buffer, audio);
+        return buffer.array();
+    }
+
+    /**
+     * Version 2 appends the reference key, size and hash to the version 1 fields, with a null audio. Commands with
+     * inline audio are still written as version 1, so consumers that only know version 1 keep working.
+     */
+    private byte[] serializeReference(byte[] id, byte[] audioCodec, byte[] language, BlobReference reference) {
+        byte[] key = BinaryEncoding.utf8(reference.getKey());
+        byte[] sha256 = BinaryEncoding.utf8(reference.getSha256());
+        var buffer = ByteBuffer.allocate(BinaryEncoding.HEADER_SIZE
+                + BinaryEncoding.sizeOf(id)
+                + BinaryEncoding.sizeOf(audioCodec)
+                + BinaryEncoding.sizeOf(language)
+                + BinaryEncoding.sizeOf((byte[]) null)
+                + BinaryEncoding.sizeOf(key)
+                + Integer.BYTES
+                + BinaryEncoding.sizeOf(sha256));
+        BinaryEncoding.writeHeader(buffer, BinaryEncoding.VERSION_2);
+        BinaryEncoding.writeBytes(buffer, id);
+        BinaryEncoding.writeBytes(buffer, audioCodec);
+        BinaryEncoding.writeBytes(buffer, language);
+        BinaryEncoding.writeBytes(buffer, (byte[]) null);
+        BinaryEncoding.writeBytes(buffer, key);
+        buffer.putInt(reference.getSize());
+        BinaryEncoding.writeBytes(buffer, sha256);
+        return buffer.array();
+    }
+
+    private VoiceCommand deserializeBinary(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes);
+        try {
+            byte version = BinaryEncoding.readVersion(buffer, BinaryEncoding.VERSION_2);
+            var id = BinaryEncoding.readString(buffer);
+            var audioCodec = BinaryEncoding.readString(buffer);
+            var language = BinaryEncoding.readString(buffer);
+            int audioLength = BinaryEncoding.readLength(buffer);
+            if (version >= BinaryEncoding.VERSION_2 && audioLength == BinaryEncoding.NULL_LENGTH) {
+                var reference = new BlobReference(BinaryEncoding.readString(buffer), buffer.getInt(), BinaryEncoding.readString(buffer));
+                return referenced(id, audioCodec, language, reference);
+            }
+            if (audioLength == BinaryEncoding.NULL_LENGTH) {
+                return VoiceCommand.builder().id(id).audioCodec(audioCodec).language(language).build();
+            }
+            return LazyVoiceCommand.ofRawAudio(id, audioCodec, language, bytes, buffer.position(), audioLength);
+        } catch (BufferUnderflowException e) {
+            throw BinaryEncoding.corrupt(e);
+        }
+    }
+
+    /**
+     * Streams through the JSON document, keeping only the position of the Base64 audio instead of decoding it.
+     */
+    private VoiceCommand deserializeJson(byte[] bytes) {
+        try (JsonParser parser = JsonSerde.OBJECT_MAPPER.getFactory().createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SerializationException("Expected a JSON object for a VoiceCommand");
+            }
+            String id = null;
+            String audioCodec = null;
+            String language = null;
+            byte[] audio = null;
+            BlobReference audioReference = null;
+            int audioStart = -1;
+            int audioEnd = -1;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> id = parser.getValueAsString();
+                    case "audioCodec" -> audioCodec = parser.getValueAsString();
+                    case "language" -> language = parser.getValueAsString();
+                    case "audio" -> {
+                        if (value != JsonToken.VALUE_STRING) {
+                            break;
+                        }
+                        audioStart = indexOf(bytes, QUOTE, (int) parser.getTokenLocation().getByteOffset()) + 1;
+                        audioEnd = indexOf(bytes, QUOTE, audioStart);
+                        if (indexOf(bytes, ESCAPE, audioStart) < audioEnd) {
+                            audio = parser.getBinaryValue(); // escaped Base64 is legal but unusual, let Jackson deal with it
+                            audioStart = -1;
+                        }
+                    }
+                    case "audioReference" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            audioReference = parser.readValueAs(BlobReference.class);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if (audioReference != null && audio == null && audioStart < 0) {
+                return referenced(id, audioCodec, language, audioReference);
+            }
+            if (audioStart < 0) {
+                return VoiceCommand.builder().id(id).audioCodec(audioCodec).language(language).audio(audio).build();
+            }
+            return LazyVoiceCommand.ofBase64Audio(id, audioCodec, language, bytes, audioStart, audioEnd - audioStart);
+        } catch (IOException e) {
+            throw new SerializationException("Invalid JSON VoiceCommand", e);
+        }
+    }
+
+    private VoiceCommand referenced(String id, String audioCodec, String language, BlobReference reference) {
+        if (blobStore == null) {
+            return VoiceCommand.builder().id(id).audioCodec(audioCodec).language(language).audioReference(reference).build();
+        }
+        return new BlobVoiceCommand(id, audioCodec, language, reference, blobStore);
+    }
+
+    private static int indexOf(byte[] bytes, char character, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == character) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.programmingwithmati.voice.service;
+
+import java.time.Duration;
+
+/**
+ * Limits how many calls of a backend run at a time, adapting the limit to the latency it observes (AIMD).
+ * <p>
+ * Every call that finishes within the latency threshold adds {@code 1 / limit}, so the limit grows by one per
+ * limit's worth of fast calls. A slower call or a timeout multiplies it by the backoff ratio. The limit moves
+ * between {@code min} and {@code max}, and calls over it are not let through: a {@link CallExecutor} queues them
+ * until a call completes, or rejects them for callers that can't wait, like a stream thread.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int min;
+    private final int max;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimit(int initial, int min, int max, Duration latencyThreshold, double backoffRatio) {
+        if (min < 1 || initial < min || max < initial) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.min = min;
+        this.max = max;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = initial;
+    }
+
+    /**
+     * A limit that never moves from {@code maxConcurrency}.
+     */
+    public static AdaptiveConcurrencyLimit fixed(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1 but was " + maxConcurrency);
+        }
+        return new AdaptiveConcurrencyLimit(maxConcurrency, maxConcurrency, maxConcurrency, Duration.ZERO, 0.5);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases the permit of a call that completed, successfully or not, after {@code latencyNanos}.
+     */
+    public synchronized void onCompleted(long latencyNanos) {
+        inFlight--;
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else {
+            limit = Math.min(max, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Releases the permit of a call that timed out.
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        decrease();
+    }
+
+    /**
+     * Releases the permit of a call that wasn't made, without changing the limit.
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    private void decrease() {
+        limit = Math.max(min, limit * backoffRatio);
+    }
+}
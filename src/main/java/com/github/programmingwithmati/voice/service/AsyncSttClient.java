@@ -0,0 +1,19 @@
+package com.github.programmingwithmati.voice.service;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncSttClient {
+
+    CompletableFuture<ParsedVoiceCommand> speechToTextAsync(VoiceCommand value);
+
+    /**
+     * Adapts a blocking {@link SttClient} by running every call in the given {@link CallExecutor}, which also
+     * limits the concurrent calls and times them out.
+     */
+    static AsyncSttClient fromBlocking(SttClient sttClient, CallExecutor callExecutor) {
+        return value -> callExecutor.submit(() -> sttClient.speechToText(value));
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.programmingwithmati.voice.service;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncTranslateClient {
+
+    CompletableFuture<ParsedVoiceCommand> translateAsync(ParsedVoiceCommand original);
+
+    /**
+     * Adapts a blocking {@link TranslateClient} by running every call in the given {@link CallExecutor}, which
+     * also limits the concurrent calls and times them out.
+     */
+    static AsyncTranslateClient fromBlocking(TranslateClient translateClient, CallExecutor callExecutor) {
+        return original -> callExecutor.submit(() -> translateClient.translate(original));
+    }
+}
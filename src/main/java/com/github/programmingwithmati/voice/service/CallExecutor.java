@@ -0,0 +1,200 @@
+package com.github.programmingwithmati.voice.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking backend calls off the stream threads, with the calls of one backend running at a time bounded by
+ * an {@link AdaptiveConcurrencyLimit}, fixed at {@code maxConcurrency} unless one is given, and a timeout per call.
+ * <p>
+ * Calls run on virtual threads when the JDK has them (Java 21, or 19 and 20 with preview features), so a call
+ * waiting on the network costs no OS thread and thousands of them can be outstanding. On older JDKs they run on
+ * a pool of as many platform threads as the limit's maximum. Calls waiting for a permit are queued here rather
+ * than on a thread, and their timeout starts once they get one. A call that times out is interrupted. Every call
+ * reports its latency, or its timeout, to the limit.
+ */
+public class CallExecutor implements AutoCloseable {
+
+    private final String name;
+    private final ExecutorService executorService;
+    private final boolean virtualThreads;
+    private final AdaptiveConcurrencyLimit permits;
+    private final Duration timeout;
+    private final ArrayDeque<Waiting<?>> waiting = new ArrayDeque<>();
+    private boolean closed;
+
+    private CallExecutor(String name, ExecutorService executorService, boolean virtualThreads, AdaptiveConcurrencyLimit permits, Duration timeout) {
+        this.name = name;
+        this.executorService = executorService;
+        this.virtualThreads = virtualThreads;
+        this.permits = permits;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param name used in the names of the platform threads
+     */
+    public static CallExecutor create(String name, int maxConcurrency, Duration timeout) {
+        return create(name, AdaptiveConcurrencyLimit.fixed(maxConcurrency), timeout);
+    }
+
+    /**
+     * @param name used in the names of the platform threads
+     */
+    public static CallExecutor create(String name, AdaptiveConcurrencyLimit permits, Duration timeout) {
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual != null) {
+            return new CallExecutor(name, virtual, true, permits, timeout);
+        }
+        return new CallExecutor(name, newPlatformPool(name, permits.getMax()), false, permits, timeout);
+    }
+
+    /**
+     * Looked up reflectively because the project is compiled for a JDK without virtual threads.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null; // not available, or a preview feature that isn't enabled
+        }
+    }
+
+    private static ExecutorService newPlatformPool(String name, int threads) {
+        var counter = new AtomicInteger();
+        var pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, name + "-call-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Runs the call once it gets a permit.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        var next = new Waiting<>(call);
+        synchronized (waiting) {
+            if (closed) {
+                throw new RejectedExecutionException(name + " calls are closed");
+            }
+            if (!permits.tryAcquire()) {
+                waiting.add(next);
+                return next.result;
+            }
+        }
+        start(next);
+        return next.result;
+    }
+
+    /**
+     * Runs the call if a permit is free right now.
+     *
+     * @return {@code null} if every permit is taken
+     */
+    public <T> CompletableFuture<T> trySubmit(Supplier<T> call) {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        var next = new Waiting<>(call);
+        start(next);
+        return next.result;
+    }
+
+    /**
+     * Runs a call that holds a permit.
+     */
+    private <T> void start(Waiting<T> next) {
+        var result = next.result;
+        Future<?> task;
+        try {
+            task = executorService.submit(() -> {
+                result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                long start = System.nanoTime();
+                try {
+                    result.complete(next.call.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    if (result.handle((value, error) -> error instanceof TimeoutException).join()) {
+                        permits.onDropped();
+                    } else {
+                        permits.onCompleted(System.nanoTime() - start);
+                    }
+                    startWaiting();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            result.completeExceptionally(e);
+            return;
+        }
+        result.whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+    }
+
+    private void startWaiting() {
+        while (true) {
+            Waiting<?> next;
+            synchronized (waiting) {
+                if (waiting.isEmpty() || !permits.tryAcquire()) {
+                    return;
+                }
+                next = waiting.poll();
+            }
+            start(next);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AdaptiveConcurrencyLimit getPermits() {
+        return permits;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Interrupts the running calls and fails the waiting ones.
+     */
+    @Override
+    public void close() {
+        ArrayDeque<Waiting<?>> dropped;
+        synchronized (waiting) {
+            closed = true;
+            dropped = new ArrayDeque<>(waiting);
+            waiting.clear();
+        }
+        executorService.shutdownNow();
+        dropped.forEach(next -> next.result.completeExceptionally(new RejectedExecutionException(name + " calls are closed")));
+    }
+
+    private static class Waiting<T> {
+        private final Supplier<T> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Waiting(Supplier<T> call) {
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.programmingwithmati.voice.service;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Delays every call to another {@link SttClient}, to simulate a remote backend in tests and benchmarks.
+ */
+public class LatencyInjectingSttClient implements SttClient {
+
+    private final SttClient delegate;
+    private final LongSupplier latencyNanos;
+
+    /**
+     * @param latencyNanos called once per request, so it can return a different latency each time
+     */
+    public LatencyInjectingSttClient(SttClient delegate, LongSupplier latencyNanos) {
+        this.delegate = delegate;
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public ParsedVoiceCommand speechToText(VoiceCommand value) {
+        LockSupport.parkNanos(latencyNanos.getAsLong());
+        return delegate.speechToText(value);
+    }
+
+    @Override
+    public List<ParsedVoiceCommand> speechToTextBatch(List<VoiceCommand> values) {
+        LockSupport.parkNanos(latencyNanos.getAsLong());
+        return delegate.speechToTextBatch(values);
+    }
+}
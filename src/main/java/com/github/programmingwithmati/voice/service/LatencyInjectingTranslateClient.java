@@ -0,0 +1,36 @@
+package com.github.programmingwithmati.voice.service;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Delays every call to another {@link TranslateClient}, to simulate a remote backend in tests and benchmarks.
+ */
+public class LatencyInjectingTranslateClient implements TranslateClient {
+
+    private final TranslateClient delegate;
+    private final LongSupplier latencyNanos;
+
+    /**
+     * @param latencyNanos called once per request, so it can return a different latency each time
+     */
+    public LatencyInjectingTranslateClient(TranslateClient delegate, LongSupplier latencyNanos) {
+        this.delegate = delegate;
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public ParsedVoiceCommand translate(ParsedVoiceCommand original) {
+        LockSupport.parkNanos(latencyNanos.getAsLong());
+        return delegate.translate(original);
+    }
+
+    @Override
+    public List<ParsedVoiceCommand> translateBatch(List<ParsedVoiceCommand> originals) {
+        LockSupport.parkNanos(latencyNanos.getAsLong());
+        return delegate.translateBatch(originals);
+    }
+}
@@ -3,7 +3,38 @@ package com.github.programmingwithmati.voice.service;
 import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
 import com.github.programmingwithmati.voice.model.VoiceCommand;
 
-public class MockSttClient implements SttClient {
+import java.util.concurrent.CompletableFuture;
+
+public class MockSttClient implements SttClient, AsyncSttClient, StreamingSttClient {
+
+    /**
+     * Partial results have the text of the final one with half its probability, as the audio is still incomplete.
+     */
+    @Override
+    public StreamingSttSession open(String id, String audioCodec, String language) {
+        var command = VoiceCommand.builder().id(id).audioCodec(audioCodec).language(language).build();
+        return new StreamingSttSession() {
+            @Override
+            public ParsedVoiceCommand feed(byte[] chunk) {
+                var partial = speechToText(command);
+                return partial.toBuilder().probability(partial.getProbability() / 2).build();
+            }
+
+            @Override
+            public ParsedVoiceCommand finish() {
+                return speechToText(command);
+            }
+
+            @Override
+            public void abort() {
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<ParsedVoiceCommand> speechToTextAsync(VoiceCommand value) {
+        return CompletableFuture.completedFuture(speechToText(value));
+    }
 
     public ParsedVoiceCommand speechToText(VoiceCommand value) {
         return switch (value.getId()) {
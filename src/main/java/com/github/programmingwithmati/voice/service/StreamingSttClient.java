@@ -0,0 +1,47 @@
+package com.github.programmingwithmati.voice.service;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A Speech To Text client that transcribes the audio of a command while it is still being recorded.
+ */
+public interface StreamingSttClient {
+
+    /**
+     * Opens a recognition session for one command. Its audio is fed in order, chunk by chunk.
+     */
+    StreamingSttSession open(String id, String audioCodec, String language);
+
+    /**
+     * Buffers the chunks of each session and transcribes the whole audio with the blocking client when the session
+     * is finished, for backends without a streaming API. Such sessions have no partial results.
+     */
+    static StreamingSttClient fromBlocking(SttClient sttClient) {
+        return (id, audioCodec, language) -> new StreamingSttSession() {
+            private final ByteArrayOutputStream audio = new ByteArrayOutputStream();
+
+            @Override
+            public ParsedVoiceCommand feed(byte[] chunk) {
+                audio.writeBytes(chunk);
+                return null;
+            }
+
+            @Override
+            public ParsedVoiceCommand finish() {
+                return sttClient.speechToText(VoiceCommand.builder()
+                        .id(id)
+                        .audioCodec(audioCodec)
+                        .language(language)
+                        .audio(audio.toByteArray())
+                        .build());
+            }
+
+            @Override
+            public void abort() {
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.programmingwithmati.voice.service;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+
+/**
+ * The recognition of one command by a {@link StreamingSttClient}. A session is used by a single stream thread.
+ */
+public interface StreamingSttSession {
+
+    /**
+     * @return the transcription of the audio fed so far, or {@code null} when the backend has none yet
+     */
+    ParsedVoiceCommand feed(byte[] chunk);
+
+    /**
+     * Ends the audio and returns the final transcription.
+     */
+    ParsedVoiceCommand finish();
+
+    /**
+     * Releases the session without a result, when the rest of its audio never arrived.
+     */
+    void abort();
+}
@@ -3,7 +3,20 @@ package com.github.programmingwithmati.voice.service;
 import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
 import com.github.programmingwithmati.voice.model.VoiceCommand;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public interface SttClient {
 
     ParsedVoiceCommand speechToText(VoiceCommand value);
+
+    /**
+     * Transcribes several commands in one call. The result at position {@code i} belongs to the command at
+     * position {@code i}; clients whose backend has a batch endpoint should override this.
+     */
+    default List<ParsedVoiceCommand> speechToTextBatch(List<VoiceCommand> values) {
+        return values.stream()
+                .map(this::speechToText)
+                .collect(Collectors.toList());
+    }
 }
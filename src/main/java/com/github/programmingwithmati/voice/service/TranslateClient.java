@@ -2,7 +2,20 @@ package com.github.programmingwithmati.voice.service;
 
 import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public interface TranslateClient {
 
     ParsedVoiceCommand translate(ParsedVoiceCommand original);
+
+    /**
+     * Translates several commands in one call. The result at position {@code i} belongs to the command at
+     * position {@code i}; clients whose backend has a batch endpoint should override this.
+     */
+    default List<ParsedVoiceCommand> translateBatch(List<ParsedVoiceCommand> originals) {
+        return originals.stream()
+                .map(this::translate)
+                .collect(Collectors.toList());
+    }
 }
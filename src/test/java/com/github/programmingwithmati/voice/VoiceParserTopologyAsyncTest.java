@@ -0,0 +1,180 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.AsyncSttClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import com.github.programmingwithmati.voice.service.TranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class VoiceParserTopologyAsyncTest {
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, VoiceCommand> firstRetryTopic;
+    private TestOutputTopic<String, VoiceCommand> secondRetryTopic;
+    private final Map<String, CompletableFuture<ParsedVoiceCommand>> calls = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        var configuration = TopologyConfiguration.builder()
+                .sttMode(TopologyConfiguration.SttMode.ASYNC)
+                .maxInFlight(4)
+                .asyncDrainInterval(Duration.ofMillis(10))
+                .build();
+        var voiceParserTopology = new VoiceParserTopology(new ControlledSttClient(), mock(TranslateClient.class), configuration);
+        testDriver = new TopologyTestDriver(voiceParserTopology.createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        firstRetryTopic = testDriver.createOutputTopic("voice-commands-retry-5s", Serdes.String().deserializer(), new JsonSerde<>(VoiceCommand.class).deserializer());
+        secondRetryTopic = testDriver.createOutputTopic("voice-commands-retry-1m", Serdes.String().deserializer(), new JsonSerde<>(VoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testResultsAreEmittedWhenCallsComplete() {
+        var first = voiceCommand();
+        var second = voiceCommand();
+
+        voiceCommandsTopic.pipeInput(first.getId(), first);
+        voiceCommandsTopic.pipeInput(second.getId(), second);
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+
+        complete(second);
+        testDriver.advanceWallClockTime(Duration.ofMillis(20));
+        assertEquals(second.getId(), recognizedCommandsOutputTopic.readValue().getId());
+
+        complete(first);
+        testDriver.advanceWallClockTime(Duration.ofMillis(20));
+        assertEquals(first.getId(), recognizedCommandsOutputTopic.readValue().getId());
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+    }
+
+    @Test
+    void testSameKeyKeepsOrder() {
+        var key = UUID.randomUUID().toString();
+        var first = voiceCommand();
+        var second = voiceCommand();
+
+        voiceCommandsTopic.pipeInput(key, first);
+        voiceCommandsTopic.pipeInput(key, second);
+
+        complete(second);
+        testDriver.advanceWallClockTime(Duration.ofMillis(20));
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+
+        complete(first);
+        testDriver.advanceWallClockTime(Duration.ofMillis(20));
+        assertEquals(first.getId(), recognizedCommandsOutputTopic.readValue().getId());
+        assertEquals(second.getId(), recognizedCommandsOutputTopic.readValue().getId());
+    }
+
+    @Test
+    void testFailedCallIsSentToTheRetryTopic() {
+        var first = voiceCommand();
+        var second = voiceCommand();
+
+        voiceCommandsTopic.pipeInput(first.getId(), first);
+        voiceCommandsTopic.pipeInput(second.getId(), second);
+        calls.get(first.getId()).completeExceptionally(new TimeoutException());
+        complete(second);
+        testDriver.advanceWallClockTime(Duration.ofMillis(20));
+
+        var retry = firstRetryTopic.readRecord();
+        assertEquals(first.getId(), retry.value().getId());
+        assertEquals("TIMEOUT", FailureHeaders.get(retry.headers(), FailureHeaders.REASON));
+        assertEquals(TimeoutException.class.getName(), FailureHeaders.get(retry.headers(), FailureHeaders.EXCEPTION));
+        assertEquals(second.getId(), recognizedCommandsOutputTopic.readValue().getId());
+    }
+
+    @Test
+    void testFailedCallKeepsTheRetryAttemptOfItsOwnRecord() {
+        var retried = voiceCommand();
+        var fresh = voiceCommand();
+        var record = new TestRecord<>(retried.getId(), retried);
+        FailureHeaders.set(record.headers(), FailureHeaders.STAGE, "stt");
+        FailureHeaders.set(record.headers(), FailureHeaders.ATTEMPT, 1);
+
+        voiceCommandsTopic.pipeInput(record);
+        calls.get(retried.getId()).completeExceptionally(new IllegalStateException("STT backend down"));
+        voiceCommandsTopic.pipeInput(fresh.getId(), fresh); // drains the failure while processing the fresh command
+        complete(fresh);
+        testDriver.advanceWallClockTime(Duration.ofMillis(20));
+
+        var retry = secondRetryTopic.readRecord();
+        assertEquals(retried.getId(), retry.value().getId());
+        assertEquals(2, FailureHeaders.getLong(retry.headers(), FailureHeaders.ATTEMPT, 0));
+        assertTrue(firstRetryTopic.isEmpty());
+        var result = recognizedCommandsOutputTopic.readRecord();
+        assertEquals(fresh.getId(), result.value().getId());
+        assertNull(FailureHeaders.get(result.headers(), FailureHeaders.ATTEMPT));
+    }
+
+    private void complete(VoiceCommand voiceCommand) {
+        calls.get(voiceCommand.getId()).complete(ParsedVoiceCommand.builder()
+                .id(voiceCommand.getId())
+                .textCommand("call john")
+                .language(voiceCommand.getLanguage())
+                .probability(0.95)
+                .build());
+    }
+
+    private static VoiceCommand voiceCommand() {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(UUID.randomUUID().toString())
+                .audio(bytes)
+                .language("en-US")
+                .audioCodec("FLAC")
+                .build();
+    }
+
+    private class ControlledSttClient implements SttClient, AsyncSttClient {
+
+        @Override
+        public CompletableFuture<ParsedVoiceCommand> speechToTextAsync(VoiceCommand value) {
+            return calls.computeIfAbsent(value.getId(), id -> new CompletableFuture<>());
+        }
+
+        @Override
+        public ParsedVoiceCommand speechToText(VoiceCommand value) {
+            return speechToTextAsync(value).join();
+        }
+    }
+}
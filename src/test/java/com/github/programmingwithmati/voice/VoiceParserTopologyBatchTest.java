@@ -0,0 +1,125 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.errors.StreamsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VoiceParserTopologyBatchTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+    private static final String JUAN_ID = "9821f112-ec35-4679-91e7-c558de479bc5";
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private MockSttClient sttClient;
+    private MockTranslateClient translateClient;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        sttClient = spy(new MockSttClient());
+        translateClient = spy(new MockTranslateClient());
+        var configuration = TopologyConfiguration.builder()
+                .sttMode(TopologyConfiguration.SttMode.BATCH)
+                .translateMode(TopologyConfiguration.TranslateMode.BATCH)
+                .maxBatchSize(2)
+                .batchLinger(Duration.ofMillis(100))
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, translateClient, configuration).createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testFullBatchIsSentInOneCall() {
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+
+        assertEquals(2, recognizedCommandsOutputTopic.readValuesToList().size());
+        verify(sttClient, times(1)).speechToTextBatch(anyList());
+        verify(translateClient, never()).translateBatch(anyList());
+    }
+
+    @Test
+    void testPartialBatchIsSentAfterLinger() {
+        voiceCommandsTopic.pipeInput(JUAN_ID, voiceCommand(JUAN_ID, "es-AR"));
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+
+        testDriver.advanceWallClockTime(Duration.ofMillis(100)); // STT batch
+        testDriver.advanceWallClockTime(Duration.ofMillis(100)); // translate batch, in the sub-topology of its language route
+        List<ParsedVoiceCommand> recognized = recognizedCommandsOutputTopic.readValuesToList();
+        assertEquals(1, recognized.size());
+        assertEquals("call juan", recognized.get(0).getTextCommand());
+        verify(translateClient, times(1)).translateBatch(anyList());
+    }
+
+    @Test
+    void testBatchesSentBeforeAFailedCallAreNotSentAgain() {
+        doThrow(new IllegalStateException("STT service down"))
+                .doCallRealMethod()
+                .doThrow(new IllegalStateException("STT service down"))
+                .doCallRealMethod()
+                .when(sttClient).speechToTextBatch(anyList());
+
+        voiceCommandsTopic.pipeInput("1", voiceCommand(JOHN_ID, "en-US"));
+        assertThrows(StreamsException.class, () -> voiceCommandsTopic.pipeInput("2", voiceCommand(JOHN_ID, "en-US")));
+        // the batch of the first two commands goes out, the one of the third fails
+        assertThrows(StreamsException.class, () -> voiceCommandsTopic.pipeInput("3", voiceCommand(JOHN_ID, "en-US")));
+        voiceCommandsTopic.pipeInput("4", voiceCommand(JOHN_ID, "en-US"));
+
+        assertEquals(List.of("1", "2", "3", "4"), recognizedCommandsOutputTopic.readKeyValuesToList().stream()
+                .map(keyValue -> keyValue.key)
+                .collect(Collectors.toList()));
+    }
+
+    private static VoiceCommand voiceCommand(String id, String language) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyCacheTest {
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private SttClient sttClient;
+    private MockTranslateClient translateClient;
+    private VoiceParserTopology voiceParserTopology;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            return ParsedVoiceCommand.builder()
+                    .id(voiceCommand.getId())
+                    .textCommand("llamar a juan")
+                    .language(voiceCommand.getLanguage())
+                    .probability(0.95)
+                    .build();
+        });
+        translateClient = spy(new MockTranslateClient());
+        var configuration = TopologyConfiguration.builder()
+                .sttCacheEnabled(true)
+                .translateCacheEnabled(true)
+                .cacheTtl(Duration.ofMinutes(10))
+                .cacheMaxEntries(2)
+                .build();
+        voiceParserTopology = new VoiceParserTopology(sttClient, translateClient, configuration);
+        testDriver = new TopologyTestDriver(voiceParserTopology.createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testRepeatedAudioIsTranscribedOnce() {
+        var audio = randomAudio();
+        var first = voiceCommand(audio);
+        var second = voiceCommand(audio);
+        var start = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput(first.getId(), first, start);
+        voiceCommandsTopic.pipeInput(second.getId(), second, start.plusSeconds(60));
+
+        var recognized = recognizedCommandsOutputTopic.readValuesToList();
+        assertEquals(first.getId(), recognized.get(0).getId());
+        assertEquals(second.getId(), recognized.get(1).getId());
+        assertEquals("call juan", recognized.get(1).getTextCommand());
+        verify(sttClient, times(1)).speechToText(any(VoiceCommand.class));
+        verify(translateClient, times(1)).translate(any(ParsedVoiceCommand.class));
+        assertEquals(1, voiceParserTopology.getSttCacheStats().getHits());
+        assertEquals(1, voiceParserTopology.getSttCacheStats().getMisses());
+    }
+
+    @Test
+    void testExpiredEntriesAreNotUsed() {
+        var audio = randomAudio();
+        var first = voiceCommand(audio);
+        var second = voiceCommand(audio);
+        var start = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput(first.getId(), first, start);
+        voiceCommandsTopic.pipeInput(second.getId(), second, start.plus(Duration.ofMinutes(11)));
+
+        verify(sttClient, times(2)).speechToText(any(VoiceCommand.class));
+        assertEquals(2, voiceParserTopology.getSttCacheStats().getMisses());
+    }
+
+    @Test
+    void testOldestEntriesAreEvictedFirst() {
+        var oldest = randomAudio();
+        var newest = randomAudio();
+        var start = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand(oldest), start);
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand(randomAudio()), start.plusSeconds(1));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand(newest), start.plusSeconds(2));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand(randomAudio()), start.plusSeconds(61)); // purges down to 2 entries
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand(newest), start.plusSeconds(62));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand(oldest), start.plusSeconds(63));
+
+        verify(sttClient, times(5)).speechToText(any(VoiceCommand.class));
+        assertEquals(1, voiceParserTopology.getSttCacheStats().getHits());
+        assertEquals(2, voiceParserTopology.getSttCacheStats().getEvictions());
+    }
+
+    private static byte[] randomAudio() {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static VoiceCommand voiceCommand(byte[] audio) {
+        return VoiceCommand.builder()
+                .id(UUID.randomUUID().toString())
+                .audio(audio)
+                .language("es-AR")
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.CascadeConfiguration;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyCascadeTest {
+
+    private static final String CONFIDENT_ID = "confident";
+    private static final String UNCERTAIN_ID = "uncertain";
+    private static final String NOISE_ID = "noise";
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> unrecognizedCommandsOutputTopic;
+    private SttClient escalationClient;
+    private VoiceParserTopology voiceParserTopology;
+
+    @AfterEach
+    void tearDown() {
+        if (testDriver != null) {
+            testDriver.close();
+            voiceParserTopology.close();
+        }
+    }
+
+    @Test
+    void testOnlyUncertainTranscriptionsAreEscalated() {
+        start(TopologyConfiguration.builder().sttCascade(CascadeConfiguration.defaults()).build());
+
+        voiceCommandsTopic.pipeInput(CONFIDENT_ID, voiceCommand(CONFIDENT_ID, "en-US"));
+        voiceCommandsTopic.pipeInput(UNCERTAIN_ID, voiceCommand(UNCERTAIN_ID, "en-US"));
+        voiceCommandsTopic.pipeInput(NOISE_ID, voiceCommand(NOISE_ID, "en-US"));
+
+        var recognized = recognizedCommandsOutputTopic.readValuesToList();
+        assertEquals(List.of(CONFIDENT_ID, UNCERTAIN_ID), recognized.stream().map(ParsedVoiceCommand::getId).collect(Collectors.toList()));
+        assertEquals("call mary", recognized.get(1).getTextCommand());
+        assertEquals(NOISE_ID, unrecognizedCommandsOutputTopic.readValue().getId());
+        verify(escalationClient, times(1)).speechToText(any(VoiceCommand.class));
+        assertEquals(3, voiceParserTopology.getCascadeStats().getTranscriptions());
+        assertEquals(1, voiceParserTopology.getCascadeStats().getEscalations());
+        assertEquals(1.0 / 3, metric("escalation-ratio"), 1e-9);
+    }
+
+    @Test
+    void testLanguageBandOverridesTheDefaultOne() {
+        start(TopologyConfiguration.builder()
+                .sttCascade(CascadeConfiguration.builder()
+                        .languageBands(Map.of("es", CascadeConfiguration.UncertaintyBand.of(0.2, 0.8)))
+                        .build())
+                .build());
+
+        voiceCommandsTopic.pipeInput(UNCERTAIN_ID, voiceCommand(UNCERTAIN_ID, "es-AR"));
+        voiceCommandsTopic.pipeInput(NOISE_ID, voiceCommand(NOISE_ID, "es-AR"));
+
+        verify(escalationClient, times(1)).speechToText(any(VoiceCommand.class));
+        assertEquals(0, recognizedCommandsOutputTopic.getQueueSize());
+        assertEquals(2, unrecognizedCommandsOutputTopic.getQueueSize());
+    }
+
+    @Test
+    void testBatchModeEscalatesTheUncertainCommandsInOneCall() {
+        start(TopologyConfiguration.builder()
+                .sttCascade(CascadeConfiguration.defaults())
+                .sttMode(TopologyConfiguration.SttMode.BATCH)
+                .maxBatchSize(3)
+                .build());
+
+        voiceCommandsTopic.pipeInput(CONFIDENT_ID, voiceCommand(CONFIDENT_ID, "en-US"));
+        voiceCommandsTopic.pipeInput(UNCERTAIN_ID, voiceCommand(UNCERTAIN_ID, "en-US"));
+        voiceCommandsTopic.pipeInput(NOISE_ID, voiceCommand(NOISE_ID, "en-US"));
+
+        assertEquals(2, recognizedCommandsOutputTopic.getQueueSize());
+        verify(escalationClient, times(1)).speechToTextBatch(anyList());
+        verify(escalationClient, never()).speechToText(any(VoiceCommand.class));
+    }
+
+    @Test
+    void testInvalidBandIsRejected() {
+        var configuration = TopologyConfiguration.builder()
+                .sttCascade(CascadeConfiguration.builder().defaultBand(CascadeConfiguration.UncertaintyBand.of(0.9, 0.5)).build())
+                .build();
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> new VoiceParserTopology(mock(SttClient.class), mock(SttClient.class), new MockTranslateClient(), configuration));
+        assertTrue(exception.getMessage().contains("default"));
+    }
+
+    private void start(TopologyConfiguration configuration) {
+        SttClient firstPass = mock(SttClient.class);
+        when(firstPass.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> firstPass(invocation.getArgument(0)));
+        when(firstPass.speechToTextBatch(anyList())).thenAnswer(invocation -> {
+            List<VoiceCommand> values = invocation.getArgument(0);
+            return values.stream().map(VoiceParserTopologyCascadeTest::firstPass).collect(Collectors.toList());
+        });
+        escalationClient = mock(SttClient.class);
+        when(escalationClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> escalated(invocation.getArgument(0)));
+        when(escalationClient.speechToTextBatch(anyList())).thenAnswer(invocation -> {
+            List<VoiceCommand> values = invocation.getArgument(0);
+            return values.stream().map(VoiceParserTopologyCascadeTest::escalated).collect(Collectors.toList());
+        });
+        voiceParserTopology = new VoiceParserTopology(firstPass, escalationClient, new MockTranslateClient(), configuration);
+        testDriver = new TopologyTestDriver(voiceParserTopology.createTopology(), properties());
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        unrecognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.UNRECOGNIZED_COMMAND_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    private static ParsedVoiceCommand firstPass(VoiceCommand voiceCommand) {
+        double probability = switch (voiceCommand.getId()) {
+            case CONFIDENT_ID -> 0.97;
+            case UNCERTAIN_ID -> 0.81;
+            default -> 0.3;
+        };
+        return ParsedVoiceCommand.builder()
+                .id(voiceCommand.getId())
+                .textCommand("call marie")
+                .language(voiceCommand.getLanguage())
+                .probability(probability)
+                .build();
+    }
+
+    /**
+     * The escalation client is only sure about the uncertain command.
+     */
+    private static ParsedVoiceCommand escalated(VoiceCommand voiceCommand) {
+        return ParsedVoiceCommand.builder()
+                .id(voiceCommand.getId())
+                .textCommand("call mary")
+                .language(voiceCommand.getLanguage())
+                .probability(voiceCommand.getId().equals(UNCERTAIN_ID) ? 0.96 : 0.4)
+                .build();
+    }
+
+    private double metric(String name) {
+        return testDriver.metrics().entrySet().stream()
+                .filter(entry -> entry.getKey().name().equals(name))
+                .mapToDouble(entry -> (Double) entry.getValue().metricValue())
+                .sum();
+    }
+
+    private static Properties properties() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+        return props;
+    }
+
+    private static VoiceCommand voiceCommand(String id, String language) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .audioCodec("FLAC")
+                .language(language)
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VoiceParserTopologyDeduplicationTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+    private static final String GIBBERISH_ID = "e0b80c6a-5c59-479c-b8d4-0b3f375e8b19";
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> unrecognizedCommandsOutputTopic;
+    private MockSttClient sttClient;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        sttClient = spy(new MockSttClient());
+        var configuration = TopologyConfiguration.builder()
+                .deduplicationEnabled(true)
+                .deduplicationRetention(Duration.ofMinutes(30))
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration).createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        unrecognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.UNRECOGNIZED_COMMAND_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testReplayedCommandsAreSkipped() {
+        var start = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID), start);
+        voiceCommandsTopic.pipeInput(GIBBERISH_ID, voiceCommand(GIBBERISH_ID), start.plusSeconds(1));
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID), start.plusSeconds(2));
+        voiceCommandsTopic.pipeInput(GIBBERISH_ID, voiceCommand(GIBBERISH_ID), start.plusSeconds(3));
+
+        assertEquals(1, recognizedCommandsOutputTopic.readValuesToList().size());
+        assertEquals(1, unrecognizedCommandsOutputTopic.readValuesToList().size());
+        verify(sttClient, times(2)).speechToText(any(VoiceCommand.class));
+    }
+
+    @Test
+    void testIdsAreForgottenAfterRetention() {
+        var start = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID), start);
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID), start.plus(Duration.ofMinutes(31)));
+
+        assertEquals(2, recognizedCommandsOutputTopic.readValuesToList().size());
+        assertTrue(unrecognizedCommandsOutputTopic.isEmpty());
+    }
+
+    private static VoiceCommand voiceCommand(String id) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .language("en-US")
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.intent.IntentGrammar;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceIntent;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyIntentTest {
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, VoiceIntent> intentsOutputTopic;
+    private final Map<String, String> transcriptions = new HashMap<>();
+    private final Map<String, Double> probabilities = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        var sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            return ParsedVoiceCommand.builder()
+                    .id(voiceCommand.getId())
+                    .textCommand(transcriptions.get(voiceCommand.getId()))
+                    .language(voiceCommand.getLanguage())
+                    .probability(probabilities.get(voiceCommand.getId()))
+                    .build();
+        });
+        var configuration = TopologyConfiguration.builder()
+                .intentGrammar(IntentGrammar.bundled())
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration).createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        intentsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.VOICE_INTENTS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(VoiceIntent.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testRecognizedCommandsAreSentWithTheirIntent() {
+        var voiceCommand = voiceCommand("en-US", "Play Bohemian Rhapsody on the kitchen speaker", 0.95);
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand);
+
+        assertEquals("Play Bohemian Rhapsody on the kitchen speaker", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        var intent = intentsOutputTopic.readKeyValue();
+        assertEquals("device-1", intent.key);
+        assertEquals(voiceCommand.getId(), intent.value.getId());
+        assertEquals("play", intent.value.getIntent());
+        assertEquals(Map.of("media", "Bohemian Rhapsody", "device", "the kitchen speaker"), intent.value.getSlots());
+        assertEquals("en-US", intent.value.getLanguage());
+    }
+
+    @Test
+    void testTranslatedCommandsAreMatchedOnTheirTranslation() {
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("es-AR", "llamar a juan", 0.95));
+
+        var intent = intentsOutputTopic.readValue();
+        assertEquals("call", intent.getIntent());
+        assertEquals(Map.of("contact", "juan"), intent.getSlots());
+        assertEquals("call juan", intent.getTextCommand());
+    }
+
+    @Test
+    void testUnmatchedAndUnrecognizedCommandsHaveNoIntent() {
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("en-US", "open the garage", 0.95));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("en-US", "call john", 0.4));
+
+        assertEquals("open the garage", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+        assertTrue(intentsOutputTopic.isEmpty());
+    }
+
+    private VoiceCommand voiceCommand(String language, String transcription, double probability) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        String id = UUID.randomUUID().toString();
+        transcriptions.put(id, transcription);
+        probabilities.put(id, probability);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
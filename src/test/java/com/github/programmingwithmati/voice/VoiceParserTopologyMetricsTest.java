@@ -0,0 +1,88 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.metrics.StageMetrics;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VoiceParserTopologyMetricsTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+    private static final String JUAN_ID = "9821f112-ec35-4679-91e7-c558de479bc5";
+    private static final String UNKNOWN_ID = "0c4ba5b6-5ae0-4d0e-9d4c-2ee7d0d0b0f1";
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(new MockSttClient(), new MockTranslateClient()).createTopology(), props);
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testStagesRecordEveryRecord() {
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+        voiceCommandsTopic.pipeInput(JUAN_ID, voiceCommand(JUAN_ID, "es-AR"));
+
+        assertEquals(2.0, metric("records-total", Map.of("stage", "stt")));
+        assertEquals(1.0, metric("records-total", Map.of("stage", "translate")));
+        assertEquals(2.0, metric("records-total", Map.of("stage", "serialize-recognized")));
+        assertEquals(0.0, metric("error-total", Map.of("stage", "stt")));
+    }
+
+    @Test
+    void testRecognizedRatioPerLanguage() {
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+        voiceCommandsTopic.pipeInput(UNKNOWN_ID, voiceCommand(UNKNOWN_ID, "en-US"));
+
+        assertEquals(0.5, metric("recognized-ratio", Map.of("language", "en-US")));
+        assertEquals(2.0, metric("commands-total", Map.of("language", "en-US")));
+    }
+
+    private double metric(String name, Map<String, String> tags) {
+        return testDriver.metrics().entrySet().stream()
+                .filter(entry -> entry.getKey().group().equals(StageMetrics.GROUP))
+                .filter(entry -> entry.getKey().name().equals(name))
+                .filter(entry -> entry.getKey().tags().entrySet().containsAll(tags.entrySet()))
+                .map(Map.Entry::getValue)
+                .map(Metric::metricValue)
+                .mapToDouble(value -> (Double) value)
+                .sum();
+    }
+
+    private static VoiceCommand voiceCommand(String id, String language) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.phrase.PhraseTable;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyPhraseTableTest {
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestInputTopic<String, String> phraseTableInputTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, String> phraseTableOutputTopic;
+    private MockTranslateClient translateClient;
+    private final Map<String, String> transcriptions = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        var sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            return ParsedVoiceCommand.builder()
+                    .id(voiceCommand.getId())
+                    .textCommand(transcriptions.get(voiceCommand.getId()))
+                    .language(voiceCommand.getLanguage())
+                    .probability(0.95)
+                    .build();
+        });
+        translateClient = spy(new MockTranslateClient());
+        var configuration = TopologyConfiguration.builder()
+                .phraseTable(PhraseTable.bundled())
+                .phraseLearningThreshold(2)
+                .maxLearnedPhrases(1)
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, translateClient, configuration).createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        phraseTableInputTopic = testDriver.createInputTopic(VoiceParserTopology.PHRASE_TABLE_TOPIC, Serdes.String().serializer(), Serdes.String().serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        phraseTableOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.PHRASE_TABLE_TOPIC, Serdes.String().deserializer(), Serdes.String().deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testKnownPhrasesAreTranslatedLocally() {
+        voiceCommandsTopic.pipeInput("1", voiceCommand("es-AR", "\u00a1Llamar a  MAM\u00c1!"));
+
+        assertEquals("call mom", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        verify(translateClient, never()).translate(any(ParsedVoiceCommand.class));
+        assertTrue(phraseTableOutputTopic.isEmpty());
+    }
+
+    @Test
+    void testRepeatedPhrasesAreLearnedFromTheTranslations() {
+        voiceCommandsTopic.pipeInput("1", voiceCommand("es-ES", "Abrir la puerta"));
+        assertTrue(phraseTableOutputTopic.isEmpty()); // translated once, not learned yet
+        voiceCommandsTopic.pipeInput("2", voiceCommand("es-MX", "abrir la puerta."));
+        voiceCommandsTopic.pipeInput("3", voiceCommand("es-AR", "abrir la puerta"));
+
+        assertEquals(List.of("call juan", "call juan", "call juan"), recognizedCommandsOutputTopic.readValuesToList().stream()
+                .map(ParsedVoiceCommand::getTextCommand).collect(Collectors.toList()));
+        assertEquals(List.of(KeyValue.pair("es|abrir la puerta", "call juan")), phraseTableOutputTopic.readKeyValuesToList());
+        verify(translateClient, times(2)).translate(any(ParsedVoiceCommand.class));
+    }
+
+    @Test
+    void testLearnedPhrasesAreCapped() {
+        phraseTableInputTopic.pipeInput("es|abrir la puerta", "open the door");
+        phraseTableInputTopic.pipeInput("es|cerrar la puerta", "close the door");
+        voiceCommandsTopic.pipeInput("1", voiceCommand("es-ES", "cerrar la puerta"));
+
+        assertEquals("call juan", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        verify(translateClient, times(1)).translate(any(ParsedVoiceCommand.class));
+    }
+
+    @Test
+    void testForgottenPhrasesAreTranslatedAgain() {
+        phraseTableInputTopic.pipeInput("es|abrir la puerta", "open the door");
+        voiceCommandsTopic.pipeInput("1", voiceCommand("es-ES", "abrir la puerta"));
+        phraseTableInputTopic.pipeInput("es|abrir la puerta", (String) null);
+        voiceCommandsTopic.pipeInput("2", voiceCommand("es-ES", "abrir la puerta"));
+
+        assertEquals("open the door", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        assertEquals("call juan", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        verify(translateClient, times(1)).translate(any(ParsedVoiceCommand.class));
+    }
+
+    @Test
+    void testPhrasesAreNormalized() {
+        assertEquals("es|llamar a juan", PhraseTable.key("es-AR", " \u00bfLlamar a Juan?? "));
+        assertEquals("|", PhraseTable.key(null, null));
+    }
+
+    @Test
+    void testPhraseTableRequiresSyncTranslations() {
+        var configuration = TopologyConfiguration.builder()
+                .phraseTable(PhraseTable.empty())
+                .translateMode(TopologyConfiguration.TranslateMode.BATCH)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> new VoiceParserTopology(mock(SttClient.class), translateClient, configuration));
+    }
+
+    private VoiceCommand voiceCommand(String language, String transcription) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        String id = UUID.randomUUID().toString();
+        transcriptions.put(id, transcription);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
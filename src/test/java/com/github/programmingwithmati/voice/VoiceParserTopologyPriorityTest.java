@@ -0,0 +1,195 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.PriorityConfiguration;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.processor.PriorityLaneTransformer;
+import com.github.programmingwithmati.voice.processor.TokenBucket;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyPriorityTest {
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestInputTopic<String, VoiceCommand> bulkCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private VoiceParserTopology voiceParserTopology;
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+        voiceParserTopology.close();
+    }
+
+    @Test
+    void testInteractiveCommandsAreNotQueuedBehindBulkCommands() {
+        start(PriorityConfiguration.defaults());
+
+        for (int i = 0; i < 10; i++) {
+            bulkCommandsTopic.pipeInput("replay", voiceCommand("bulk-" + i));
+        }
+        voiceCommandsTopic.pipeInput("phone", voiceCommand("interactive"));
+        assertEquals(List.of("interactive"), recognizedIds());
+
+        testDriver.advanceWallClockTime(Duration.ofMillis(50));
+        assertEquals(10, recognizedIds().size());
+    }
+
+    @Test
+    void testChattyDeviceIsDeferredNotDropped() {
+        start(PriorityConfiguration.builder().deviceBurst(2).deviceRate(1).build());
+        testDriver.advanceWallClockTime(Duration.ofMillis(50)); // the first round sets the clock of the buckets
+
+        for (int i = 0; i < 4; i++) {
+            voiceCommandsTopic.pipeInput("chatty", voiceCommand("chatty-" + i));
+        }
+        voiceCommandsTopic.pipeInput("quiet", voiceCommand("quiet"));
+        assertEquals(List.of("chatty-0", "chatty-1", "quiet"), recognizedIds());
+
+        testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+        assertEquals(List.of("chatty-2"), recognizedIds());
+        testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+        assertEquals(List.of("chatty-3"), recognizedIds());
+    }
+
+    @Test
+    void testDeviceKeepsItsOrderWhenItsBucketRefills() {
+        start(PriorityConfiguration.builder().deviceBurst(2).deviceRate(1).recordsPerInterval(1).build());
+        testDriver.advanceWallClockTime(Duration.ofMillis(50));
+
+        for (int i = 0; i < 4; i++) {
+            voiceCommandsTopic.pipeInput("chatty", voiceCommand("chatty-" + i));
+        }
+        assertEquals(List.of("chatty-0", "chatty-1"), recognizedIds());
+        testDriver.advanceWallClockTime(Duration.ofSeconds(2)); // refills the bucket, but the interval's budget is used
+        assertEquals(List.of(), recognizedIds());
+
+        voiceCommandsTopic.pipeInput("chatty", voiceCommand("chatty-4"));
+        assertEquals(List.of(), recognizedIds());
+        var released = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+            released.addAll(recognizedIds());
+        }
+        assertEquals(List.of("chatty-2", "chatty-3", "chatty-4"), released);
+    }
+
+    @Test
+    void testDeferredCommandsKeepTheirTimestampAndIdleBucketsAreNotWritten() {
+        start(PriorityConfiguration.builder().deviceBurst(1).deviceRate(1).build());
+        testDriver.advanceWallClockTime(Duration.ofMillis(50));
+        var sent = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput("chatty", voiceCommand("chatty-0"), sent);
+        voiceCommandsTopic.pipeInput("chatty", voiceCommand("chatty-1"), sent.plusMillis(1));
+        recognizedCommandsOutputTopic.readRecord();
+        KeyValueStore<String, TokenBucket> buckets = testDriver.getKeyValueStore(VoiceParserTopology.DEVICE_BUCKETS_STORE);
+        long updatedAt = buckets.get("chatty").getUpdatedAt();
+        testDriver.advanceWallClockTime(Duration.ofMillis(50)); // not enough for a token
+        assertEquals(updatedAt, buckets.get("chatty").getUpdatedAt());
+
+        testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+        var released = recognizedCommandsOutputTopic.readRecord();
+        assertEquals("chatty-1", released.value().getId());
+        assertEquals(sent.plusMillis(1), released.getRecordTime());
+    }
+
+    @Test
+    void testBulkLaneGetsItsShareWhileInteractiveLaneIsBusy() {
+        start(PriorityConfiguration.builder().recordsPerInterval(4).interactiveWeight(1).bulkWeight(1).build());
+
+        for (int i = 0; i < 6; i++) {
+            bulkCommandsTopic.pipeInput("replay", voiceCommand("bulk-" + i));
+        }
+        for (int i = 0; i < 4; i++) {
+            voiceCommandsTopic.pipeInput("device-" + i, voiceCommand("interactive-" + i));
+        }
+        assertEquals(4, recognizedIds().size());
+
+        testDriver.advanceWallClockTime(Duration.ofMillis(50));
+        assertEquals(List.of("bulk-0", "bulk-1"), recognizedIds());
+        testDriver.advanceWallClockTime(Duration.ofMillis(50));
+        assertEquals(List.of("bulk-2", "bulk-3", "bulk-4", "bulk-5"), recognizedIds());
+    }
+
+    @Test
+    void testDevicesOfALaneAreServedInTurns() {
+        start(PriorityConfiguration.builder().recordsPerInterval(2).build());
+
+        for (int i = 0; i < 5; i++) {
+            bulkCommandsTopic.pipeInput("backlog", voiceCommand("backlog-" + i));
+        }
+        var lowPriority = new RecordHeaders().add(PriorityLaneTransformer.PRIORITY_HEADER, "low".getBytes(StandardCharsets.UTF_8));
+        voiceCommandsTopic.pipeInput(new TestRecord<>("late", voiceCommand("late"), lowPriority));
+        assertEquals(List.of(), recognizedIds());
+
+        testDriver.advanceWallClockTime(Duration.ofMillis(50));
+        assertEquals(List.of("backlog-0", "late"), recognizedIds());
+    }
+
+    private void start(PriorityConfiguration priorityConfiguration) {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        SttClient sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            return ParsedVoiceCommand.builder()
+                    .id(voiceCommand.getId())
+                    .textCommand("call john")
+                    .language(voiceCommand.getLanguage())
+                    .probability(0.95)
+                    .build();
+        });
+        var configuration = TopologyConfiguration.builder().priorityLanes(priorityConfiguration).build();
+        voiceParserTopology = new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration);
+        testDriver = new TopologyTestDriver(voiceParserTopology.createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        bulkCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_BULK_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    private List<String> recognizedIds() {
+        return recognizedCommandsOutputTopic.readValuesToList().stream().map(ParsedVoiceCommand::getId).collect(Collectors.toList());
+    }
+
+    private static VoiceCommand voiceCommand(String id) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .audioCodec("FLAC")
+                .language("en-US")
+                .build();
+    }
+}
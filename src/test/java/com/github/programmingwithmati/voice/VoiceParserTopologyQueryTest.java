@@ -0,0 +1,113 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.query.TranscriptionQueries;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.WindowStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyQueryTest {
+
+    private static final Instant START = Instant.parse("2021-06-01T10:00:00Z");
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private WindowStore<String, ParsedVoiceCommand> resultsById;
+    private WindowStore<String, ParsedVoiceCommand> resultsByDevice;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        var sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            return ParsedVoiceCommand.builder()
+                    .id(voiceCommand.getId())
+                    .textCommand("text")
+                    .language(voiceCommand.getLanguage())
+                    // commands ending in "?" are not understood
+                    .probability(voiceCommand.getId().endsWith("?") ? 0.3 : 0.95)
+                    .build();
+        });
+        var configuration = TopologyConfiguration.builder()
+                .queryStoresEnabled(true)
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration).createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer(), START, Duration.ofMinutes(1));
+        resultsById = testDriver.getWindowStore(VoiceParserTopology.RESULTS_BY_ID_STORE);
+        resultsByDevice = testDriver.getWindowStore(VoiceParserTopology.RESULTS_BY_DEVICE_STORE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testResultsCanBeLookedUpById() {
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("command-1", "en-US"));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("command-2", "es-AR"));
+        voiceCommandsTopic.pipeInput("device-2", voiceCommand("command-3?", "en-US"));
+
+        assertEquals("text", TranscriptionQueries.latest(resultsById, "command-1").orElseThrow().getTextCommand());
+        assertEquals("call juan", TranscriptionQueries.latest(resultsById, "command-2").orElseThrow().getTextCommand());
+        assertEquals(0.3, TranscriptionQueries.latest(resultsById, "command-3?").orElseThrow().getProbability());
+        assertTrue(TranscriptionQueries.latest(resultsById, "command-4").isEmpty());
+    }
+
+    @Test
+    void testRecentResultsOfADeviceCanBeFilteredByTimeAndLanguage() {
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("command-1", "en-US"));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("command-2", "es-AR"));
+        voiceCommandsTopic.pipeInput("device-1", voiceCommand("command-3", "en-GB"));
+        voiceCommandsTopic.pipeInput("device-2", voiceCommand("command-4", "en-US"));
+
+        var end = START.plus(Duration.ofHours(1));
+        assertEquals(List.of("command-1", "command-2", "command-3"), ids(TranscriptionQueries.recent(resultsByDevice, "device-1", START, end, null)));
+        assertEquals(List.of("command-2", "command-3"), ids(TranscriptionQueries.recent(resultsByDevice, "device-1", START.plus(Duration.ofMinutes(1)), end, null)));
+        assertEquals(List.of("command-1", "command-3"), ids(TranscriptionQueries.recent(resultsByDevice, "device-1", START, end, "en")));
+        assertEquals(List.of("command-4"), ids(TranscriptionQueries.recent(resultsByDevice, "device-2", START, end, null)));
+    }
+
+    private static List<String> ids(List<ParsedVoiceCommand> results) {
+        return results.stream().map(ParsedVoiceCommand::getId).collect(Collectors.toList());
+    }
+
+    private static VoiceCommand voiceCommand(String id, String language) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
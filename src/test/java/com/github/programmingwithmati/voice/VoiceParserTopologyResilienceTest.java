@@ -0,0 +1,145 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.ResilienceConfiguration;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.LatencyInjectingSttClient;
+import com.github.programmingwithmati.voice.service.LatencyInjectingTranslateClient;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import com.github.programmingwithmati.voice.service.TranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VoiceParserTopologyResilienceTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+    private static final String JUAN_ID = "9821f112-ec35-4679-91e7-c558de479bc5";
+    private static final long SLOW = Duration.ofSeconds(5).toNanos();
+
+    private TopologyTestDriver testDriver;
+    private VoiceParserTopology voiceParserTopology;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, VoiceCommand> voiceCommandsRetryTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> translateRetryTopic;
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+        voiceParserTopology.close();
+    }
+
+    @Test
+    void testOpenCircuitSendsCommandsToRetryTopicWithoutCalling() {
+        SttClient sttClient = spy(new LatencyInjectingSttClient(new MockSttClient(), () -> SLOW));
+        var resilience = ResilienceConfiguration.builder()
+                .callTimeout(Duration.ofMillis(20))
+                .slidingWindowSize(4)
+                .minimumCalls(2)
+                .openDuration(Duration.ofHours(1))
+                .build();
+        setup(sttClient, new MockTranslateClient(), TopologyConfiguration.builder().sttResilience(resilience).build());
+
+        for (int i = 0; i < 5; i++) {
+            voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+        }
+
+        var retried = voiceCommandsRetryTopic.readRecordsToList();
+        assertEquals(5, retried.size());
+        assertEquals("TIMEOUT", failureReason(retried.get(0)));
+        assertEquals("TIMEOUT", failureReason(retried.get(1)));
+        assertEquals("CIRCUIT_OPEN", failureReason(retried.get(4)));
+        assertEquals(JOHN_ID, retried.get(4).value().getId());
+        verify(sttClient, times(2)).speechToText(any(VoiceCommand.class));
+    }
+
+    @Test
+    void testSlowTranslationDoesNotHoldBackOtherCommands() {
+        TranslateClient translateClient = new LatencyInjectingTranslateClient(new MockTranslateClient(), () -> SLOW);
+        var configuration = TopologyConfiguration.builder()
+                .translateResilience(ResilienceConfiguration.builder().callTimeout(Duration.ofMillis(20)).build())
+                .build();
+        setup(new MockSttClient(), translateClient, configuration);
+
+        voiceCommandsTopic.pipeInput(JUAN_ID, voiceCommand(JUAN_ID, "es-AR"));
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+
+        var retried = translateRetryTopic.readRecord();
+        assertEquals(JUAN_ID, retried.value().getId());
+        assertEquals("llamar a juan", retried.value().getTextCommand());
+        assertEquals("TIMEOUT", failureReason(retried));
+        assertEquals("call john", recognizedCommandsOutputTopic.readValue().getTextCommand());
+    }
+
+    @Test
+    void testTimedOutAsyncCallSendsItsCommandToRetryTopic() throws InterruptedException {
+        SttClient sttClient = new LatencyInjectingSttClient(new MockSttClient(), () -> SLOW);
+        var configuration = TopologyConfiguration.builder()
+                .sttMode(TopologyConfiguration.SttMode.ASYNC)
+                .asyncDrainInterval(Duration.ofMillis(10))
+                .sttResilience(ResilienceConfiguration.builder().callTimeout(Duration.ofMillis(20)).build())
+                .build();
+        setup(sttClient, new MockTranslateClient(), configuration);
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(JOHN_ID, "en-US"));
+        for (int i = 0; i < 500 && voiceCommandsRetryTopic.isEmpty(); i++) {
+            Thread.sleep(10); // the call times out in real time
+            testDriver.advanceWallClockTime(Duration.ofMillis(10));
+        }
+
+        var retried = voiceCommandsRetryTopic.readRecord();
+        assertEquals(JOHN_ID, retried.value().getId());
+        assertEquals("TIMEOUT", failureReason(retried));
+    }
+
+    private void setup(SttClient sttClient, TranslateClient translateClient, TopologyConfiguration configuration) {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        voiceParserTopology = new VoiceParserTopology(sttClient, translateClient, configuration);
+        testDriver = new TopologyTestDriver(voiceParserTopology.createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        voiceCommandsRetryTopic = testDriver.createOutputTopic("voice-commands-retry-5s", Serdes.String().deserializer(), new JsonSerde<>(VoiceCommand.class).deserializer());
+        translateRetryTopic = testDriver.createOutputTopic("translate-commands-retry-5s", Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    private static String failureReason(TestRecord<String, ?> record) {
+        return new String(record.headers().lastHeader(FailureHeaders.REASON).value(), StandardCharsets.UTF_8);
+    }
+
+    private static VoiceCommand voiceCommand(String id, String language) {
+        var audio = new byte[100];
+        new Random().nextBytes(audio);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(audio)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.RetryPolicy;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.errors.FailureHeaders;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+class VoiceParserTopologyRetryTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+
+    private TopologyTestDriver testDriver;
+    private MockSttClient sttClient;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestInputTopic<String, VoiceCommand> firstRetryInputTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, VoiceCommand> firstRetryOutputTopic;
+    private TestOutputTopic<String, VoiceCommand> deadLetterTopic;
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testFailedCommandIsRetriedOnceDue() {
+        setup(RetryPolicy.defaults());
+        doThrow(new IllegalStateException("STT backend down")).doCallRealMethod().when(sttClient).speechToText(any(VoiceCommand.class));
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand());
+
+        var retry = firstRetryOutputTopic.readRecord();
+        assertEquals("1", FailureHeaders.get(retry.headers(), FailureHeaders.ATTEMPT));
+        assertEquals("stt", FailureHeaders.get(retry.headers(), FailureHeaders.STAGE));
+        assertEquals("FAILED", FailureHeaders.get(retry.headers(), FailureHeaders.REASON));
+        assertEquals(IllegalStateException.class.getName(), FailureHeaders.get(retry.headers(), FailureHeaders.EXCEPTION));
+
+        firstRetryInputTopic.pipeInput(new TestRecord<>(retry.key(), retry.value(), retry.headers()));
+        testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+        assertThrows(NoSuchElementException.class, recognizedCommandsOutputTopic::readValue); // not due yet
+
+        testDriver.advanceWallClockTime(Duration.ofSeconds(5));
+        var recognized = recognizedCommandsOutputTopic.readRecord();
+        assertEquals(JOHN_ID, recognized.key());
+        assertEquals("call john", recognized.value().getTextCommand());
+        assertNull(FailureHeaders.get(recognized.headers(), FailureHeaders.ATTEMPT));
+        assertNull(FailureHeaders.get(recognized.headers(), FailureHeaders.STAGE));
+    }
+
+    @Test
+    void testRetriedCommandKeepsItsNullKey() {
+        setup(RetryPolicy.defaults());
+        doThrow(new IllegalStateException("STT backend down")).doCallRealMethod().when(sttClient).speechToText(any(VoiceCommand.class));
+
+        voiceCommandsTopic.pipeInput(null, voiceCommand());
+        var retry = firstRetryOutputTopic.readRecord();
+        firstRetryInputTopic.pipeInput(new TestRecord<>(retry.key(), retry.value(), retry.headers()));
+        testDriver.advanceWallClockTime(Duration.ofSeconds(6));
+
+        assertNull(recognizedCommandsOutputTopic.readRecord().key());
+    }
+
+    @Test
+    void testRetriedCommandKeepsItsTimestamp() {
+        setup(RetryPolicy.defaults());
+        doThrow(new IllegalStateException("STT backend down")).doCallRealMethod().when(sttClient).speechToText(any(VoiceCommand.class));
+        var sent = Instant.parse("2021-07-01T10:00:00Z");
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(), sent);
+        var retry = firstRetryOutputTopic.readRecord();
+        firstRetryInputTopic.pipeInput(new TestRecord<>(retry.key(), retry.value(), retry.headers(), retry.timestamp()));
+        testDriver.advanceWallClockTime(Duration.ofSeconds(6));
+
+        assertEquals(sent, recognizedCommandsOutputTopic.readRecord().getRecordTime());
+    }
+
+    @Test
+    void testCommandGoesToDeadLetterTopicAfterLastTier() {
+        setup(RetryPolicy.builder().delays(List.of(Duration.ofSeconds(5))).build());
+        doThrow(new IllegalStateException("STT backend down")).when(sttClient).speechToText(any(VoiceCommand.class));
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand());
+        var retry = firstRetryOutputTopic.readRecord();
+        firstRetryInputTopic.pipeInput(new TestRecord<>(retry.key(), retry.value(), retry.headers()));
+        testDriver.advanceWallClockTime(Duration.ofSeconds(6));
+
+        var deadLetter = deadLetterTopic.readRecord();
+        assertEquals(JOHN_ID, deadLetter.value().getId());
+        assertEquals("2", FailureHeaders.get(deadLetter.headers(), FailureHeaders.ATTEMPT));
+        assertEquals("STT backend down", FailureHeaders.get(deadLetter.headers(), FailureHeaders.MESSAGE));
+        assertEquals("stt", FailureHeaders.get(deadLetter.headers(), FailureHeaders.STAGE));
+        assertNull(FailureHeaders.get(deadLetter.headers(), FailureHeaders.DUE));
+    }
+
+    private void setup(RetryPolicy retryPolicy) {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        sttClient = spy(new MockSttClient());
+        var configuration = TopologyConfiguration.builder()
+                .retryOnFailure(true)
+                .retryPolicy(retryPolicy)
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration).createTopology(), props);
+
+        var voiceCommandSerde = new JsonSerde<>(VoiceCommand.class);
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), voiceCommandSerde.serializer());
+        firstRetryInputTopic = testDriver.createInputTopic("voice-commands-retry-5s", Serdes.String().serializer(), voiceCommandSerde.serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        firstRetryOutputTopic = testDriver.createOutputTopic("voice-commands-retry-5s", Serdes.String().deserializer(), voiceCommandSerde.deserializer());
+        deadLetterTopic = testDriver.createOutputTopic(VoiceParserTopology.VOICE_COMMANDS_DLQ_TOPIC, Serdes.String().deserializer(), voiceCommandSerde.deserializer());
+    }
+
+    private static VoiceCommand voiceCommand() {
+        var audio = new byte[100];
+        new Random().nextBytes(audio);
+        return VoiceCommand.builder()
+                .id(JOHN_ID)
+                .audio(audio)
+                .language("en-US")
+                .audioCodec("FLAC")
+                .build();
+    }
+}
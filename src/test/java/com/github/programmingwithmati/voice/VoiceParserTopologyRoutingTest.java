@@ -0,0 +1,113 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.LanguageRoute;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyRoutingTest {
+
+    TopologyTestDriver testDriver;
+    private Topology topology;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private MockTranslateClient translateClient;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        var sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            return ParsedVoiceCommand.builder()
+                    .id(voiceCommand.getId())
+                    .textCommand("text")
+                    .language(voiceCommand.getLanguage())
+                    .probability(0.95)
+                    .build();
+        });
+        translateClient = spy(new MockTranslateClient());
+        var configuration = TopologyConfiguration.builder()
+                .languageRoutes(LanguageRoute.parse("en:en,fr;es:es:translate,partitions=4;other:*:translate"))
+                .build();
+        topology = new VoiceParserTopology(sttClient, translateClient, configuration).createTopology();
+        testDriver = new TopologyTestDriver(topology, props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testEveryLanguageTakesItsRoute() {
+        voiceCommandsTopic.pipeInput("1", voiceCommand("fr-FR"));
+        voiceCommandsTopic.pipeInput("2", voiceCommand("es-AR"));
+        voiceCommandsTopic.pipeInput("3", voiceCommand("de-DE"));
+
+        var recognized = recognizedCommandsOutputTopic.readKeyValuesToMap();
+        assertEquals("text", recognized.get("1").getTextCommand());
+        assertEquals("call juan", recognized.get("2").getTextCommand());
+        assertEquals("call juan", recognized.get("3").getTextCommand());
+        verify(translateClient, times(2)).translate(any(ParsedVoiceCommand.class));
+    }
+
+    @Test
+    void testTranslatedRoutesRunInTheirOwnSubTopologies() {
+        var description = topology.describe().toString();
+
+        assertEquals(3, topology.describe().subtopologies().size());
+        assertTrue(description.contains("lang-es-repartition"));
+        assertTrue(description.contains("lang-other-repartition"));
+    }
+
+    @Test
+    void testInvalidRoutesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LanguageRoute.validate(LanguageRoute.parse("en:en;es:es:translate")));
+        assertThrows(IllegalArgumentException.class, () -> LanguageRoute.validate(LanguageRoute.parse("all:*;en:en")));
+        assertThrows(IllegalArgumentException.class, () -> LanguageRoute.parse("es:es:translate,fast"));
+    }
+
+    private static VoiceCommand voiceCommand(String language) {
+        var bytes = new byte[20];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(UUID.randomUUID().toString())
+                .audio(bytes)
+                .language(language)
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.screening.FlacScreener;
+import com.github.programmingwithmati.voice.screening.RejectionTransformer;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VoiceParserTopologyScreeningTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, VoiceCommand> voiceCommandsTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> unrecognizedCommandsOutputTopic;
+    private MockSttClient sttClient;
+
+    @BeforeEach
+    void setup() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+
+        sttClient = spy(new MockSttClient());
+        var configuration = TopologyConfiguration.builder()
+                .audioScreener(new FlacScreener())
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration).createTopology(), props);
+
+        voiceCommandsTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMANDS_TOPIC, Serdes.String().serializer(), new JsonSerde<>(VoiceCommand.class).serializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        unrecognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.UNRECOGNIZED_COMMAND_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testValidAudioIsTranscribed() throws IOException {
+        byte[] audio;
+        try (var input = getClass().getClassLoader().getResourceAsStream("audio/callJohn.flac")) {
+            audio = input.readAllBytes();
+        }
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(audio));
+
+        assertEquals("call john", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        verify(sttClient, times(1)).speechToText(any(VoiceCommand.class));
+    }
+
+    @Test
+    void testInvalidAudioSkipsTranscription() {
+        var audio = new byte[100];
+        new Random().nextBytes(audio);
+
+        voiceCommandsTopic.pipeInput(JOHN_ID, voiceCommand(audio));
+
+        var rejected = unrecognizedCommandsOutputTopic.readRecord();
+        assertEquals(JOHN_ID, rejected.value().getId());
+        assertEquals("INVALID_HEADER", new String(rejected.headers().lastHeader(RejectionTransformer.REASON_HEADER).value(), StandardCharsets.UTF_8));
+        verify(sttClient, never()).speechToText(any(VoiceCommand.class));
+        assertEquals(1.0, testDriver.metrics().entrySet().stream()
+                .filter(entry -> entry.getKey().name().equals("stt-calls-saved-total"))
+                .mapToDouble(entry -> (Double) entry.getValue().metricValue())
+                .sum());
+    }
+
+    private static VoiceCommand voiceCommand(byte[] audio) {
+        return VoiceCommand.builder()
+                .id(JOHN_ID)
+                .audio(audio)
+                .language("en-US")
+                .audioCodec("FLAC")
+                .build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.programmingwithmati.voice;
+
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.AudioChunk;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.AudioChunkSerde;
+import com.github.programmingwithmati.voice.serdes.JsonSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VoiceParserTopologyStreamingTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+
+    TopologyTestDriver testDriver;
+    private TestInputTopic<String, AudioChunk> chunksTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> partialCommandsOutputTopic;
+    private TestOutputTopic<String, ParsedVoiceCommand> recognizedCommandsOutputTopic;
+
+    private void createTopology(SttClient sttClient) {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:1234");
+        var configuration = TopologyConfiguration.builder()
+                .streamingSttEnabled(true)
+                .chunkSessionTimeout(Duration.ofSeconds(10))
+                .build();
+        testDriver = new TopologyTestDriver(new VoiceParserTopology(sttClient, new MockTranslateClient(), configuration).createTopology(), props);
+
+        chunksTopic = testDriver.createInputTopic(VoiceParserTopology.VOICE_COMMAND_CHUNKS_TOPIC, Serdes.String().serializer(), new AudioChunkSerde(SerdeFormat.JSON).serializer());
+        partialCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.PARTIAL_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+        recognizedCommandsOutputTopic = testDriver.createOutputTopic(VoiceParserTopology.RECOGNIZED_COMMANDS_TOPIC, Serdes.String().deserializer(), new JsonSerde<>(ParsedVoiceCommand.class).deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void testChunksAreTranscribedInOrderWithPartialResults() {
+        createTopology(new MockSttClient());
+
+        chunksTopic.pipeInput("device-1", chunk(0, false));
+        chunksTopic.pipeInput("device-1", chunk(2, true)); // waits for chunk 1
+        assertEquals(0.957 / 2, partialCommandsOutputTopic.readValue().getProbability());
+        assertTrue(partialCommandsOutputTopic.isEmpty());
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+
+        chunksTopic.pipeInput("device-1", chunk(1, false));
+
+        var result = recognizedCommandsOutputTopic.readKeyValue();
+        assertEquals("device-1", result.key);
+        assertEquals("call john", result.value.getTextCommand());
+        assertEquals(0.957, result.value.getProbability());
+        assertTrue(partialCommandsOutputTopic.isEmpty());
+        KeyValueStore<String, AudioChunk> chunks = testDriver.getKeyValueStore(VoiceParserTopology.AUDIO_CHUNK_STORE);
+        assertFalse(chunks.all().hasNext());
+    }
+
+    @Test
+    void testBlockingClientsGetTheWholeAudio() {
+        var sttClient = mock(SttClient.class);
+        when(sttClient.speechToText(any(VoiceCommand.class))).thenAnswer(invocation -> {
+            VoiceCommand voiceCommand = invocation.getArgument(0);
+            assertArrayEquals(new byte[]{0, 0, 1, 1, 2, 2}, voiceCommand.getAudio());
+            return ParsedVoiceCommand.builder().id(voiceCommand.getId()).textCommand("text").language(voiceCommand.getLanguage()).probability(0.9).build();
+        });
+        createTopology(sttClient);
+
+        chunksTopic.pipeInput("device-1", chunk(1, false));
+        chunksTopic.pipeInput("device-1", chunk(0, false));
+        chunksTopic.pipeInput("device-1", chunk(2, true));
+
+        assertEquals("text", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        assertTrue(partialCommandsOutputTopic.isEmpty());
+    }
+
+    @Test
+    void testAbandonedSessionsAreDropped() {
+        createTopology(new MockSttClient());
+
+        chunksTopic.pipeInput("device-1", chunk(0, false));
+        testDriver.advanceWallClockTime(Duration.ofSeconds(15));
+        chunksTopic.pipeInput("device-1", chunk(1, true));
+
+        KeyValueStore<String, AudioChunk> chunks = testDriver.getKeyValueStore(VoiceParserTopology.AUDIO_CHUNK_STORE);
+        try (var remaining = chunks.all()) {
+            assertEquals(1, remaining.next().value.getSequence()); // waits for a chunk 0 that was already dropped
+            assertFalse(remaining.hasNext());
+        }
+        assertTrue(recognizedCommandsOutputTopic.isEmpty());
+        testDriver.advanceWallClockTime(Duration.ofSeconds(15));
+        assertFalse(chunks.all().hasNext());
+    }
+
+    @Test
+    void testChunksRedeliveredAfterTheResultAreDropped() {
+        createTopology(new MockSttClient());
+
+        chunksTopic.pipeInput("device-1", chunk(0, false));
+        chunksTopic.pipeInput("device-1", chunk(1, true));
+        assertEquals("call john", recognizedCommandsOutputTopic.readValue().getTextCommand());
+        partialCommandsOutputTopic.readValuesToList();
+        chunksTopic.pipeInput("device-1", chunk(0, false));
+        testDriver.advanceWallClockTime(Duration.ofSeconds(15));
+
+        assertTrue(partialCommandsOutputTopic.isEmpty());
+        assertFalse(testDriver.getKeyValueStore(VoiceParserTopology.AUDIO_CHUNK_STORE).all().hasNext());
+        assertFalse(testDriver.getKeyValueStore(VoiceParserTopology.AUDIO_SESSION_STORE).all().hasNext());
+        assertEquals(0.0, testDriver.metrics().values().stream()
+                .filter(metric -> metric.metricName().name().equals("abandoned-sessions-total"))
+                .mapToDouble(metric -> (double) metric.metricValue()).sum());
+    }
+
+    private static AudioChunk chunk(int sequence, boolean last) {
+        return AudioChunk.builder()
+                .commandId(JOHN_ID)
+                .sequence(sequence)
+                .last(last)
+                .audio(new byte[]{(byte) sequence, (byte) sequence})
+                .audioCodec("FLAC")
+                .language("en-US")
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.programmingwithmati.voice.batch;
+
+import com.github.programmingwithmati.voice.configuration.ResilienceConfiguration;
+import com.github.programmingwithmati.voice.configuration.TopologyConfiguration;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.ParsedVoiceCommandSerde;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.serdes.VoiceCommandSerde;
+import com.github.programmingwithmati.voice.service.MockSttClient;
+import com.github.programmingwithmati.voice.service.MockTranslateClient;
+import com.github.programmingwithmati.voice.service.SttClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkReprocessorTest {
+
+    private static final String JOHN_ID = "26679943-f55e-4731-986e-c5c5395715de";
+    private static final String JUAN_ID = "9821f112-ec35-4679-91e7-c558de479bc5";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testNdjsonDatasetIsSplitLikeTheTopology() throws IOException {
+        var serializer = new VoiceCommandSerde(SerdeFormat.JSON).serializer();
+        var lines = new ArrayList<String>();
+        for (VoiceCommand voiceCommand : List.of(voiceCommand(JOHN_ID, "en-US", 20), voiceCommand(JUAN_ID, "es-AR", 20),
+                voiceCommand("gibberish", "en-US", 20), voiceCommand("too-short", "en-US", 5))) {
+            lines.add(new String(serializer.serialize(null, voiceCommand), StandardCharsets.UTF_8));
+        }
+        var input = directory.resolve("archive.ndjson");
+        Files.write(input, lines);
+
+        var report = run(new MockSttClient(), input, DatasetReader.DEFAULT_WINDOW_SIZE);
+
+        assertEquals(4, report.getRead());
+        assertEquals(1, report.getSkipped());
+        assertEquals(2, report.getRecognized());
+        assertEquals(1, report.getUnrecognized());
+        var recognized = results(BulkReprocessor.RECOGNIZED_FILE);
+        assertEquals("call john", recognized.get(JOHN_ID).getTextCommand());
+        assertEquals("call juan", recognized.get(JUAN_ID).getTextCommand());
+        assertEquals(List.of("gibberish"), List.copyOf(results(BulkReprocessor.UNRECOGNIZED_FILE).keySet()));
+    }
+
+    @Test
+    void testLengthPrefixedRecordsAcrossWindowsAreRead() throws IOException {
+        var serializer = new VoiceCommandSerde(SerdeFormat.BINARY).serializer();
+        var input = directory.resolve("archive.bin");
+        try (var out = new DataOutputStream(Files.newOutputStream(input))) {
+            for (int i = 0; i < 50; i++) {
+                // the last command is larger than the window
+                byte[] record = serializer.serialize(null, voiceCommand(JOHN_ID + "-" + i, "en-US", i == 49 ? 500 : 20 + i));
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        }
+
+        var report = run(new MockSttClient(), input, 128);
+
+        assertEquals(50, report.getRead());
+        assertEquals(50, report.getUnrecognized());
+        assertEquals(50, results(BulkReprocessor.UNRECOGNIZED_FILE).size());
+    }
+
+    @Test
+    void testFailedCommandsAreWrittenToBeProcessedAgain() throws IOException {
+        var input = directory.resolve("archive.ndjson");
+        Files.write(input, List.of(new String(new VoiceCommandSerde(SerdeFormat.JSON).serializer().serialize(null, voiceCommand(JOHN_ID, "en-US", 20)), StandardCharsets.UTF_8)));
+        SttClient failing = value -> {
+            throw new IllegalStateException("STT service down");
+        };
+
+        var report = run(failing, input, DatasetReader.DEFAULT_WINDOW_SIZE);
+
+        assertEquals(1, report.getFailed());
+        var failed = Files.readAllLines(directory.resolve("out").resolve(BulkReprocessor.FAILED_FILE));
+        var deserializer = new VoiceCommandSerde(SerdeFormat.JSON).deserializer();
+        assertEquals(JOHN_ID, deserializer.deserialize(null, failed.get(0).getBytes(StandardCharsets.UTF_8)).getId());
+    }
+
+    @Test
+    void testWorkerFailureFailsTheRun() throws IOException {
+        var input = directory.resolve("archive.ndjson");
+        Files.write(input, List.of(new String(new VoiceCommandSerde(SerdeFormat.JSON).serializer().serialize(null, voiceCommand(JOHN_ID, "en-US", 20)), StandardCharsets.UTF_8)));
+        SttClient broken = value -> {
+            throw new AssertionError("broken client");
+        };
+
+        var error = assertThrows(AssertionError.class, () -> run(broken, input, DatasetReader.DEFAULT_WINDOW_SIZE));
+        assertEquals("broken client", error.getMessage());
+    }
+
+    @Test
+    void testUnsupportedTopologySettingsAreRejected() {
+        var configuration = BulkConfiguration.builder()
+                .input(directory.resolve("archive.ndjson"))
+                .output(directory.resolve("out"))
+                .build();
+        for (var topologyConfiguration : List.of(
+                TopologyConfiguration.defaults().toBuilder().sttResilience(ResilienceConfiguration.defaults()).build(),
+                TopologyConfiguration.defaults().toBuilder().sttCacheEnabled(true).build())) {
+            assertThrows(IllegalArgumentException.class, () -> new BulkReprocessor(new MockSttClient(), new MockTranslateClient(),
+                    topologyConfiguration, configuration, new PrintStream(new ByteArrayOutputStream())));
+        }
+    }
+
+    @Test
+    void testTruncatedDatasetIsRejected() throws IOException {
+        var input = directory.resolve("archive.bin");
+        try (var out = new DataOutputStream(Files.newOutputStream(input))) {
+            out.writeInt(100);
+            out.write(new byte[10]);
+        }
+
+        assertThrows(IOException.class, () -> new DatasetReader(DatasetFormat.LENGTH_PREFIXED).read(input, bytes -> {
+        }));
+    }
+
+    private BulkReport run(SttClient sttClient, Path input, int windowSize) throws IOException {
+        var configuration = BulkConfiguration.builder()
+                .input(input)
+                .output(directory.resolve("out"))
+                .parallelism(4)
+                .maxPending(8)
+                .reportInterval(Duration.ofMinutes(1))
+                .windowSize(windowSize)
+                .build();
+        return new BulkReprocessor(sttClient, new MockTranslateClient(), TopologyConfiguration.defaults(), configuration,
+                new PrintStream(new ByteArrayOutputStream())).run();
+    }
+
+    private Map<String, ParsedVoiceCommand> results(String file) throws IOException {
+        var deserializer = new ParsedVoiceCommandSerde(SerdeFormat.JSON).deserializer();
+        return Files.readAllLines(directory.resolve("out").resolve(file)).stream()
+                .map(line -> deserializer.deserialize(null, line.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.toMap(ParsedVoiceCommand::getId, Function.identity()));
+    }
+
+    private static VoiceCommand voiceCommand(String id, String language, int audioLength) {
+        var bytes = new byte[audioLength];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(id)
+                .audio(bytes)
+                .audioCodec("FLAC")
+                .language(language)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.programmingwithmati.voice.blob;
+
+import com.github.programmingwithmati.voice.model.BlobVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import com.github.programmingwithmati.voice.serdes.SerdeFormat;
+import com.github.programmingwithmati.voice.serdes.VoiceCommandSerde;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class ClaimCheckTest {
+
+    private static final String TOPIC = "voice-commands";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLargeAudioTravelsAsReference() {
+        var blobStore = spy(new FileBlobStore(directory));
+        var voiceCommand = voiceCommand(64 * 1024);
+
+        var checkedIn = new ClaimCheck(blobStore, 16 * 1024).checkIn(voiceCommand);
+        assertNull(checkedIn.getAudio());
+        assertEquals(64 * 1024, checkedIn.getAudioLength());
+        assertEquals(ClaimCheck.sha256(ByteBuffer.wrap(voiceCommand.getAudio())), checkedIn.getAudioReference().getSha256());
+
+        for (var format : SerdeFormat.values()) {
+            clearInvocations(blobStore);
+            var serde = new VoiceCommandSerde(format, blobStore);
+            var bytes = serde.serializer().serialize(TOPIC, checkedIn);
+            assertTrue(bytes.length < 1024);
+
+            var actual = serde.deserializer().deserialize(TOPIC, bytes);
+            assertTrue(actual instanceof BlobVoiceCommand);
+            assertEquals(64 * 1024, actual.getAudioLength());
+            verify(blobStore, never()).get(anyString());
+            assertArrayEquals(voiceCommand.getAudio(), actual.getAudio());
+            assertTrue(bytes.length >= serde.serializer().serialize(TOPIC, actual).length); // the fetched audio is not written back
+        }
+    }
+
+    @Test
+    void testSmallAudioStaysInline() {
+        var voiceCommand = voiceCommand(1024);
+
+        assertSame(voiceCommand, new ClaimCheck(new InMemoryBlobStore(), 16 * 1024).checkIn(voiceCommand));
+    }
+
+    @Test
+    void testSameAudioIsStoredOnce() {
+        var blobStore = spy(new InMemoryBlobStore());
+        var claimCheck = new ClaimCheck(blobStore, 0);
+        var first = voiceCommand(100);
+        var second = VoiceCommand.builder().id(UUID.randomUUID().toString()).audio(first.getAudio()).build();
+
+        assertEquals(claimCheck.checkIn(first).getAudioReference(), claimCheck.checkIn(second).getAudioReference());
+        verify(blobStore).put(anyString(), any());
+    }
+
+    private static VoiceCommand voiceCommand(int audioSize) {
+        var bytes = new byte[audioSize];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(UUID.randomUUID().toString())
+                .audio(bytes)
+                .language("en-US")
+                .audioCodec("FLAC")
+                .build();
+    }
+}
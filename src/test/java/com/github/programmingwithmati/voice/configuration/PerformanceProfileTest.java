@@ -0,0 +1,51 @@
+package com.github.programmingwithmati.voice.configuration;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.streams.StreamsConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PerformanceProfileTest {
+
+    @Test
+    void testDefaultsKeepOneThreadAndNoCache() {
+        var props = new StreamsConfiguration().streamsConfiguration();
+
+        assertEquals(1, props.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG));
+        assertEquals(0L, props.get(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+        assertFalse(props.containsKey(StreamsConfig.producerPrefix(ProducerConfig.LINGER_MS_CONFIG)));
+    }
+
+    @Test
+    void testEnvironmentOverridesFileWhichOverridesPreset() {
+        var properties = new Properties();
+        properties.setProperty("profile", "throughput");
+        properties.setProperty("producer.linger.ms", "20");
+        properties.setProperty("consumer.max.poll.records", "100");
+
+        var profile = PerformanceProfile.load(properties, Map.of("VOICE_CONSUMER_MAX_POLL_RECORDS", "10"));
+        var props = new StreamsConfiguration(false, profile).streamsConfiguration();
+
+        assertEquals(PerformanceProfile.Preset.THROUGHPUT, profile.getPreset());
+        assertEquals("zstd", props.get(StreamsConfig.producerPrefix(ProducerConfig.COMPRESSION_TYPE_CONFIG)));
+        assertEquals(20, props.get(StreamsConfig.producerPrefix(ProducerConfig.LINGER_MS_CONFIG)));
+        assertEquals(10, props.get(StreamsConfig.consumerPrefix(ConsumerConfig.MAX_POLL_RECORDS_CONFIG)));
+    }
+
+    @Test
+    void testInvalidSettingsAreRejected() {
+        var properties = new Properties();
+        properties.setProperty("producer.compression.type", "brotli");
+        assertThrows(IllegalArgumentException.class, () -> PerformanceProfile.load(properties, Map.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> PerformanceProfile.load(new Properties(), Map.of("VOICE_NUM_STREAM_THREADS", "0")));
+        assertThrows(IllegalArgumentException.class, () -> PerformanceProfile.load(new Properties(), Map.of("VOICE_PRODUCER_LINGER_MS", "soon")));
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.programmingwithmati.voice.consumer;
+
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelCommandConsumerTest {
+
+    private static final String TOPIC = "recognized-commands";
+    private static final TopicPartition PARTITION_0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition(TOPIC, 1);
+
+    private final RecordingConsumer consumer = new RecordingConsumer();
+
+    @Test
+    void testBatchesAreHandledInOrderPerPartitionAndCommittedOnShutdown() throws Exception {
+        var handled = new ConcurrentHashMap<TopicPartition, List<Long>>();
+        var allHandled = new CountDownLatch(20);
+        ParsedCommandHandler handler = (partition, records) -> {
+            // the slow partition must not hold back the other one nor get its batches reordered
+            Thread.sleep(partition.partition() == 0 ? 20 : 1);
+            for (var record : records) {
+                handled.computeIfAbsent(partition, p -> Collections.synchronizedList(new ArrayList<>())).add(record.offset());
+                allHandled.countDown();
+            }
+        };
+        assign();
+        for (int i = 0; i < 10; i++) {
+            long offset = i;
+            consumer.schedulePollTask(() -> {
+                consumer.addRecord(record(PARTITION_0, offset));
+                consumer.addRecord(record(PARTITION_1, offset));
+            });
+        }
+        var parallelConsumer = new ParallelCommandConsumer(consumer, List.of(TOPIC), handler, 2, 2, Duration.ofMinutes(1));
+        var loop = CompletableFuture.runAsync(parallelConsumer);
+
+        assertTrue(allHandled.await(10, TimeUnit.SECONDS));
+        parallelConsumer.close();
+        loop.get(10, TimeUnit.SECONDS);
+
+        var expected = List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+        assertEquals(expected, handled.get(PARTITION_0));
+        assertEquals(expected, handled.get(PARTITION_1));
+        assertEquals(10L, consumer.committed.get(PARTITION_0));
+        assertEquals(10L, consumer.committed.get(PARTITION_1));
+        assertTrue(consumer.closed());
+    }
+
+    @Test
+    void testFailedBatchStopsTheConsumerWithoutCommittingIt() {
+        ParsedCommandHandler handler = (partition, records) -> {
+            if (partition.equals(PARTITION_1)) {
+                throw new IllegalStateException("sink down");
+            }
+        };
+        assign();
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(PARTITION_0, 0));
+            consumer.addRecord(record(PARTITION_1, 0));
+        });
+        var parallelConsumer = new ParallelCommandConsumer(consumer, List.of(TOPIC), handler, 2, 2, Duration.ZERO);
+
+        var error = assertThrows(ExecutionException.class, () -> CompletableFuture.runAsync(parallelConsumer).get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(KafkaException.class, error.getCause());
+        assertInstanceOf(IllegalStateException.class, error.getCause().getCause());
+        assertEquals(1L, consumer.committed.get(PARTITION_0));
+        assertFalse(consumer.committed.containsKey(PARTITION_1));
+        assertTrue(consumer.closed());
+    }
+
+    private void assign() {
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(PARTITION_0, PARTITION_1));
+            consumer.updateBeginningOffsets(Map.of(PARTITION_0, 0L, PARTITION_1, 0L));
+        });
+    }
+
+    private static ConsumerRecord<String, ParsedVoiceCommand> record(TopicPartition partition, long offset) {
+        var command = ParsedVoiceCommand.builder().id("command-" + offset).textCommand("call john").language("en-US").probability(0.95).build();
+        return new ConsumerRecord<>(partition.topic(), partition.partition(), offset, "device-" + partition.partition(), command);
+    }
+
+    /**
+     * Keeps the committed offsets around after the consumer is closed.
+     */
+    private static class RecordingConsumer extends MockConsumer<String, ParsedVoiceCommand> {
+
+        private final Map<TopicPartition, Long> committed = new ConcurrentHashMap<>();
+
+        RecordingConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+            super.commitAsync(offsets, callback);
+            offsets.forEach((partition, offset) -> committed.put(partition, offset.offset()));
+        }
+
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            super.commitSync(offsets);
+            offsets.forEach((partition, offset) -> committed.put(partition, offset.offset()));
+        }
+    }
+}
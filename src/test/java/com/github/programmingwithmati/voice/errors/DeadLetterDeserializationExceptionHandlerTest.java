@@ -0,0 +1,37 @@
+package com.github.programmingwithmati.voice.errors;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.streams.errors.DeserializationExceptionHandler;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeadLetterDeserializationExceptionHandlerTest {
+
+    @Test
+    void testRecordIsSentToDeadLetterTopicAsRead() {
+        var producer = new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer());
+        var handler = new DeadLetterDeserializationExceptionHandler(producer);
+        handler.configure(Map.of(DeadLetterDeserializationExceptionHandler.DEAD_LETTER_TOPIC_CONFIG, "voice-commands-dlq"));
+        var value = "{\"id\":".getBytes(StandardCharsets.UTF_8);
+
+        var response = handler.handle(null, new ConsumerRecord<>("voice-commands", 2, 42L, "key".getBytes(StandardCharsets.UTF_8), value),
+                new SerializationException("Invalid JSON VoiceCommand"));
+
+        assertEquals(DeserializationExceptionHandler.DeserializationHandlerResponse.CONTINUE, response);
+        var deadLetter = producer.history().get(0);
+        assertEquals("voice-commands-dlq", deadLetter.topic());
+        assertArrayEquals(value, deadLetter.value());
+        assertEquals("deserialize", FailureHeaders.get(deadLetter.headers(), FailureHeaders.STAGE));
+        assertEquals("voice-commands", FailureHeaders.get(deadLetter.headers(), FailureHeaders.TOPIC));
+        assertEquals("42", FailureHeaders.get(deadLetter.headers(), FailureHeaders.OFFSET));
+        assertEquals(SerializationException.class.getName(), FailureHeaders.get(deadLetter.headers(), FailureHeaders.EXCEPTION));
+    }
+}
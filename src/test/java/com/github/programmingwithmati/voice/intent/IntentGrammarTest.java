@@ -0,0 +1,83 @@
+package com.github.programmingwithmati.voice.intent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntentGrammarTest {
+
+    private final IntentMatcher matcher = IntentGrammar.bundled().matcher();
+
+    @Test
+    void testWordsAreMatchedWithoutCaseAndPunctuation() {
+        assertTrue(matcher.match("Turn on the lights!"));
+        assertEquals("lights.on", matcher.intent());
+        assertEquals(Map.of(), matcher.slots());
+
+        assertTrue(matcher.match("what's the weather in Buenos Aires?"));
+        assertEquals("weather", matcher.intent());
+        assertEquals(Map.of("location", "Buenos Aires"), matcher.slots());
+    }
+
+    @Test
+    void testSlotsCaptureTheTextUpToTheNextWord() {
+        assertTrue(matcher.match("call John O'Brien"));
+        assertEquals("call", matcher.intent());
+        assertEquals(Map.of("contact", "John O'Brien"), matcher.slots());
+
+        assertTrue(matcher.match("play the dark side of the moon on kitchen speaker"));
+        assertEquals("play", matcher.intent());
+        assertEquals(List.of("media", "device"), List.copyOf(matcher.slots().keySet()));
+        assertEquals(Map.of("media", "the dark side of the moon", "device", "kitchen speaker"), matcher.slots());
+
+        assertTrue(matcher.match("turn on the living room lights"));
+        assertEquals(Map.of("room", "living room"), matcher.slots());
+    }
+
+    @Test
+    void testCommandsMatchingNoPatternAreRejected() {
+        assertFalse(matcher.match("turn on the lights please"));
+        assertNull(matcher.intent());
+        assertFalse(matcher.match("call"));
+        assertFalse(matcher.match("open the garage"));
+        assertFalse(matcher.match(""));
+        assertFalse(matcher.match(null));
+    }
+
+    @Test
+    void testLargeGrammarsMatchEveryPattern() {
+        var rules = new ArrayList<IntentGrammar.Rule>();
+        for (int i = 0; i < 5_000; i++) {
+            rules.add(IntentGrammar.Rule.of("intent-" + i, "verb" + (i % 50) + " object" + i + " to {target}"));
+        }
+        var largeMatcher = IntentGrammar.compile(rules).matcher();
+
+        for (int i = 0; i < 5_000; i += 7) {
+            assertTrue(largeMatcher.match("Verb" + (i % 50) + " object" + i + " to the front door"));
+            assertEquals("intent-" + i, largeMatcher.intent());
+            assertEquals("the front door", largeMatcher.slotValue(0));
+        }
+        assertFalse(largeMatcher.match("verb1 object2 to the front door"));
+    }
+
+    @Test
+    void testAmbiguousPatternsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> IntentGrammar.compile(List.of(
+                IntentGrammar.Rule.of("call", "call {contact}"),
+                IntentGrammar.Rule.of("dial", "Call {number}"))));
+        assertThrows(IllegalArgumentException.class, () -> IntentGrammar.compile(List.of(
+                IntentGrammar.Rule.of("play", "play {artist} {song}"))));
+        assertThrows(IllegalArgumentException.class, () -> IntentGrammar.compile(List.of(
+                IntentGrammar.Rule.of("call", "call {contact"))));
+        assertThrows(IllegalArgumentException.class, () -> IntentGrammar.compile(List.of(
+                IntentGrammar.Rule.of("nothing", "?!"))));
+    }
+}
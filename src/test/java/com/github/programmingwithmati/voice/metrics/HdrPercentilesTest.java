@@ -0,0 +1,60 @@
+package com.github.programmingwithmati.voice.metrics;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HdrPercentilesTest {
+
+    private final Metrics metrics = new Metrics(new MetricConfig().samples(2).timeWindow(30, TimeUnit.SECONDS));
+    private long now = System.currentTimeMillis();
+    private final MetricName p50 = metrics.metricName("latency-p50", StageMetrics.GROUP);
+    private final MetricName p99 = metrics.metricName("latency-p99", StageMetrics.GROUP);
+
+    @AfterEach
+    void tearDown() {
+        metrics.close();
+    }
+
+    @Test
+    void testSubMillisecondLatenciesAreToldApart() {
+        var sensor = metrics.sensor("latency");
+        sensor.add(new HdrPercentiles(Map.of(p50, 50d, p99, 99d)));
+        for (int i = 1; i <= 1000; i++) {
+            sensor.record(i / 1000d, now); // 1 us to 1 ms
+        }
+
+        assertEquals(0.5, value(p50), 0.01);
+        assertEquals(0.99, value(p99), 0.01);
+    }
+
+    @Test
+    void testExpiredSamplesAreForgotten() {
+        var sensor = metrics.sensor("latency");
+        sensor.add(new HdrPercentiles(Map.of(p50, 50d, p99, 99d)));
+        sensor.record(2_000, now);
+        now += TimeUnit.SECONDS.toMillis(40);
+        sensor.record(10, now);
+
+        assertEquals(2_000, value(p99), 20);
+        now += TimeUnit.SECONDS.toMillis(40);
+        sensor.record(10, now);
+
+        assertEquals(10, value(p99), 0.1);
+        assertTrue(value(p50) < 10.1);
+    }
+
+    private double value(MetricName name) {
+        KafkaMetric metric = metrics.metric(name);
+        return metric.measurable().measure(metric.config(), now);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.programmingwithmati.voice.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArrivalScheduleTest {
+
+    @Test
+    void testConstantRate() {
+        var arrivals = arrivals(new ArrivalSchedule(LoadConfiguration.builder().rate(1_000).build()), Duration.ofSeconds(2));
+
+        assertEquals(1_000, count(arrivals, Duration.ZERO, Duration.ofSeconds(1)));
+        assertEquals(1_000, count(arrivals, Duration.ofSeconds(1), Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void testBurstsMultiplyTheRateAtTheStartOfEveryPeriod() {
+        var schedule = new ArrivalSchedule(LoadConfiguration.builder()
+                .rate(100)
+                .shape(LoadConfiguration.RateShape.BURSTY)
+                .burstFactor(10)
+                .burstPeriod(Duration.ofSeconds(2))
+                .burstLength(Duration.ofMillis(500))
+                .build());
+        var arrivals = arrivals(schedule, Duration.ofSeconds(3));
+
+        assertEquals(500, count(arrivals, Duration.ZERO, Duration.ofMillis(500)));
+        assertEquals(150, count(arrivals, Duration.ofMillis(500), Duration.ofSeconds(2)));
+        assertEquals(500, count(arrivals, Duration.ofSeconds(2), Duration.ofMillis(2500)));
+    }
+
+    private static List<Long> arrivals(ArrivalSchedule schedule, Duration until) {
+        var arrivals = new ArrayList<Long>();
+        for (long offset = schedule.nextNanos(); offset < until.toNanos(); offset = schedule.nextNanos()) {
+            arrivals.add(offset);
+        }
+        return arrivals;
+    }
+
+    private static long count(List<Long> arrivals, Duration from, Duration to) {
+        return arrivals.stream().filter(offset -> offset >= from.toNanos() && offset < to.toNanos()).count();
+    }
+}
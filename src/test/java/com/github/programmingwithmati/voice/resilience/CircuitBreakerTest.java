@@ -0,0 +1,57 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), clock::get);
+
+    @Test
+    void testOpensWhenFailureRateReachesThreshold() {
+        call(true);
+        call(false);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState()); // fewer calls than the minimum
+
+        call(false);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testLetsOneTrialCallThroughAfterOpenDuration() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void call(boolean success) {
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        if (success) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.programmingwithmati.voice.resilience;
+
+import com.github.programmingwithmati.voice.service.CallExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResilientBackendTest {
+
+    private final CallExecutor callExecutor = CallExecutor.create("test", 1, Duration.ofSeconds(1));
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(2, 2, 0.5, Duration.ofSeconds(10));
+    private final ResilientBackend backend = new ResilientBackend("test", callExecutor, circuitBreaker);
+
+    @Test
+    void testCallsThatCannotBeSubmittedAreFailures() {
+        callExecutor.close();
+
+        var first = assertThrows(BackendUnavailableException.class, () -> backend.call(() -> "result"));
+        assertEquals(BackendUnavailableException.Reason.FAILED, first.getReason());
+        assertThrows(BackendUnavailableException.class, () -> backend.call(() -> "result"));
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        var rejected = assertThrows(BackendUnavailableException.class, () -> backend.call(() -> "result"));
+        assertEquals(BackendUnavailableException.Reason.CIRCUIT_OPEN, rejected.getReason());
+    }
+
+    @Test
+    void testBlockingCallsOverTheLimitAreRejected() {
+        var release = new CountDownLatch(1);
+        var running = backend.callAsync(() -> {
+            await(release);
+            return "first";
+        });
+
+        var rejected = assertThrows(BackendUnavailableException.class, () -> backend.call(() -> "second"));
+        assertEquals(BackendUnavailableException.Reason.CONCURRENCY_LIMITED, rejected.getReason());
+        var waiting = backend.callAsync(() -> "third"); // asynchronous calls wait for the permit instead
+        release.countDown();
+
+        assertEquals("first", running.join());
+        assertEquals("third", waiting.join());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        callExecutor.close();
+    }
+
+    @Test
+    void testSuccessfulCallsReturnTheirResult() {
+        assertEquals("result", backend.call(() -> "result"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        callExecutor.close();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
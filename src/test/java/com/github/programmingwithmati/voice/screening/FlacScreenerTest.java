@@ -0,0 +1,65 @@
+package com.github.programmingwithmati.voice.screening;
+
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FlacScreenerTest {
+
+    private static final int STREAMINFO = 8;
+    private static final int FRAMES = 8 + 34 + 4 + 248 + 4 + 8192; // header, STREAMINFO, VORBIS_COMMENT and PADDING blocks
+
+    private final FlacScreener screener = new FlacScreener();
+
+    @Test
+    void testSpeechIsAccepted() throws IOException {
+        assertNull(screener.screen(voiceCommand(audio(), "FLAC")));
+    }
+
+    @Test
+    void testUnsupportedCodecAndInvalidHeaderAreRejected() throws IOException {
+        assertEquals(RejectionReason.UNSUPPORTED_CODEC, screener.screen(voiceCommand(audio(), "MP3")));
+        var audio = audio();
+        audio[0] = 'x';
+        assertEquals(RejectionReason.INVALID_HEADER, screener.screen(voiceCommand(audio, "FLAC")));
+    }
+
+    @Test
+    void testTruncatedAudioIsRejected() throws IOException {
+        assertEquals(RejectionReason.TRUNCATED, screener.screen(voiceCommand(Arrays.copyOf(audio(), 200), "FLAC")));
+        assertEquals(RejectionReason.TRUNCATED, screener.screen(voiceCommand(Arrays.copyOf(audio(), FRAMES + 1000), "FLAC")));
+    }
+
+    @Test
+    void testShortAndSilentAudioIsRejected() throws IOException {
+        var shortAudio = audio();
+        var streamInfo = ByteBuffer.wrap(shortAudio, STREAMINFO + 10, 8).slice();
+        streamInfo.putLong(0, streamInfo.getLong(0) & ~0xF_FFFF_FFFFL | 4800); // 100ms at 48 kHz
+        assertEquals(RejectionReason.TOO_SHORT, screener.screen(voiceCommand(shortAudio, "FLAC")));
+
+        var silentAudio = Arrays.copyOf(audio(), FRAMES + 1000);
+        silentAudio[STREAMINFO + 4] = silentAudio[STREAMINFO + 5] = silentAudio[STREAMINFO + 6] = 0; // unknown minimum frame size
+        assertEquals(RejectionReason.SILENCE, screener.screen(voiceCommand(silentAudio, "FLAC")));
+    }
+
+    private static byte[] audio() throws IOException {
+        try (var input = FlacScreenerTest.class.getClassLoader().getResourceAsStream("audio/callJohn.flac")) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static VoiceCommand voiceCommand(byte[] audio, String audioCodec) {
+        return VoiceCommand.builder()
+                .id("26679943-f55e-4731-986e-c5c5395715de")
+                .audio(audio)
+                .audioCodec(audioCodec)
+                .language("en-US")
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.programmingwithmati.voice.serdes;
+
+import com.github.programmingwithmati.voice.model.LazyVoiceCommand;
+import com.github.programmingwithmati.voice.model.ParsedVoiceCommand;
+import com.github.programmingwithmati.voice.model.VoiceCommand;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoiceCommandSerdeTest {
+
+    private static final String TOPIC = "voice-commands";
+
+    @Test
+    void testBinaryRoundTrip() {
+        var serde = new VoiceCommandSerde(SerdeFormat.BINARY);
+        var voiceCommand = voiceCommand(16 * 1024);
+
+        var bytes = serde.serializer().serialize(TOPIC, voiceCommand);
+
+        assertEquals(voiceCommand, serde.deserializer().deserialize(TOPIC, bytes));
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJson() {
+        var voiceCommand = voiceCommand(16 * 1024);
+
+        var binary = new VoiceCommandSerde(SerdeFormat.BINARY).serializer().serialize(TOPIC, voiceCommand);
+        var json = new VoiceCommandSerde(SerdeFormat.JSON).serializer().serialize(TOPIC, voiceCommand);
+
+        assertTrue(binary.length < voiceCommand.getAudio().length + 100);
+        assertTrue(json.length > voiceCommand.getAudio().length * 4 / 3);
+    }
+
+    @Test
+    void testReadsJsonRecords() {
+        var voiceCommand = voiceCommand(100);
+        var json = new JsonSerde<>(VoiceCommand.class).serializer().serialize(TOPIC, voiceCommand);
+
+        assertEquals(voiceCommand, new VoiceCommandSerde(SerdeFormat.BINARY).deserializer().deserialize(TOPIC, json));
+    }
+
+    @Test
+    void testJsonAudioIsReadLazily() {
+        var voiceCommand = voiceCommand(1000);
+        var json = new JsonSerde<>(VoiceCommand.class).serializer().serialize(TOPIC, voiceCommand);
+
+        var actual = new VoiceCommandSerde(SerdeFormat.JSON).deserializer().deserialize(TOPIC, json);
+
+        assertTrue(actual instanceof LazyVoiceCommand);
+        assertEquals(1000, actual.getAudioLength());
+        assertEquals(voiceCommand.getId(), actual.getId());
+        assertEquals(ByteBuffer.wrap(voiceCommand.getAudio()), actual.getAudioBuffer());
+        assertEquals(voiceCommand, actual);
+    }
+
+    @Test
+    void testBinaryAudioBufferIsNotCopied() {
+        var serde = new VoiceCommandSerde(SerdeFormat.BINARY);
+        var voiceCommand = voiceCommand(1000);
+        var bytes = serde.serializer().serialize(TOPIC, voiceCommand);
+
+        var actual = serde.deserializer().deserialize(TOPIC, bytes);
+
+        assertEquals(1000, actual.getAudioLength());
+        assertEquals(ByteBuffer.wrap(voiceCommand.getAudio()), actual.getAudioBuffer());
+        assertArrayEquals(bytes, serde.serializer().serialize(TOPIC, actual));
+    }
+
+    @Test
+    void testNullFields() {
+        var serde = new ParsedVoiceCommandSerde(SerdeFormat.BINARY);
+        var parsedVoiceCommand = ParsedVoiceCommand.builder().id(UUID.randomUUID().toString()).build();
+
+        var actual = serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, parsedVoiceCommand));
+
+        assertEquals(parsedVoiceCommand, actual);
+        assertNull(actual.getProbability());
+    }
+
+    @Test
+    void testStreamingJsonMatchesDataBinding() {
+        var serde = new ParsedVoiceCommandSerde(SerdeFormat.JSON);
+        var jsonSerde = new JsonSerde<>(ParsedVoiceCommand.class);
+        var parsedVoiceCommand = ParsedVoiceCommand.builder().id(UUID.randomUUID().toString()).textCommand("call \"john\"").probability(0.97).language("en-US").build();
+        var withNulls = ParsedVoiceCommand.builder().id(UUID.randomUUID().toString()).build();
+
+        for (var command : new ParsedVoiceCommand[]{parsedVoiceCommand, withNulls}) {
+            var json = serde.serializer().serialize(TOPIC, command);
+            assertArrayEquals(jsonSerde.serializer().serialize(TOPIC, command), json);
+            assertEquals(command, serde.deserializer().deserialize(TOPIC, json));
+        }
+        var withUnknownField = "{\"language\":\"es-AR\",\"extra\":{\"a\":[1]},\"probability\":1}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(ParsedVoiceCommand.builder().language("es-AR").probability(1.0).build(), serde.deserializer().deserialize(TOPIC, withUnknownField));
+    }
+
+    @Test
+    void testReusedBufferDoesNotLeakBetweenRecords() {
+        var serializer = new JsonSerde<>(VoiceCommand.class).serializer();
+        var large = voiceCommand(ReusableOutputStream.MAX_RETAINED_SIZE);
+        var small = voiceCommand(10);
+
+        serializer.serialize(TOPIC, large);
+        var json = serializer.serialize(TOPIC, small);
+
+        assertEquals(small, new JsonSerde<>(VoiceCommand.class).deserializer().deserialize(TOPIC, json));
+    }
+
+    @Test
+    void testTruncatedRecordIsRejected() {
+        var serde = new VoiceCommandSerde(SerdeFormat.BINARY);
+        var bytes = serde.serializer().serialize(TOPIC, voiceCommand(100));
+
+        assertThrows(SerializationException.class, () -> serde.deserializer().deserialize(TOPIC, Arrays.copyOf(bytes, bytes.length - 10)));
+    }
+
+    @Test
+    void testInvalidJsonIsRejected() {
+        var serde = new ParsedVoiceCommandSerde(SerdeFormat.JSON);
+
+        assertThrows(SerializationException.class, () -> serde.deserializer().deserialize(TOPIC, "{\"id\":".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static VoiceCommand voiceCommand(int audioSize) {
+        var bytes = new byte[audioSize];
+        new Random().nextBytes(bytes);
+        return VoiceCommand.builder()
+                .id(UUID.randomUUID().toString())
+                .audio(bytes)
+                .language("en-US")
+                .audioCodec("FLAC")
+                .build();
+    }
+}
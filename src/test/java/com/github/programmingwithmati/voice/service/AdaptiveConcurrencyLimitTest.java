@@ -0,0 +1,54 @@
+package com.github.programmingwithmati.voice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void testLimitGrowsByOnePerLimitOfFastCalls() {
+        var limit = new AdaptiveConcurrencyLimit(2, 1, 3, Duration.ofMillis(100), 0.5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.onCompleted(FAST);
+        limit.onCompleted(FAST);
+        assertEquals(2, limit.getLimit()); // 2 + 1/2 + 1/2.5
+
+        assertTrue(limit.tryAcquire());
+        limit.onCompleted(FAST);
+        assertEquals(3, limit.getLimit());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.onCompleted(FAST);
+        }
+        assertEquals(3, limit.getLimit());
+    }
+
+    @Test
+    void testSlowAndTimedOutCallsShrinkTheLimit() {
+        var limit = new AdaptiveConcurrencyLimit(8, 2, 16, Duration.ofMillis(100), 0.5);
+
+        assertTrue(limit.tryAcquire());
+        limit.onCompleted(SLOW);
+        assertEquals(4, limit.getLimit());
+
+        assertTrue(limit.tryAcquire());
+        limit.onDropped();
+        assertEquals(2, limit.getLimit());
+
+        assertTrue(limit.tryAcquire());
+        limit.onDropped();
+        assertEquals(2, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.programmingwithmati.voice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallExecutorTest {
+
+    private CallExecutor callExecutor;
+
+    @AfterEach
+    void tearDown() {
+        callExecutor.close();
+    }
+
+    @Test
+    void testConcurrentCallsAreLimited() {
+        callExecutor = CallExecutor.create("test", 2, Duration.ofSeconds(10));
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var calls = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            calls.add(callExecutor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                return value;
+            }));
+        }
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertEquals(i, calls.get(i).join());
+        }
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void testSlowCallIsInterruptedAfterTimeout() throws InterruptedException {
+        callExecutor = CallExecutor.create("test", 1, Duration.ofMillis(50));
+        var interrupted = new AtomicBoolean();
+        var finished = new CountDownLatch(1);
+
+        var call = callExecutor.submit(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            } finally {
+                finished.countDown();
+            }
+            return "late";
+        });
+
+        var error = assertThrows(CompletionException.class, call::join);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    void testTimeWaitingForAPermitDoesNotCountAgainstTheTimeout() {
+        callExecutor = CallExecutor.create("test", 1, Duration.ofMillis(200));
+        var first = callExecutor.submit(() -> {
+            sleep(150);
+            return "first";
+        });
+        var second = callExecutor.submit(() -> {
+            sleep(100);
+            return "second";
+        });
+
+        assertEquals("first", first.join());
+        assertEquals("second", second.join());
+    }
+
+    @Test
+    void testTimedOutCallShrinksTheLimit() throws InterruptedException {
+        var limit = new AdaptiveConcurrencyLimit(4, 1, 8, Duration.ofSeconds(1), 0.5);
+        callExecutor = CallExecutor.create("test", limit, Duration.ofMillis(20));
+        var finished = new CountDownLatch(1);
+
+        var call = callExecutor.submit(() -> {
+            sleep(10_000);
+            finished.countDown();
+            return "late";
+        });
+
+        assertThrows(CompletionException.class, call::join);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100 && limit.getInFlight() > 0; i++) {
+            sleep(10); // the permit is given back right after the call returns
+        }
+        assertEquals(0, limit.getInFlight());
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void testWaitingCallsFailWhenClosed() {
+        callExecutor = CallExecutor.create("test", 1, Duration.ofSeconds(10));
+        callExecutor.submit(() -> {
+            sleep(10_000);
+            return "running";
+        });
+        var waiting = callExecutor.submit(() -> "waiting");
+
+        callExecutor.close();
+
+        var error = assertThrows(CompletionException.class, waiting::join);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}